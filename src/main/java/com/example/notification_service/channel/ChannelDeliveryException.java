@@ -0,0 +1,11 @@
+package com.example.notification_service.channel;
+
+/**
+ * A retryable {@link ChannelResult}, in the form the retry policy takes failures in.
+ */
+public class ChannelDeliveryException extends RuntimeException {
+
+    public ChannelDeliveryException(String message) {
+        super(message);
+    }
+}
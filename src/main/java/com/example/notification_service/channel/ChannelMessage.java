@@ -0,0 +1,10 @@
+package com.example.notification_service.channel;
+
+import java.util.UUID;
+
+/**
+ * A notification as a channel sees it: {@code recipient} is the contact info of the user's
+ * preference, an email address or a device token depending on the channel.
+ */
+public record ChannelMessage(UUID id, String recipient, String subject, String body) {
+}
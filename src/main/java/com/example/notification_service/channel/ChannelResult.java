@@ -0,0 +1,31 @@
+package com.example.notification_service.channel;
+
+/**
+ * Outcome of one message sent through a {@link NotificationChannel}.
+ */
+public record ChannelResult(Outcome outcome, String error) {
+
+    public enum Outcome {
+        DELIVERED,
+        /**
+         * Not delivered this time; the retry policy decides whether and when to try again.
+         */
+        RETRY,
+        /**
+         * Refused for good, for example because the device token is no longer registered.
+         */
+        REJECTED
+    }
+
+    public static ChannelResult delivered() {
+        return new ChannelResult(Outcome.DELIVERED, null);
+    }
+
+    public static ChannelResult retry(String error) {
+        return new ChannelResult(Outcome.RETRY, error);
+    }
+
+    public static ChannelResult rejected(String error) {
+        return new ChannelResult(Outcome.REJECTED, error);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.notification_service.channel;
+
+import com.example.notification_service.model.NotificationType;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Delivers notifications of one {@link NotificationType} other than email, which goes
+ * through the mail relay pipeline of the notification service itself.
+ * <p>
+ * Every channel runs its deliveries on its own {@link #executor()}, so a slow provider only
+ * backs up its own queue.
+ */
+public interface NotificationChannel {
+
+    NotificationType type();
+
+    /**
+     * Worker pool that deliveries through this channel run on.
+     */
+    TaskExecutor executor();
+
+    /**
+     * Sends the messages, as few provider calls as the channel allows, and returns a result
+     * per message id. A message without a result is treated as a failure worth retrying.
+     */
+    Map<UUID, ChannelResult> send(List<ChannelMessage> messages);
+}
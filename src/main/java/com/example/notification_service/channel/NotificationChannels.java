@@ -0,0 +1,37 @@
+package com.example.notification_service.channel;
+
+import com.example.notification_service.model.NotificationType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The configured {@link NotificationChannel}s by type.
+ */
+@Component
+public class NotificationChannels {
+
+    private final Map<NotificationType, NotificationChannel> byType = new EnumMap<>(NotificationType.class);
+
+    @Autowired
+    public NotificationChannels(ObjectProvider<NotificationChannel> channels) {
+        this(channels.orderedStream().toList());
+    }
+
+    public NotificationChannels(List<NotificationChannel> channels) {
+        for (NotificationChannel channel : channels) {
+            if (byType.putIfAbsent(channel.type(), channel) != null) {
+                throw new IllegalStateException("More than one channel for " + channel.type() + " notifications");
+            }
+        }
+    }
+
+    public Optional<NotificationChannel> find(NotificationType type) {
+        return Optional.ofNullable(byType.get(type));
+    }
+}
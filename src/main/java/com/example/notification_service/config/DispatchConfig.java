@@ -0,0 +1,26 @@
+package com.example.notification_service.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class DispatchConfig {
+
+    public static final String DISPATCH_EXECUTOR = "notificationDispatchExecutor";
+
+    @Bean(name = DISPATCH_EXECUTOR)
+    public ThreadPoolTaskExecutor notificationDispatchExecutor(NotificationProperties properties) {
+
+        NotificationProperties.Dispatch dispatch = properties.getDispatch();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dispatch.getWorkers());
+        executor.setMaxPoolSize(dispatch.getWorkers());
+        executor.setQueueCapacity(dispatch.getQueueCapacity());
+        executor.setThreadNamePrefix("notification-dispatch-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.notification_service.config;
+
+import com.example.notification_service.messaging.NotificationCommand;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.ExponentialBackOff;
+import org.apache.kafka.common.serialization.StringDeserializer;
+
+import java.time.Duration;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(prefix = "notification.kafka", name = "enabled", havingValue = "true")
+public class KafkaConfig {
+
+    public static final String COMMAND_CONTAINER_FACTORY = "notificationCommandContainerFactory";
+
+    /**
+     * Batch listener containers with manual acks: offsets of a poll are committed only after
+     * the listener has persisted the whole batch. One consumer thread per partition, up to
+     * {@code notification.kafka.concurrency}.
+     * <p>
+     * A batch that cannot be persisted is redelivered with a growing back-off instead of being
+     * skipped, since that only happens when the database is unavailable. Records that cannot be
+     * read arrive with a null value and are skipped by the listener.
+     */
+    @Bean(COMMAND_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, NotificationCommand> notificationCommandContainerFactory(
+            KafkaProperties kafkaProperties,
+            NotificationProperties properties,
+            ObjectMapper objectMapper) {
+
+        NotificationProperties.Kafka kafka = properties.getKafka();
+
+        Map<String, Object> config = kafkaProperties.buildConsumerProperties(null);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, kafka.getMaxPollRecords());
+
+        DefaultKafkaConsumerFactory<String, NotificationCommand> consumerFactory = new DefaultKafkaConsumerFactory<>(
+                config,
+                new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(new JsonDeserializer<>(NotificationCommand.class, objectMapper, false)));
+
+        ExponentialBackOff backOff = new ExponentialBackOff(Duration.ofSeconds(1).toMillis(), 2.0);
+        backOff.setMaxInterval(Duration.ofSeconds(30).toMillis());
+
+        ConcurrentKafkaListenerContainerFactory<String, NotificationCommand> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(kafka.getConcurrency());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+        return factory;
+    }
+}
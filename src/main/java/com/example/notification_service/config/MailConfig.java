@@ -0,0 +1,53 @@
+package com.example.notification_service.config;
+
+import com.example.notification_service.mail.PooledJavaMailSender;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Map;
+import java.util.Properties;
+
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+public class MailConfig {
+
+    @Bean
+    public JavaMailSender javaMailSender(MailProperties mailProperties, NotificationProperties properties) {
+
+        NotificationProperties.Mail.Pool pool = properties.getMail().getPool();
+
+        JavaMailSenderImpl sender = pool.isEnabled()
+                ? new PooledJavaMailSender(pool.getMaxConnections(), pool.getValidateAfterIdle(), pool.getBorrowTimeout())
+                : new JavaMailSenderImpl();
+
+        applyProperties(mailProperties, sender);
+        return sender;
+    }
+
+    private static void applyProperties(MailProperties mailProperties, JavaMailSenderImpl sender) {
+        sender.setHost(mailProperties.getHost());
+        if (mailProperties.getPort() != null) {
+            sender.setPort(mailProperties.getPort());
+        }
+        sender.setUsername(mailProperties.getUsername());
+        sender.setPassword(mailProperties.getPassword());
+        sender.setProtocol(mailProperties.getProtocol());
+        if (mailProperties.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(mailProperties.getDefaultEncoding().name());
+        }
+
+        Properties javaMailProperties = new Properties();
+        Map<String, String> configured = mailProperties.getProperties();
+        javaMailProperties.putAll(configured);
+        if (mailProperties.getSsl().isEnabled()) {
+            javaMailProperties.setProperty("mail." + mailProperties.getProtocol() + ".ssl.enable", "true");
+        }
+        if (!javaMailProperties.isEmpty()) {
+            sender.setJavaMailProperties(javaMailProperties);
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package com.example.notification_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@ConfigurationProperties(prefix = "notification")
+public class NotificationProperties {
+
+    private Dispatch dispatch = new Dispatch();
+
+    private Mail mail = new Mail();
+
+    private Scheduler scheduler = new Scheduler();
+
+    private Timer timer = new Timer();
+
+    private PreferenceCache preferenceCache = new PreferenceCache();
+
+    private Template template = new Template();
+
+    private BodyStore bodyStore = new BodyStore();
+
+    private Batch batch = new Batch();
+
+    private FanOut fanOut = new FanOut();
+
+    private Digest digest = new Digest();
+
+    private Push push = new Push();
+
+    private Webhook webhook = new Webhook();
+
+    private History history = new History();
+
+    private Kafka kafka = new Kafka();
+
+    private Outbox outbox = new Outbox();
+
+    private Retry retry = new Retry();
+
+    private UserRateLimit userRateLimit = new UserRateLimit();
+
+    private Idempotency idempotency = new Idempotency();
+
+    @Data
+    public static class Dispatch {
+
+        /**
+         * Number of worker threads delivering accepted notifications.
+         */
+        private int workers = 4;
+
+        /**
+         * Accepted notifications waiting for a worker. When the queue is full the
+         * notification is left to the scheduler instead of blocking the request thread.
+         */
+        private int queueCapacity = 1_000;
+    }
+
+    @Data
+    public static class Scheduler {
+
+        /**
+         * Due notifications claimed, sent and recorded together. Bounds both the heap used
+         * per cycle and the length of each database transaction.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Identifies this instance in claim tokens. Defaults to a random id per process.
+         */
+        private String nodeId = UUID.randomUUID().toString();
+
+        /**
+         * How long a claimed batch belongs to the claiming node. The node renews it while it
+         * is still sending; rows still IN_FLIGHT after the lease ran out are taken over by
+         * the next node that polls.
+         */
+        private Duration leaseDuration = Duration.ofMinutes(5);
+
+        /**
+         * Delay between database polls for due notifications. With the timer enabled the poll
+         * is only a safety net and refills the timer, so it can be much longer than the
+         * precision notifications need.
+         */
+        private Duration pollInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Timer {
+
+        private boolean enabled = true;
+
+        /**
+         * Notifications due within this window are held in memory and fired with
+         * second-level precision. Should be well above the scheduler poll interval.
+         */
+        private Duration horizon = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class PreferenceCache {
+
+        private long maximumSize = 100_000;
+
+        /**
+         * Upper bound for how long another node keeps using a preference after it changed.
+         */
+        private Duration ttl = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class Template {
+
+        private long cacheMaximumSize = 1_000;
+
+        /**
+         * Upper bound for how long another node keeps rendering a template after it changed.
+         */
+        private Duration cacheTtl = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class BodyStore {
+
+        /**
+         * Total length, in characters, of the bodies kept in memory.
+         */
+        private long cacheMaximumWeight = 32L * 1024 * 1024;
+
+        /**
+         * Bodies of at least this many characters are stored deflated.
+         */
+        private int compressionThreshold = 1_024;
+
+        /**
+         * Compress large bodies that were stored before compression, in the background.
+         */
+        private boolean compactionEnabled = true;
+
+        private int compactionBatchSize = 500;
+
+        private Duration compactionInterval = Duration.ofMinutes(5);
+
+        private Duration compactionLeaseDuration = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * Items of a batch request that are validated, inserted and reported together.
+         */
+        private int chunkSize = 500;
+    }
+
+    @Data
+    public static class FanOut {
+
+        /**
+         * Recipients addressed in one SMTP transaction, each as a RCPT TO of the same DATA.
+         * Keep this at or below the relay's recipients-per-message limit; many relays take 100.
+         */
+        private int recipientsPerMessage = 50;
+    }
+
+    @Data
+    public static class Digest {
+
+        private boolean enabled = false;
+
+        /**
+         * When a user's notification falls due, the user's other PENDING notifications due
+         * within this window are sent with it in one digest email instead of on their own.
+         */
+        private Duration window = Duration.ofMinutes(10);
+
+        /**
+         * Most notifications merged into one digest; a larger group is sent as several.
+         */
+        private int maxItems = 20;
+
+        /**
+         * Subject of the digest email, formatted with the number of notifications it holds.
+         */
+        private String subject = "You have %d new notifications";
+    }
+
+    @Data
+    public static class Push {
+
+        /**
+         * Deliver MOBILE notifications through the push gateway. Off by default; MOBILE
+         * notifications fail while no push channel is configured.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Batch endpoint of the push gateway, taking many device messages per request.
+         */
+        private URI endpoint;
+
+        /**
+         * Sent as a bearer token when set.
+         */
+        private String apiKey;
+
+        /**
+         * Device messages sent in one HTTP request.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Threads delivering push notifications, separate from the email dispatch workers.
+         */
+        private int workers = 2;
+
+        private int queueCapacity = 1_000;
+
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        private Duration requestTimeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Webhook {
+
+        /**
+         * Deliver WEBHOOK notifications, posting them to the callback URL the user's
+         * preference holds. Off by default.
+         */
+        private boolean enabled = false;
+
+        /**
+         * HMAC-SHA256 key the requests are signed with. Requests go out unsigned without one.
+         */
+        private String signingSecret;
+
+        /**
+         * Requests in flight to one endpoint (scheme, host and port) at a time, across all
+         * workers, so one slow consumer cannot take every connection.
+         */
+        private int maxConcurrentPerEndpoint = 8;
+
+        /**
+         * Threads delivering webhooks, separate from the email and push workers. Each sends a
+         * whole batch asynchronously, so few are needed.
+         */
+        private int workers = 2;
+
+        private int queueCapacity = 1_000;
+
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Limit for one callback, including the wait for a free slot of its endpoint.
+         */
+        private Duration requestTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class History {
+
+        private int defaultPageSize = 50;
+
+        private int maxPageSize = 200;
+
+        public int pageSize(Integer requested) {
+            if (requested == null || requested < 1) {
+                return defaultPageSize;
+            }
+            return Math.min(requested, maxPageSize);
+        }
+    }
+
+    @Data
+    public static class Kafka {
+
+        /**
+         * Consume the command topic. Off by default so that REST-only deployments need no broker.
+         */
+        private boolean enabled = false;
+
+        private String topic = "notification-commands";
+
+        private String groupId = "notification-service";
+
+        /**
+         * Consumer threads; each owns one or more partitions, so more threads than
+         * partitions stay idle.
+         */
+        private int concurrency = 3;
+
+        /**
+         * Upper bound for one poll, and therefore for one insert transaction.
+         */
+        private int maxPollRecords = 500;
+    }
+
+    @Data
+    public static class Outbox {
+
+        /**
+         * Write status events to the outbox and relay them to {@link #topic}. Needs a broker.
+         */
+        private boolean enabled = false;
+
+        private String topic = "notification-status";
+
+        private int batchSize = 500;
+
+        private Duration relayInterval = Duration.ofSeconds(1);
+
+        private Duration leaseDuration = Duration.ofSeconds(30);
+
+        private Duration sendTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Retry {
+
+        /**
+         * Delivery attempts before a notification is given up as FAILED.
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Upper bound of the random delay before the first retry; doubles with every attempt.
+         */
+        private Duration initialDelay = Duration.ofMinutes(1);
+
+        private Duration maxDelay = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class UserRateLimit {
+
+        private boolean enabled = true;
+
+        /**
+         * Sustained rate of notifications the API accepts per user.
+         */
+        private double permitsPerSecond = 1;
+
+        /**
+         * Notifications a user may receive back to back before the rate applies.
+         */
+        private int burst = 20;
+
+        /**
+         * Upper bound of users tracked at once, about 100 bytes each.
+         */
+        private long maximumUsers = 500_000;
+    }
+
+    @Data
+    public static class Idempotency {
+
+        private boolean enabled = true;
+
+        /**
+         * How long a key keeps returning the notification of its first request.
+         */
+        private Duration ttl = Duration.ofHours(24);
+
+        /**
+         * A key whose first request has not finished after this long is treated as abandoned
+         * and may be used again.
+         */
+        private Duration reservationTimeout = Duration.ofMinutes(1);
+
+        private long cacheMaximumSize = 100_000;
+
+        private Duration purgeInterval = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Mail {
+
+        private Pool pool = new Pool();
+
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+        private Concurrency concurrency = new Concurrency();
+
+        private DomainRateLimit domainRateLimit = new DomainRateLimit();
+
+        @Data
+        public static class Pool {
+
+            private boolean enabled = true;
+
+            /**
+             * Upper bound of SMTP connections kept open at the same time.
+             */
+            private int maxConnections = 4;
+
+            /**
+             * Idle connections older than this are checked with a NOOP before reuse.
+             */
+            private Duration validateAfterIdle = Duration.ofSeconds(10);
+
+            /**
+             * How long a send waits for a free connection before failing.
+             */
+            private Duration borrowTimeout = Duration.ofSeconds(30);
+        }
+
+        @Data
+        public static class CircuitBreaker {
+
+            private boolean enabled = true;
+
+            /**
+             * Consecutive transient send failures that open the circuit.
+             */
+            private int failureThreshold = 5;
+
+            /**
+             * How long sends are rejected before probing the relay again.
+             */
+            private Duration openDuration = Duration.ofSeconds(30);
+
+            /**
+             * Sends let through at once while probing.
+             */
+            private int halfOpenProbes = 1;
+        }
+
+        @Data
+        public static class Concurrency {
+
+            private boolean enabled = true;
+
+            private int initialLimit = 4;
+
+            private int minLimit = 1;
+
+            /**
+             * Upper bound for the adaptive limit. Dispatch workers and pooled connections cap
+             * the sends in flight as well, so raising this alone does not add concurrency.
+             */
+            private int maxLimit = 16;
+
+            /**
+             * Factor the limit is multiplied by after a throttled, failed or slow send.
+             */
+            private double backoffRatio = 0.9;
+
+            /**
+             * Sends slower than this count as a sign of overload.
+             */
+            private Duration latencyThreshold = Duration.ofSeconds(5);
+
+            /**
+             * How long a send waits for a free slot before failing.
+             */
+            private Duration acquireTimeout = Duration.ofSeconds(30);
+        }
+
+        @Data
+        public static class DomainRateLimit {
+
+            private boolean enabled = true;
+
+            /**
+             * Sustained rate for any recipient domain not listed in {@link #domains}.
+             */
+            private double permitsPerSecond = 10;
+
+            /**
+             * Messages to one domain that may go out back to back before the rate applies.
+             */
+            private int burst = 20;
+
+            /**
+             * Per-domain rates overriding {@link #permitsPerSecond}, e.g.
+             * {@code notification.mail.domain-rate-limit.domains[gmail.com]=5}.
+             */
+            private Map<String, Double> domains = new HashMap<>();
+
+            private long maximumDomains = 10_000;
+
+            private Duration idleExpiry = Duration.ofMinutes(10);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.notification_service.config;
+
+import com.example.notification_service.push.PushNotificationChannel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.net.http.HttpClient;
+
+@Configuration
+@ConditionalOnProperty(prefix = "notification.push", name = "enabled", havingValue = "true")
+public class PushConfig {
+
+    public static final String PUSH_EXECUTOR = "notificationPushExecutor";
+
+    @Bean(name = PUSH_EXECUTOR)
+    public ThreadPoolTaskExecutor notificationPushExecutor(NotificationProperties properties) {
+
+        NotificationProperties.Push push = properties.getPush();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(push.getWorkers());
+        executor.setMaxPoolSize(push.getWorkers());
+        executor.setQueueCapacity(push.getQueueCapacity());
+        executor.setThreadNamePrefix("notification-push-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * One {@link HttpClient} for all push requests, so connections to the gateway are kept
+     * alive and reused instead of being opened per batch.
+     */
+    @Bean
+    public PushNotificationChannel pushNotificationChannel(NotificationProperties properties,
+                                                           ObjectMapper objectMapper,
+                                                           @Qualifier(PUSH_EXECUTOR) TaskExecutor executor) {
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(properties.getPush().getConnectTimeout())
+                .build();
+
+        return new PushNotificationChannel(client, objectMapper, executor, properties);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.notification_service.config;
+
+import com.example.notification_service.webhook.WebhookNotificationChannel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.net.http.HttpClient;
+
+@Configuration
+@ConditionalOnProperty(prefix = "notification.webhook", name = "enabled", havingValue = "true")
+public class WebhookConfig {
+
+    public static final String WEBHOOK_EXECUTOR = "notificationWebhookExecutor";
+
+    @Bean(name = WEBHOOK_EXECUTOR)
+    public ThreadPoolTaskExecutor notificationWebhookExecutor(NotificationProperties properties) {
+
+        NotificationProperties.Webhook webhook = properties.getWebhook();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(webhook.getWorkers());
+        executor.setMaxPoolSize(webhook.getWorkers());
+        executor.setQueueCapacity(webhook.getQueueCapacity());
+        executor.setThreadNamePrefix("notification-webhook-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * One HTTP/2 client for every endpoint. Requests to the same endpoint share its pooled
+     * connections, and are multiplexed over one connection where the endpoint speaks HTTP/2.
+     */
+    @Bean
+    public WebhookNotificationChannel webhookNotificationChannel(NotificationProperties properties,
+                                                                 ObjectMapper objectMapper,
+                                                                 @Qualifier(WEBHOOK_EXECUTOR) TaskExecutor executor) {
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getWebhook().getConnectTimeout())
+                .build();
+
+        return new WebhookNotificationChannel(client, objectMapper, executor, properties);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.notification_service.content;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.repository.JobLeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compresses, in batches, bodies that were stored as text before compression was enabled or
+ * before the threshold was lowered. Only the node holding the compaction lease works, and it
+ * keeps going until a batch comes back short.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "notification.body-store", name = "compaction-enabled", havingValue = "true")
+public class NotificationBodyCompactor {
+
+    public static final String LEASE_NAME = "body-compaction";
+
+    private final NotificationBodyStore bodyStore;
+    private final JobLeaseRepository leaseRepository;
+    private final NotificationProperties properties;
+
+    @Autowired
+    public NotificationBodyCompactor(NotificationBodyStore bodyStore,
+                                     JobLeaseRepository leaseRepository,
+                                     NotificationProperties properties) {
+        this.bodyStore = bodyStore;
+        this.leaseRepository = leaseRepository;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${notification.body-store.compaction-interval:PT5M}")
+    public void compact() {
+        NotificationProperties.BodyStore config = properties.getBodyStore();
+        String owner = properties.getScheduler().getNodeId();
+
+        int total = 0;
+        int compressed;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            if (!leaseRepository.tryAcquire(LEASE_NAME, owner, now, now.plus(config.getCompactionLeaseDuration()))) {
+                break;
+            }
+            compressed = bodyStore.compressStoredBodies(config.getCompactionBatchSize());
+            total += compressed;
+        } while (compressed == config.getCompactionBatchSize());
+
+        if (total > 0) {
+            log.info("Compressed {} stored notification bodies", total);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.notification_service.content;
+
+import com.example.notification_service.model.Notification;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
+/**
+ * Keeps {@code Notification.bodyHash} in step with the body: a new or replaced body is put
+ * into the {@link NotificationBodyStore} before the row is written, and a loaded notification
+ * fetches its body from the store only when it is read. Hibernate creates the listener
+ * through Spring, which injects the store.
+ */
+public class NotificationBodyListener {
+
+    private final NotificationBodyStore store;
+
+    public NotificationBodyListener(NotificationBodyStore store) {
+        this.store = store;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void storeBody(Notification notification) {
+        if (notification.getBodyHash() == null && notification.getBody() != null) {
+            notification.setBodyHash(store.put(notification.getBody()));
+        }
+    }
+
+    @PostLoad
+    public void resolveBodyLazily(Notification notification) {
+        notification.resolveBodyWith(store::get);
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.notification_service.content;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Content-addressed store of notification bodies: each distinct body is one
+ * {@link com.example.notification_service.model.NotificationContent} row keyed by its
+ * SHA-256, and notifications keep only the hash. Recently used bodies are kept in memory,
+ * weighed by length up to {@code notification.body-store.cache-maximum-weight}, so
+ * campaign traffic neither writes nor reads the same body twice.
+ * <p>
+ * The store is used from inside Hibernate's persist and flush through
+ * {@link NotificationBodyListener}, so it goes to the table with plain JDBC rather than
+ * through the persistence context. A write joins the caller's transaction, and the body is
+ * only cached as stored once that transaction commits. Hit, miss and eviction counters are
+ * published as {@code cache.*{cache=notification.bodies}} metrics.
+ * <p>
+ * Bodies of at least {@code notification.body-store.compression-threshold} characters are
+ * stored deflated by {@link NotificationBodyCodec} in {@code compressed_body} instead of
+ * {@code body}. They are only inflated when a notification's body is actually read, and a
+ * cached body is never inflated again. Rows stored as text before compression was enabled
+ * are compressed by {@link #compressStoredBodies(int)}.
+ */
+@Component
+public class NotificationBodyStore {
+
+    public static final String CACHE_NAME = "notification.bodies";
+
+    private static final String TABLE = "notification_content";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, String> cache;
+    private final int compressionThreshold;
+    private volatile Statements statements;
+
+    public NotificationBodyStore(JdbcTemplate jdbcTemplate, NotificationProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.compressionThreshold = properties.getBodyStore().getCompressionThreshold();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getBodyStore().getCacheMaximumWeight())
+                .weigher((String hash, String body) -> body.length())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Stores the body unless it is known to be stored already, and returns its hash. Within
+     * a transaction each distinct body is written once, however many rows share it.
+     */
+    public String put(String body) {
+        String hash = hash(body);
+        if (cache.getIfPresent(hash) != null) {
+            return hash;
+        }
+
+        Map<String, String> written = TransactionSynchronizationManager.isSynchronizationActive()
+                ? writtenInTransaction()
+                : null;
+        if (written != null && written.putIfAbsent(hash, body) != null) {
+            return hash;
+        }
+
+        boolean compress = body.length() >= compressionThreshold;
+        try {
+            jdbcTemplate.update(statements().insert(),
+                    hash,
+                    compress ? null : body,
+                    compress ? NotificationBodyCodec.compress(body) : null,
+                    Timestamp.valueOf(LocalDateTime.now()),
+                    hash);
+        } catch (DuplicateKeyException e) {
+            // Another transaction stored the same body in the meantime; its row is identical.
+        }
+
+        if (written == null) {
+            cache.put(hash, body);
+        }
+        return hash;
+    }
+
+    /**
+     * Bodies written in the current transaction by hash. They are cached as stored once it
+     * commits, and forgotten if it rolls back; a suspended transaction keeps its own.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, String> writtenInTransaction() {
+        Map<String, String> written = (Map<String, String>) TransactionSynchronizationManager.getResource(this);
+        if (written != null) {
+            return written;
+        }
+
+        Map<String, String> bodies = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, bodies);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(NotificationBodyStore.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(NotificationBodyStore.this, bodies);
+            }
+
+            @Override
+            public void afterCommit() {
+                cache.putAll(bodies);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(NotificationBodyStore.this);
+            }
+        });
+        return bodies;
+    }
+
+    /**
+     * @throws IllegalStateException if no body is stored under {@code hash}
+     */
+    public String get(String hash) {
+        return cache.get(hash, this::load);
+    }
+
+    private String load(String hash) {
+        List<String> bodies = jdbcTemplate.query(statements().select(), (rs, i) -> {
+            byte[] compressed = rs.getBytes(2);
+            return compressed != null ? NotificationBodyCodec.decompress(compressed) : rs.getString(1);
+        }, hash);
+        if (bodies.isEmpty()) {
+            throw new IllegalStateException("No notification body stored under " + hash);
+        }
+        return bodies.get(0);
+    }
+
+    /**
+     * Compresses up to {@code limit} bodies that are stored as text but are at least as long
+     * as the compression threshold, and returns how many were compressed. Each row is
+     * rewritten only if it is still stored as text, so concurrent runs are harmless.
+     */
+    public int compressStoredBodies(int limit) {
+        List<Object[]> updates = new ArrayList<>();
+        jdbcTemplate.query(statements().selectUncompressed(), rs -> {
+            updates.add(new Object[]{NotificationBodyCodec.compress(rs.getString(2)), rs.getString(1)});
+        }, compressionThreshold, limit);
+        if (updates.isEmpty()) {
+            return 0;
+        }
+
+        int compressed = 0;
+        for (int rows : jdbcTemplate.batchUpdate(statements().compress(), updates)) {
+            compressed += Math.max(rows, 0);
+        }
+        return compressed;
+    }
+
+    /**
+     * Drops the body from memory, so the next read goes to the table.
+     */
+    public void evict(String hash) {
+        cache.invalidate(hash);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Hex SHA-256 of the body's UTF-8 bytes; MySQL computes the same value as {@code SHA2(body, 256)}.
+     */
+    public static String hash(String body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Names are quoted so the statements match the lower-case names Hibernate creates,
+     * whether or not it quotes identifiers itself.
+     */
+    private Statements statements() {
+        if (statements == null) {
+            String quote = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getIdentifierQuoteString().strip());
+            UnaryOperator<String> q = name -> quote + name + quote;
+            String table = q.apply(TABLE);
+            String hash = q.apply("hash");
+            String body = q.apply("body");
+            String compressedBody = q.apply("compressed_body");
+            statements = new Statements(
+                    "INSERT INTO " + table + " (" + hash + ", " + body + ", " + compressedBody + ", " + q.apply("created") + ")"
+                            + " SELECT ?, ?, ?, ? FROM DUAL"
+                            + " WHERE NOT EXISTS (SELECT 1 FROM " + table + " WHERE " + hash + " = ?)",
+                    "SELECT " + body + ", " + compressedBody + " FROM " + table + " WHERE " + hash + " = ?",
+                    "SELECT " + hash + ", " + body + " FROM " + table
+                            + " WHERE " + compressedBody + " IS NULL AND CHAR_LENGTH(" + body + ") >= ?"
+                            + " LIMIT ?",
+                    "UPDATE " + table + " SET " + compressedBody + " = ?, " + body + " = NULL"
+                            + " WHERE " + hash + " = ? AND " + body + " IS NOT NULL");
+        }
+        return statements;
+    }
+
+    private record Statements(String insert, String select, String selectUncompressed, String compress) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.notification_service.exception;
+
+public class IdempotencyConflictException extends RuntimeException {
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+
+}
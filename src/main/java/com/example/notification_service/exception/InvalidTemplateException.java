@@ -0,0 +1,8 @@
+package com.example.notification_service.exception;
+
+public class InvalidTemplateException extends RuntimeException {
+    public InvalidTemplateException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.example.notification_service.exception;
+
+public class NotificationTemplateNotFoundException extends RuntimeException {
+    public NotificationTemplateNotFoundException(String message) {
+        super(message);
+    }
+
+}
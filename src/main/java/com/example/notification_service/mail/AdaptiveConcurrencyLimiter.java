@@ -0,0 +1,136 @@
+package com.example.notification_service.mail;
+
+import com.example.notification_service.config.NotificationProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the number of sends in flight to the relay and adapts the cap with AIMD: every send
+ * that completes within {@code latencyThreshold} while the limit is in use raises it by
+ * {@code 1/limit}, roughly one per round trip, and a send that was throttled, failed
+ * transiently or took too long multiplies it by {@code backoffRatio}. The limit therefore
+ * settles just below the concurrency at which the relay starts answering 421 or slowing down.
+ * <p>
+ * Senders over the limit wait up to {@code acquireTimeout} for a slot. The current limit and
+ * in-flight count are published as {@code notification.mail.concurrency.limit} and
+ * {@code notification.mail.concurrency.inflight}.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final NotificationProperties.Mail.Concurrency config;
+    private final MailFailureClassifier classifier;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(NotificationProperties properties,
+                                      MailFailureClassifier classifier,
+                                      MeterRegistry meterRegistry) {
+        this(properties, classifier, meterRegistry, System::nanoTime);
+    }
+
+    public AdaptiveConcurrencyLimiter(NotificationProperties properties,
+                                      MailFailureClassifier classifier,
+                                      MeterRegistry meterRegistry,
+                                      LongSupplier nanoClock) {
+        this.config = properties.getMail().getConcurrency();
+        this.classifier = classifier;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), config.getInitialLimit()));
+        Gauge.builder("notification.mail.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("notification.mail.concurrency.inflight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code send} once a slot is free and adjusts the limit from its outcome.
+     *
+     * @throws MailSendSlotUnavailableException without running {@code send} if no slot freed up in time
+     */
+    public void send(Runnable send) {
+        if (!config.isEnabled()) {
+            send.run();
+            return;
+        }
+
+        int inFlightAtStart = acquire();
+        long start = nanoClock.getAsLong();
+        boolean dropped = false;
+        try {
+            send.run();
+        } catch (RuntimeException e) {
+            // A pooled connection that did not free up in time is not the relay pushing back.
+            dropped = !(e instanceof MailSendSlotUnavailableException) && !classifier.isPermanent(e);
+            throw e;
+        } finally {
+            release(inFlightAtStart, nanoClock.getAsLong() - start, dropped);
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int acquire() {
+        long remaining = config.getAcquireTimeout().toNanos();
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    throw new MailSendSlotUnavailableException("Timed out waiting for a free mail send slot");
+                }
+                remaining = slotFreed.awaitNanos(remaining);
+            }
+            return ++inFlight;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendSlotUnavailableException("Interrupted while waiting for a free mail send slot", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(int inFlightAtStart, long rttNanos, boolean dropped) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (dropped || rttNanos > config.getLatencyThreshold().toNanos()) {
+                limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+            } else if (inFlightAtStart * 2 >= limit) {
+                // Only grow while the limit is actually being used, so an idle period does not
+                // leave behind a limit the relay has never been tested at.
+                limit = Math.min(config.getMaxLimit(), limit + 1.0 / limit);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.notification_service.mail;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.ratelimit.TokenBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limit per recipient domain, since providers throttle by the domain we
+ * send to rather than by our connection.
+ * <p>
+ * Buckets are lock-free {@link TokenBucket}s kept in a Caffeine map, so parallel dispatch
+ * workers never block each other on the check. Buckets of domains that have not
+ * been sent to for a while are dropped and start again with a full burst.
+ */
+@Component
+public class DomainRateLimiter {
+
+    private final NotificationProperties.Mail.DomainRateLimit config;
+    private final LongSupplier nanoClock;
+    private final Cache<String, TokenBucket> buckets;
+    private final Counter deferred;
+
+    @Autowired
+    public DomainRateLimiter(NotificationProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    public DomainRateLimiter(NotificationProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.config = properties.getMail().getDomainRateLimit();
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumDomains())
+                .expireAfterAccess(config.getIdleExpiry())
+                .build();
+        this.deferred = meterRegistry.counter("notification.mail.domain.deferred");
+    }
+
+    /**
+     * Takes a token for the domain of {@code contactInfo} if one is available.
+     *
+     * @param queuedBefore messages to the same domain already deferred in this round; the
+     *                     returned delay puts this one behind them, so a deferred batch comes
+     *                     back at the domain's rate instead of all at once
+     * @return {@link Duration#ZERO} if the message may be sent now, otherwise how long to defer it
+     */
+    public Duration tryAcquire(String contactInfo, int queuedBefore) {
+        String domain = domainOf(contactInfo);
+        if (!config.isEnabled() || domain == null) {
+            return Duration.ZERO;
+        }
+
+        TokenBucket bucket = buckets.get(domain, this::newBucket);
+        long waitNanos = bucket.tryAcquire(nanoClock.getAsLong());
+        if (waitNanos <= 0) {
+            return Duration.ZERO;
+        }
+        deferred.increment();
+        return Duration.ofNanos(waitNanos + queuedBefore * bucket.intervalNanos());
+    }
+
+    public static String domainOf(String contactInfo) {
+        if (contactInfo == null) {
+            return null;
+        }
+        int at = contactInfo.lastIndexOf('@');
+        if (at < 0 || at == contactInfo.length() - 1) {
+            return null;
+        }
+        return contactInfo.substring(at + 1).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private TokenBucket newBucket(String domain) {
+        double permitsPerSecond = config.getDomains().getOrDefault(domain, config.getPermitsPerSecond());
+        return new TokenBucket(permitsPerSecond, config.getBurst(), nanoClock.getAsLong());
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.notification_service.mail;
+
+import com.example.notification_service.config.NotificationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker around the SMTP relay, so that sends fail in microseconds instead of each
+ * waiting for the connect timeout while the relay is down.
+ * <p>
+ * After {@code failureThreshold} consecutive transient failures the circuit opens and every
+ * send is rejected with {@link MailRelayUnavailableException}. Once {@code openDuration} has
+ * passed it lets {@code halfOpenProbes} sends through; a successful probe closes the circuit,
+ * a failed one opens it again. Permanent failures, such as an unknown recipient, show that the
+ * relay is answering and count as successes. A {@link MailSendSlotUnavailableException} never
+ * reached the relay and counts as neither.
+ * <p>
+ * The state is published as the {@code notification.mail.circuit.state} gauge (0 closed,
+ * 1 open, 2 half-open), together with {@code notification.mail.circuit.transitions} and
+ * {@code notification.mail.circuit.rejected} counters.
+ */
+@Slf4j
+@Component
+public class MailCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final NotificationProperties.Mail.CircuitBreaker config;
+    private final MailFailureClassifier classifier;
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int probesInFlight;
+
+    @Autowired
+    public MailCircuitBreaker(NotificationProperties properties,
+                              MailFailureClassifier classifier,
+                              MeterRegistry meterRegistry) {
+        this(properties, classifier, meterRegistry, System::nanoTime);
+    }
+
+    public MailCircuitBreaker(NotificationProperties properties,
+                              MailFailureClassifier classifier,
+                              MeterRegistry meterRegistry,
+                              LongSupplier nanoClock) {
+        this.config = properties.getMail().getCircuitBreaker();
+        this.classifier = classifier;
+        this.nanoClock = nanoClock;
+        this.meterRegistry = meterRegistry;
+        this.rejected = meterRegistry.counter("notification.mail.circuit.rejected");
+        Gauge.builder("notification.mail.circuit.state", this, breaker -> breaker.state().ordinal())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code send} if the circuit lets it through and records the outcome.
+     *
+     * @throws MailRelayUnavailableException without running {@code send} while the circuit is open
+     */
+    public void send(Runnable send) {
+        boolean probe = acquire();
+        try {
+            send.run();
+        } catch (MailSendSlotUnavailableException e) {
+            // Local back-pressure: the relay was never contacted, so its state is unchanged.
+            releaseProbe(probe);
+            throw e;
+        } catch (RuntimeException e) {
+            onResult(probe, classifier.isPermanent(e));
+            throw e;
+        }
+        onResult(probe, true);
+    }
+
+    /**
+     * Whether sends are currently being rejected. Turns false as soon as a probe is due, so
+     * callers that skip work while this is true still deliver the probe.
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && !openDurationElapsed();
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private synchronized boolean acquire() {
+        if (!config.isEnabled()) {
+            return false;
+        }
+        if (state == State.OPEN && openDurationElapsed()) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return false;
+        }
+        if (state == State.HALF_OPEN && probesInFlight < config.getHalfOpenProbes()) {
+            probesInFlight++;
+            return true;
+        }
+        rejected.increment();
+        throw new MailRelayUnavailableException("Mail relay circuit is open");
+    }
+
+    private synchronized void releaseProbe(boolean probe) {
+        if (config.isEnabled() && probe) {
+            probesInFlight--;
+        }
+    }
+
+    private synchronized void onResult(boolean probe, boolean relayAnswered) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (probe) {
+            probesInFlight--;
+        }
+
+        if (relayAnswered) {
+            consecutiveFailures = 0;
+            if (probe && state == State.HALF_OPEN) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN && probe
+                || state == State.CLOSED && consecutiveFailures >= config.getFailureThreshold()) {
+            openedAt = nanoClock.getAsLong();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private boolean openDurationElapsed() {
+        return nanoClock.getAsLong() - openedAt >= config.getOpenDuration().toNanos();
+    }
+
+    private void transitionTo(State next) {
+        log.warn("Mail relay circuit {} -> {}", state, next);
+        meterRegistry.counter("notification.mail.circuit.transitions",
+                "from", state.name(), "to", next.name()).increment();
+        state = next;
+        if (next != State.HALF_OPEN) {
+            probesInFlight = 0;
+        }
+    }
+}
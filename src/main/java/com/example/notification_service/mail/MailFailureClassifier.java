@@ -0,0 +1,136 @@
+package com.example.notification_service.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Decides whether a failed send is worth retrying.
+ * <p>
+ * A failure is permanent when the message itself cannot be built or the relay rejected it
+ * with a 5xx reply, e.g. an unknown mailbox. Everything else, including 4xx replies,
+ * connection and authentication problems and failures nothing is known about, is treated
+ * as transient.
+ */
+@Component
+public class MailFailureClassifier {
+
+    public enum Kind {
+        TRANSIENT,
+        PERMANENT
+    }
+
+    public Kind classify(Throwable failure) {
+        if (failure instanceof MailParseException || failure instanceof MailPreparationException) {
+            return Kind.PERMANENT;
+        }
+
+        for (Throwable t : causes(failure)) {
+            int returnCode = returnCode(t);
+            if (returnCode >= 500) {
+                return Kind.PERMANENT;
+            }
+            if (returnCode >= 400) {
+                return Kind.TRANSIENT;
+            }
+            if (t instanceof AddressException) {
+                return Kind.PERMANENT;
+            }
+            if (t instanceof SendFailedException sendFailed && isRejectedOutright(sendFailed)) {
+                return Kind.PERMANENT;
+            }
+        }
+        return Kind.TRANSIENT;
+    }
+
+    public boolean isPermanent(Throwable failure) {
+        return classify(failure) == Kind.PERMANENT;
+    }
+
+    /**
+     * Recipients the relay refused permanently at RCPT TO, lower-cased. Jakarta Mail reports
+     * these as the invalid addresses of a {@link SendFailedException}; recipients refused
+     * with a 4xx reply are reported as valid but unsent and are not included.
+     */
+    public Set<String> refusedRecipients(Throwable failure) {
+        Set<String> refused = new HashSet<>();
+        for (Throwable t : causes(failure)) {
+            if (t instanceof SendFailedException sendFailed && sendFailed.getInvalidAddresses() != null) {
+                for (Address address : sendFailed.getInvalidAddresses()) {
+                    refused.add(address.toString().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return refused;
+    }
+
+    /**
+     * The failure and everything it wraps, breadth first: causes, chained messaging
+     * exceptions and the per-message failures of a {@link MailSendException}.
+     */
+    private static List<Throwable> causes(Throwable failure) {
+        List<Throwable> causes = new ArrayList<>();
+        Deque<Throwable> pending = new ArrayDeque<>();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.add(failure);
+
+        while (!pending.isEmpty()) {
+            Throwable t = pending.poll();
+            if (!seen.add(t)) {
+                continue;
+            }
+            causes.add(t);
+
+            if (t instanceof MailSendException send) {
+                pending.addAll(send.getFailedMessages().values());
+            }
+            if (t instanceof MessagingException messaging && messaging.getNextException() != null) {
+                pending.add(messaging.getNextException());
+            }
+            if (t.getCause() != null) {
+                pending.add(t.getCause());
+            }
+        }
+        return causes;
+    }
+
+    private static int returnCode(Throwable t) {
+        if (t instanceof SMTPAddressFailedException e) {
+            return e.getReturnCode();
+        }
+        if (t instanceof SMTPSenderFailedException e) {
+            return e.getReturnCode();
+        }
+        if (t instanceof SMTPSendFailedException e) {
+            return e.getReturnCode();
+        }
+        return -1;
+    }
+
+    /**
+     * Every recipient was refused and none is merely waiting to be sent again.
+     */
+    private static boolean isRejectedOutright(SendFailedException e) {
+        return e.getInvalidAddresses() != null && e.getInvalidAddresses().length > 0
+                && (e.getValidUnsentAddresses() == null || e.getValidUnsentAddresses().length == 0)
+                && (e.getValidSentAddresses() == null || e.getValidSentAddresses().length == 0);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.notification_service.mail;
+
+import org.springframework.mail.MailSendException;
+
+/**
+ * Thrown instead of attempting a send while {@link MailCircuitBreaker} considers the relay down.
+ */
+public class MailRelayUnavailableException extends MailSendException {
+
+    public MailRelayUnavailableException(String msg) {
+        super(msg);
+    }
+}
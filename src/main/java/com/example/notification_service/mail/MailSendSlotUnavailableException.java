@@ -0,0 +1,19 @@
+package com.example.notification_service.mail;
+
+import org.springframework.mail.MailSendException;
+
+/**
+ * Thrown when a send gives up waiting for a local resource, a slot in
+ * {@link AdaptiveConcurrencyLimiter} or a pooled connection of {@link PooledJavaMailSender},
+ * before the relay was contacted. {@link MailCircuitBreaker} does not count it as a relay failure.
+ */
+public class MailSendSlotUnavailableException extends MailSendException {
+
+    public MailSendSlotUnavailableException(String msg) {
+        super(msg);
+    }
+
+    public MailSendSlotUnavailableException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
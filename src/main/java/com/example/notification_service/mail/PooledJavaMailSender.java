@@ -0,0 +1,218 @@
+package com.example.notification_service.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link JavaMailSenderImpl} that keeps up to {@code maxConnections} connected and
+ * authenticated {@link Transport}s open and reuses them across sends, instead of paying
+ * the connect, STARTTLS and AUTH round-trips for every message.
+ * <p>
+ * Idle connections are handed out most-recently-used first. A connection that has been
+ * idle for longer than {@code validateAfterIdle} is checked with a NOOP before reuse, and
+ * a message that fails because its connection dropped is retried once on a fresh one.
+ */
+@Slf4j
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final long validateAfterIdleNanos;
+    private final Duration borrowTimeout;
+
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsReused = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public PooledJavaMailSender(int maxConnections, Duration validateAfterIdle, Duration borrowTimeout) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be at least 1");
+        }
+        this.permits = new Semaphore(maxConnections, true);
+        this.validateAfterIdleNanos = validateAfterIdle.toNanos();
+        this.borrowTimeout = borrowTimeout;
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+
+        acquirePermit();
+        PooledTransport pooled = null;
+
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+
+                if (pooled == null) {
+                    try {
+                        pooled = obtain();
+                    } catch (AuthenticationFailedException ex) {
+                        throw new MailAuthenticationException(ex);
+                    } catch (Exception ex) {
+                        for (int j = i; j < mimeMessages.length; j++) {
+                            failedMessages.put(original(mimeMessages, originalMessages, j), ex);
+                        }
+                        throw new MailSendException("Mail server connection failed", ex, failedMessages);
+                    }
+                }
+
+                MimeMessage mimeMessage = mimeMessages[i];
+                try {
+                    prepare(mimeMessage);
+                    send(pooled, mimeMessage);
+                } catch (MessagingException ex) {
+                    if (pooled.transport.isConnected()) {
+                        failedMessages.put(original(mimeMessages, originalMessages, i), ex);
+                        continue;
+                    }
+                    // The connection broke underneath us: drop it and retry once on a new one.
+                    closeQuietly(pooled);
+                    pooled = null;
+                    try {
+                        pooled = open();
+                        send(pooled, mimeMessage);
+                    } catch (Exception retryEx) {
+                        failedMessages.put(original(mimeMessages, originalMessages, i), retryEx);
+                    }
+                } catch (Exception ex) {
+                    failedMessages.put(original(mimeMessages, originalMessages, i), ex);
+                }
+            }
+        } finally {
+            release(pooled);
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    public long getConnectionsReused() {
+        return connectionsReused.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    private void acquirePermit() {
+        if (closed) {
+            throw new MailSendException("Mail sender has been shut down");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MailSendSlotUnavailableException("Timed out waiting for a pooled SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendSlotUnavailableException("Interrupted while waiting for a pooled SMTP connection", e);
+        }
+    }
+
+    private PooledTransport obtain() throws MessagingException {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            boolean stale = System.nanoTime() - pooled.lastUsed > validateAfterIdleNanos;
+            if (!stale || pooled.transport.isConnected()) {
+                connectionsReused.incrementAndGet();
+                return pooled;
+            }
+            closeQuietly(pooled);
+        }
+        return open();
+    }
+
+    private PooledTransport open() throws MessagingException {
+        PooledTransport pooled = new PooledTransport(connectTransport());
+        connectionsOpened.incrementAndGet();
+        return pooled;
+    }
+
+    private void release(@Nullable PooledTransport pooled) {
+        try {
+            if (pooled != null) {
+                if (closed) {
+                    closeQuietly(pooled);
+                } else {
+                    pooled.lastUsed = System.nanoTime();
+                    idle.offerFirst(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void send(PooledTransport pooled, MimeMessage mimeMessage) throws MessagingException {
+        Address[] addresses = mimeMessage.getAllRecipients();
+        pooled.transport.sendMessage(mimeMessage, (addresses != null ? addresses : new Address[0]));
+    }
+
+    private static void prepare(MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            mimeMessage.setHeader("Message-ID", messageId);
+        }
+    }
+
+    private static Object original(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages, int index) {
+        return (originalMessages != null ? originalMessages[index] : mimeMessages[index]);
+    }
+
+    private static void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (Exception ex) {
+            log.debug("Failed to close pooled SMTP connection: {}", ex.getMessage());
+        }
+    }
+
+    private static final class PooledTransport {
+
+        private final Transport transport;
+        private long lastUsed = System.nanoTime();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.notification_service.messaging;
+
+import com.example.notification_service.web.dto.NotificationRequest;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A notification or reminder submitted through the command topic rather than REST.
+ * Producers key the record by userId so all commands of a user land on one partition.
+ * <p>
+ * A command either carries its own subject and body, or names a registered template and
+ * its parameters; subject and body are then ignored.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationCommand {
+
+    public enum Type {
+        NOTIFICATION,
+        REMINDER
+    }
+
+    @NotNull
+    private Type type;
+
+    @NotNull
+    private UUID userId;
+
+    /**
+     * Validation group of the constraints that apply to commands without a template.
+     */
+    public interface Inline {
+    }
+
+    @NotBlank(groups = Inline.class)
+    private String subject;
+
+    @NotBlank(groups = Inline.class)
+    private String body;
+
+    @Size(max = 100)
+    private String templateId;
+
+    private Map<String, String> params;
+
+    /**
+     * When a reminder is due. Notifications are sent right away and ignore it.
+     */
+    private LocalDateTime scheduledAt;
+
+    public static NotificationCommand notification(NotificationRequest request) {
+        return NotificationCommand.builder()
+                .type(Type.NOTIFICATION)
+                .userId(request.getUserId())
+                .subject(request.getSubject())
+                .body(request.getBody())
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.notification_service.messaging;
+
+import com.example.notification_service.config.KafkaConfig;
+import com.example.notification_service.service.NotificationService;
+import com.example.notification_service.web.dto.BatchNotificationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "notification.kafka", name = "enabled", havingValue = "true")
+public class NotificationCommandListener {
+
+    private final NotificationService notificationService;
+
+    @Autowired
+    public NotificationCommandListener(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Persists everything one poll returned in a single batched insert, then commits the
+     * poll's offsets. A crash in between redelivers the batch, so delivery is at least once.
+     */
+    @KafkaListener(id = "notificationCommands",
+            groupId = "${notification.kafka.group-id}",
+            topics = "${notification.kafka.topic}",
+            containerFactory = KafkaConfig.COMMAND_CONTAINER_FACTORY)
+    public void onCommands(List<ConsumerRecord<String, NotificationCommand>> records, Acknowledgment ack) {
+
+        List<NotificationCommand> commands = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, NotificationCommand> record : records) {
+            if (record.value() == null) {
+                log.warn("Skipping unreadable command at {}-{}@{}", record.topic(), record.partition(), record.offset());
+            } else {
+                commands.add(record.value());
+            }
+        }
+
+        List<BatchNotificationResult> results = notificationService.acceptCommands(commands);
+        results.stream()
+                .filter(result -> result.getError() != null)
+                .forEach(result -> log.warn("Rejected command for user {}: {}",
+                        commands.get(result.getIndex()).getUserId(), result.getError()));
+
+        ack.acknowledge();
+    }
+}
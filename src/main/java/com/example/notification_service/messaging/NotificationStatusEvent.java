@@ -0,0 +1,45 @@
+package com.example.notification_service.messaging;
+
+import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.OutboxEvent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Published to the status topic, keyed by userId, whenever a notification reaches
+ * SUCCEEDED or FAILED.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationStatusEvent {
+
+    private UUID notificationId;
+
+    private UUID userId;
+
+    private NotificationStatus status;
+
+    private Integer attempts;
+
+    private String lastError;
+
+    private LocalDateTime occurredAt;
+
+    public static NotificationStatusEvent from(OutboxEvent event) {
+        return NotificationStatusEvent.builder()
+                .notificationId(event.getNotificationId())
+                .userId(event.getUserId())
+                .status(event.getStatus())
+                .attempts(event.getAttempts())
+                .lastError(event.getLastError())
+                .occurredAt(event.getOccurredAt())
+                .build();
+    }
+}
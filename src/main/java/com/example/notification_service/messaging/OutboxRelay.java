@@ -0,0 +1,101 @@
+package com.example.notification_service.messaging;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.model.OutboxEvent;
+import com.example.notification_service.repository.JobLeaseRepository;
+import com.example.notification_service.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes outbox events to Kafka in id order and deletes them once the broker has
+ * acknowledged the whole batch. Only the node holding the relay lease publishes, and events
+ * are keyed by userId, so each user's events reach consumers in the order they were written.
+ * <p>
+ * A failed or interrupted batch is published again on the next run, so consumers may see an
+ * event more than once.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "notification.outbox", name = "enabled", havingValue = "true")
+public class OutboxRelay {
+
+    public static final String LEASE_NAME = "outbox-relay";
+
+    private final OutboxEventRepository outboxRepository;
+    private final JobLeaseRepository leaseRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final NotificationProperties properties;
+
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxRepository,
+                       JobLeaseRepository leaseRepository,
+                       KafkaTemplate<String, String> kafkaTemplate,
+                       ObjectMapper objectMapper,
+                       NotificationProperties properties) {
+        this.outboxRepository = outboxRepository;
+        this.leaseRepository = leaseRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${notification.outbox.relay-interval:PT1S}")
+    public void relay() throws InterruptedException {
+        NotificationProperties.Outbox outbox = properties.getOutbox();
+        String owner = properties.getScheduler().getNodeId();
+
+        List<OutboxEvent> batch;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            if (!leaseRepository.tryAcquire(LEASE_NAME, owner, now, now.plus(outbox.getLeaseDuration()))) {
+                return;
+            }
+
+            batch = outboxRepository.findOldest(PageRequest.of(0, outbox.getBatchSize()));
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                publish(batch);
+            } catch (ExecutionException | TimeoutException | JsonProcessingException e) {
+                log.warn("Publishing {} outbox events failed, retrying on the next run: {}", batch.size(), e.getMessage());
+                return;
+            }
+
+            outboxRepository.deleteAllByIdInBatch(batch.stream().map(OutboxEvent::getId).toList());
+        } while (batch.size() == outbox.getBatchSize());
+    }
+
+    private void publish(List<OutboxEvent> batch)
+            throws JsonProcessingException, ExecutionException, InterruptedException, TimeoutException {
+
+        String topic = properties.getOutbox().getTopic();
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[batch.size()];
+
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            String key = event.getUserId() == null ? null : event.getUserId().toString();
+            String payload = objectMapper.writeValueAsString(NotificationStatusEvent.from(event));
+            sends[i] = kafkaTemplate.send(topic, key, payload);
+        }
+
+        CompletableFuture.allOf(sends).get(properties.getOutbox().getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.notification_service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Maps a client's {@code Idempotency-Key} to the notification its first request created.
+ * The row is inserted before the request is processed, with no notification yet, so the
+ * primary key decides which of several concurrent requests with the same key gets to run.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_idempotency_record_expires_at", columnList = "expiresAt"))
+public class IdempotencyRecord {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Id
+    @Column(length = MAX_KEY_LENGTH)
+    private String idempotencyKey;
+
+    /**
+     * Hex SHA-256 of the first request, so a reused key with a different request is told
+     * apart from a retry. Null for records written before requests were fingerprinted.
+     */
+    @Column(length = 64)
+    private String requestHash;
+
+    /**
+     * Null while the first request is still being processed.
+     */
+    private UUID notificationId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
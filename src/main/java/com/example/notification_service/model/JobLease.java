@@ -0,0 +1,29 @@
+package com.example.notification_service.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lets one node at a time run a job that must not run concurrently. The owner renews the
+ * lease while it works; another node may take it over once it has expired.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class JobLease {
+
+    @Id
+    private String name;
+
+    private String owner;
+
+    private LocalDateTime leaseUntil;
+}
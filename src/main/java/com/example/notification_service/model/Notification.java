@@ -1,21 +1,39 @@
 package com.example.notification_service.model;
 
+import com.example.notification_service.content.NotificationBodyListener;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@EntityListeners(NotificationBodyListener.class)
+@Table(indexes = {
+        @Index(name = "idx_notification_status_scheduled_at", columnList = "status, scheduledAt"),
+        @Index(name = "idx_notification_status_lease_until", columnList = "status, leaseUntil"),
+        @Index(name = "idx_notification_claimed_by", columnList = "claimedBy"),
+        @Index(name = "idx_notification_user_history", columnList = "userId, deleted, created, id")
+})
 public class Notification {
 
+    public static final int MAX_ERROR_LENGTH = 255;
+
+    public static final int MAX_TEMPLATE_PARAMS_LENGTH = 4_000;
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
@@ -23,9 +41,43 @@ public class Notification {
     @Column(nullable = false)
     private String subject;
 
-    @Column(nullable = false)
+    /**
+     * Hash of the body's {@link NotificationContent} row, which holds the text once however
+     * many notifications share it. Null for notifications created from a template; their
+     * body is rendered when sent.
+     */
+    @Column(name = "body_hash", length = 64)
+    private String bodyHash;
+
+    /**
+     * The text behind {@link #bodyHash}. A loaded notification fetches it, and inflates it if
+     * it is stored compressed, on the first {@link #getBody()}.
+     */
+    @Transient
     private String body;
 
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Function<String, String> bodyLoader;
+
+    @Column(length = NotificationTemplate.MAX_ID_LENGTH)
+    private String templateId;
+
+    /**
+     * Revision of the template the notification was created from, so that it is sent and read
+     * back with that text. Null when the template had no revisions yet.
+     */
+    private Integer templateVersion;
+
+    /**
+     * Template parameters as a JSON object.
+     */
+    @Column(length = MAX_TEMPLATE_PARAMS_LENGTH)
+    private String templateParams;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private NotificationStatus status;
@@ -46,8 +98,47 @@ public class Notification {
     @Column(nullable = false)
     private Integer attempts;
 
+    @Column(length = MAX_ERROR_LENGTH)
     private String lastError;
 
+    private String claimedBy;
+
+    private LocalDateTime claimedAt;
+
+    private LocalDateTime leaseUntil;
+
+    public String getBody() {
+        if (body == null && bodyHash != null && bodyLoader != null) {
+            body = bodyLoader.apply(bodyHash);
+        }
+        return body;
+    }
+
+    /**
+     * Replaces the body; its hash is worked out again when the notification is saved.
+     */
+    public void setBody(String body) {
+        this.body = body;
+        this.bodyHash = null;
+    }
+
+    /**
+     * Has {@link #getBody()} fetch the body for {@link #bodyHash} through {@code loader}
+     * when it is first read.
+     */
+    public void resolveBodyWith(Function<String, String> loader) {
+        this.bodyLoader = loader;
+    }
+
+    /**
+     * Cuts the error down to its column; relay replies and nested mail exceptions can run longer.
+     */
+    public void setLastError(String lastError) {
+        this.lastError = lastError != null && lastError.length() > MAX_ERROR_LENGTH
+                ? lastError.substring(0, MAX_ERROR_LENGTH)
+                : lastError;
+    }
+
     @PrePersist
     void prePersist() {
         if (created == null) created = LocalDateTime.now();
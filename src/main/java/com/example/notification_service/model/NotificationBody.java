@@ -0,0 +1,16 @@
+package com.example.notification_service.model;
+
+import java.util.UUID;
+
+public interface NotificationBody {
+
+    UUID getId();
+
+    String getBodyHash();
+
+    String getTemplateId();
+
+    Integer getTemplateVersion();
+
+    String getTemplateParams();
+}
@@ -0,0 +1,45 @@
+package com.example.notification_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification body, stored once however many notifications use it. Exactly one of
+ * {@code body} and {@code compressedBody} is set. Rows are written and read through
+ * {@link com.example.notification_service.content.NotificationBodyStore}; apart from
+ * compressing a body stored as text, they never change once written.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class NotificationContent {
+
+    /**
+     * Hex SHA-256 of the body's UTF-8 bytes.
+     */
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    /**
+     * The body as text, when it is shorter than the compression threshold.
+     */
+    @Column(length = 10_000)
+    private String body;
+
+    /**
+     * The body's UTF-8 bytes, deflated, when it is at least as long as the threshold.
+     */
+    @Lob
+    private byte[] compressedBody;
+
+    @Column(nullable = false)
+    private LocalDateTime created;
+}
@@ -0,0 +1,11 @@
+package com.example.notification_service.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface NotificationSchedule {
+
+    UUID getId();
+
+    LocalDateTime getScheduledAt();
+}
@@ -2,5 +2,5 @@ package com.example.notification_service.model;
 
 public enum NotificationStatus {
 
-    SUCCEEDED, FAILED, PENDING
+    SUCCEEDED, FAILED, PENDING, IN_FLIGHT
 }
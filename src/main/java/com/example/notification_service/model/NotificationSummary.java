@@ -0,0 +1,17 @@
+package com.example.notification_service.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface NotificationSummary {
+
+    UUID getId();
+
+    String getSubject();
+
+    LocalDateTime getCreated();
+
+    NotificationStatus getStatus();
+
+    NotificationType getType();
+}
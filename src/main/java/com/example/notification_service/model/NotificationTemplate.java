@@ -0,0 +1,45 @@
+package com.example.notification_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A registered message template. Subject and body may contain {@code {{name}}} placeholders
+ * that are filled from the parameters of each notification.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class NotificationTemplate {
+
+    public static final int MAX_ID_LENGTH = 100;
+
+    @Id
+    @Column(length = MAX_ID_LENGTH)
+    private String id;
+
+    /**
+     * Current {@link NotificationTemplateVersion}, raised each time the template is replaced.
+     * Null for templates registered before revisions were kept.
+     */
+    private Integer version;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, length = 10_000)
+    private String body;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedOn;
+}
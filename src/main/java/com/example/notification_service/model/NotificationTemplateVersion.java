@@ -0,0 +1,46 @@
+package com.example.notification_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * One registered revision of a {@link NotificationTemplate}. Revisions are never changed, so
+ * a notification renders the text it was created from even after its template is replaced.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(NotificationTemplateVersion.Key.class)
+public class NotificationTemplateVersion {
+
+    @Id
+    @Column(length = NotificationTemplate.MAX_ID_LENGTH)
+    private String templateId;
+
+    @Id
+    private Integer version;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, length = 10_000)
+    private String body;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+    public record Key(String templateId, Integer version) implements Serializable {
+
+        public Key() {
+            this(null, null);
+        }
+    }
+}
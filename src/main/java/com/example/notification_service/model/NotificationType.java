@@ -2,5 +2,5 @@ package com.example.notification_service.model;
 
 public enum NotificationType {
 
-    EMAIL, MOBILE
+    EMAIL, MOBILE, WEBHOOK
 }
@@ -0,0 +1,43 @@
+package com.example.notification_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A status change of a notification, written in the same transaction as the change itself
+ * and removed once the outbox relay has published it. The identity id gives the order
+ * in which events are relayed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private UUID notificationId;
+
+    private UUID userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NotificationStatus status;
+
+    private Integer attempts;
+
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+}
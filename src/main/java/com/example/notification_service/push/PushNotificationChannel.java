@@ -0,0 +1,168 @@
+package com.example.notification_service.push;
+
+import com.example.notification_service.channel.ChannelMessage;
+import com.example.notification_service.channel.ChannelResult;
+import com.example.notification_service.channel.NotificationChannel;
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.model.NotificationType;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sends MOBILE notifications to a push gateway, up to {@code notification.push.batch-size}
+ * device messages per HTTP request:
+ * <pre>
+ * POST {endpoint}
+ * {"messages": [{"id": "...", "token": "...", "title": "...", "body": "..."}, ...]}
+ *
+ * 200 OK
+ * {"results": [{"id": "...", "status": "OK"}, {"id": "...", "status": "UNREGISTERED", "error": "..."}, ...]}
+ * </pre>
+ * A message whose status says the token or the message itself is invalid is rejected for
+ * good; any other status, and any failure of the request as a whole, is worth a retry.
+ */
+@Slf4j
+public class PushNotificationChannel implements NotificationChannel {
+
+    private static final Set<String> PERMANENT_STATUSES = Set.of("INVALID_TOKEN", "UNREGISTERED", "INVALID_ARGUMENT");
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor executor;
+    private final NotificationProperties.Push push;
+
+    public PushNotificationChannel(HttpClient client,
+                                   ObjectMapper objectMapper,
+                                   TaskExecutor executor,
+                                   NotificationProperties properties) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.push = properties.getPush();
+    }
+
+    @Override
+    public NotificationType type() {
+        return NotificationType.MOBILE;
+    }
+
+    @Override
+    public TaskExecutor executor() {
+        return executor;
+    }
+
+    @Override
+    public Map<UUID, ChannelResult> send(List<ChannelMessage> messages) {
+        Map<UUID, ChannelResult> results = new HashMap<>();
+        int batchSize = push.getBatchSize();
+
+        for (int from = 0; from < messages.size(); from += batchSize) {
+            results.putAll(sendBatch(messages.subList(from, Math.min(from + batchSize, messages.size()))));
+        }
+        return results;
+    }
+
+    private Map<UUID, ChannelResult> sendBatch(List<ChannelMessage> batch) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(push.getEndpoint())
+                .timeout(push.getRequestTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload(batch)));
+        if (push.getApiKey() != null && !push.getApiKey().isBlank()) {
+            request.header("Authorization", "Bearer " + push.getApiKey());
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            log.warn("Push gateway request for {} messages failed: {}", batch.size(), e.getMessage());
+            return retryAll(batch, "Push gateway unreachable: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return retryAll(batch, "Interrupted while sending to the push gateway");
+        }
+
+        if (response.statusCode() != 200) {
+            log.warn("Push gateway answered {} for {} messages", response.statusCode(), batch.size());
+            return retryAll(batch, "Push gateway returned HTTP " + response.statusCode());
+        }
+
+        PushBatchResponse body;
+        try {
+            body = objectMapper.readValue(response.body(), PushBatchResponse.class);
+        } catch (IOException e) {
+            return retryAll(batch, "Unreadable push gateway response: " + e.getMessage());
+        }
+
+        Map<UUID, ChannelResult> results = new HashMap<>();
+        if (body.results() != null) {
+            for (PushResult result : body.results()) {
+                UUID id = parseId(result.id());
+                if (id != null) {
+                    results.put(id, toChannelResult(result));
+                }
+            }
+        }
+        return results;
+    }
+
+    private byte[] payload(List<ChannelMessage> batch) {
+        List<PushMessage> messages = batch.stream()
+                .map(m -> new PushMessage(m.id().toString(), m.recipient(), m.subject(), m.body()))
+                .toList();
+        try {
+            return objectMapper.writeValueAsBytes(new PushBatchRequest(messages));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ChannelResult toChannelResult(PushResult result) {
+        if ("OK".equals(result.status())) {
+            return ChannelResult.delivered();
+        }
+        String error = result.error() != null ? result.error() : result.status();
+        return PERMANENT_STATUSES.contains(result.status()) ? ChannelResult.rejected(error) : ChannelResult.retry(error);
+    }
+
+    private static Map<UUID, ChannelResult> retryAll(List<ChannelMessage> batch, String error) {
+        Map<UUID, ChannelResult> results = new HashMap<>();
+        batch.forEach(m -> results.put(m.id(), ChannelResult.retry(error)));
+        return results;
+    }
+
+    private static UUID parseId(String id) {
+        try {
+            return id == null ? null : UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public record PushBatchRequest(List<PushMessage> messages) {
+    }
+
+    public record PushMessage(String id, String token, String title, String body) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PushBatchResponse(List<PushResult> results) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PushResult(String id, String status, String error) {
+    }
+}
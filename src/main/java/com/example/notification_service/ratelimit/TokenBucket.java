@@ -0,0 +1,59 @@
+package com.example.notification_service.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is the bucket's theoretical
+ * arrival time in a single {@link AtomicLong}, updated with compare-and-set. A bucket that
+ * has been idle for {@link #refillNanos()} is full again and can be dropped without changing
+ * any outcome.
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.toleranceNanos = (Math.max(burst, 1) - 1) * intervalNanos;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return zero if a token was taken, otherwise nanoseconds until the next one
+     */
+    public long tryAcquire(long nowNanos) {
+        return tryAcquire(nowNanos, 1);
+    }
+
+    /**
+     * Takes {@code permits} tokens at once or none of them.
+     *
+     * @return zero if the tokens were taken, otherwise nanoseconds until there are enough
+     */
+    public long tryAcquire(long nowNanos, int permits) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = Math.max(tat, nowNanos);
+            long wait = base + (permits - 1) * intervalNanos - toleranceNanos - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + permits * intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public long intervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * How long an untouched bucket takes to fill up completely.
+     */
+    public long refillNanos() {
+        return toleranceNanos + intervalNanos;
+    }
+}
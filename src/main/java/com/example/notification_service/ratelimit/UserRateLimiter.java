@@ -0,0 +1,82 @@
+package com.example.notification_service.ratelimit;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.exception.RateLimitExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket limit on how many notifications are accepted per user, checked in memory
+ * before anything touches the database. Single requests are rejected as a whole; batch and
+ * fan-out items are charged one by one. Kafka commands are not limited, since a rejected
+ * command could not be retried.
+ * <p>
+ * A bucket is evicted once it has been idle long enough to be full again, which loses no
+ * state, so the map only holds users seen within that window. {@code maximumUsers} bounds it
+ * when even that is too many; a user evicted early starts over with a full burst.
+ */
+@Component
+public class UserRateLimiter {
+
+    private final NotificationProperties.UserRateLimit config;
+    private final LongSupplier nanoClock;
+    private final Cache<UUID, TokenBucket> buckets;
+    private final Counter rejected;
+
+    @Autowired
+    public UserRateLimiter(NotificationProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    public UserRateLimiter(NotificationProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.config = properties.getUserRateLimit();
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumUsers())
+                .expireAfterAccess(Duration.ofNanos(newBucket().refillNanos()))
+                .build();
+        this.rejected = meterRegistry.counter("notification.api.user.rejected");
+    }
+
+    /**
+     * @throws RateLimitExceededException if {@code userId} has no token left
+     */
+    public void acquire(UUID userId) {
+        acquire(userId, 1);
+    }
+
+    /**
+     * Takes {@code permits} of the user's tokens at once, for a request that creates several
+     * notifications; it is rejected as a whole when the user does not have that many left.
+     *
+     * @throws RateLimitExceededException if {@code userId} has fewer than {@code permits} tokens
+     */
+    public void acquire(UUID userId, int permits) {
+        if (!config.isEnabled() || userId == null || permits <= 0) {
+            return;
+        }
+
+        long waitNanos = buckets.get(userId, id -> newBucket()).tryAcquire(nanoClock.getAsLong(), permits);
+        if (waitNanos > 0) {
+            rejected.increment();
+            throw new RateLimitExceededException("Too many notifications for user " + userId, Duration.ofNanos(waitNanos));
+        }
+    }
+
+    public long size() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    private TokenBucket newBucket() {
+        return new TokenBucket(config.getPermitsPerSecond(), config.getBurst(), nanoClock.getAsLong());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Plain INSERT rather than {@code save}, which would merge into a row another node just
+     * created. Fails with {@link org.springframework.dao.DataIntegrityViolationException}
+     * when the key is taken.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        INSERT INTO IdempotencyRecord (idempotencyKey, requestHash, createdAt, expiresAt)
+        VALUES (:key, :requestHash, :now, :expiresAt)
+""")
+    int insertReservation(@Param("key") String key,
+                          @Param("requestHash") String requestHash,
+                          @Param("now") LocalDateTime now,
+                          @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.notificationId = :notificationId WHERE r.idempotencyKey = :key")
+    int complete(@Param("key") String key, @Param("notificationId") UUID notificationId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.notificationId IS NULL")
+    int release(@Param("key") String key);
+
+    /**
+     * Drops a reservation whose request has not completed since {@code reservedBefore},
+     * presumably because the node processing it went away.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        DELETE FROM IdempotencyRecord r
+        WHERE r.idempotencyKey = :key AND r.notificationId IS NULL AND r.createdAt < :reservedBefore
+""")
+    int releaseAbandoned(@Param("key") String key, @Param("reservedBefore") LocalDateTime reservedBefore);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
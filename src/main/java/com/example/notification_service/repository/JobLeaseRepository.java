@@ -0,0 +1,46 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.model.JobLease;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE JobLease l SET l.owner = :owner, l.leaseUntil = :leaseUntil
+        WHERE l.name = :name AND (l.owner = :owner OR l.leaseUntil < :now)
+""")
+    int renew(@Param("name") String name,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Takes or extends the lease; false while another owner holds an unexpired one.
+     */
+    default boolean tryAcquire(String name, String owner, LocalDateTime now, LocalDateTime leaseUntil) {
+        if (renew(name, owner, now, leaseUntil) == 1) {
+            return true;
+        }
+        if (existsById(name)) {
+            return false;
+        }
+        try {
+            saveAndFlush(JobLease.builder().name(name).owner(owner).leaseUntil(leaseUntil).build());
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // another node created it first
+            return false;
+        }
+    }
+}
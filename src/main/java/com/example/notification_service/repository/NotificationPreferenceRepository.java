@@ -3,6 +3,8 @@ package com.example.notification_service.repository;
 import com.example.notification_service.model.NotificationPreference;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -10,4 +12,6 @@ import java.util.UUID;
 public interface NotificationPreferenceRepository extends JpaRepository<NotificationPreference, UUID> {
 
     Optional<NotificationPreference> findByUserId(UUID uuid);
+
+    List<NotificationPreference> findAllByUserIdIn(Collection<UUID> userIds);
 }
@@ -1,15 +1,24 @@
 package com.example.notification_service.repository;
 
 import com.example.notification_service.model.Notification;
+import com.example.notification_service.model.NotificationBody;
+import com.example.notification_service.model.NotificationSchedule;
 import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.NotificationSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, UUID> {
@@ -19,5 +28,277 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
 """)
     List<Notification> findAllByUserIdAndDeleted(@Param("userId") UUID userId);
 
-    List<Notification> findAllByStatusAndScheduledAtBefore(NotificationStatus status, LocalDateTime time);
+    /**
+     * First page of the user's visible history, newest first. idx_notification_user_history
+     * serves the filter and the order, so only the rows of the page are looked up, and only
+     * the columns of {@link NotificationSummary} are read from them.
+     */
+    @Query("""
+        SELECT n.id AS id, n.subject AS subject, n.created AS created, n.status AS status, n.type AS type
+        FROM Notification n
+        WHERE n.userId = :userId AND n.deleted = false
+        ORDER BY n.created DESC, n.id DESC
+""")
+    List<NotificationSummary> findHistory(@Param("userId") UUID userId, Pageable pageable);
+
+    /**
+     * Page of the user's visible history that follows the row {@code (created, id)}.
+     */
+    @Query("""
+        SELECT n.id AS id, n.subject AS subject, n.created AS created, n.status AS status, n.type AS type
+        FROM Notification n
+        WHERE n.userId = :userId AND n.deleted = false
+          AND (n.created < :created OR (n.created = :created AND n.id < :id))
+        ORDER BY n.created DESC, n.id DESC
+""")
+    List<NotificationSummary> findHistoryAfter(@Param("userId") UUID userId,
+                                               @Param("created") LocalDateTime created,
+                                               @Param("id") UUID id,
+                                               Pageable pageable);
+
+    @Query("""
+        SELECT n.id AS id, n.bodyHash AS bodyHash, n.templateId AS templateId,
+               n.templateVersion AS templateVersion, n.templateParams AS templateParams
+        FROM Notification n WHERE n.id IN :ids
+""")
+    List<NotificationBody> findBodies(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Soft-deletes the user's history in one statement. Pending changes are flushed first and
+     * the persistence context is cleared afterwards, so entities loaded earlier are re-read
+     * with {@code deleted = true} instead of keeping their stale state.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Notification n SET n.deleted = true WHERE n.userId = :userId AND n.deleted = false
+""")
+    int softDeleteAllByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Ids of PENDING rows that are due, plus IN_FLIGHT rows whose lease ran out because the
+     * node holding them died before recording a result.
+     */
+    @Query("""
+        SELECT n.id FROM Notification n
+        WHERE (n.status = com.example.notification_service.model.NotificationStatus.PENDING AND n.scheduledAt < :now)
+           OR (n.status = com.example.notification_service.model.NotificationStatus.IN_FLIGHT AND n.leaseUntil < :now)
+        ORDER BY n.scheduledAt
+""")
+    List<UUID> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("""
+        SELECT n.id AS id, n.scheduledAt AS scheduledAt FROM Notification n
+        WHERE n.status = com.example.notification_service.model.NotificationStatus.PENDING
+          AND (:from IS NULL OR n.scheduledAt >= :from) AND n.scheduledAt < :until
+        ORDER BY n.scheduledAt
+""")
+    List<NotificationSchedule> findPendingSchedules(@Param("from") LocalDateTime from,
+                                                    @Param("until") LocalDateTime until,
+                                                    Pageable pageable);
+
+    /**
+     * Ids of the PENDING email rows of {@code userIds} that fall due before {@code until}, the
+     * candidates for joining a digest with rows of the same user that are due now. Rows of
+     * other channels are never digested, so they are left to come due on their own.
+     */
+    @Query("""
+        SELECT n.id FROM Notification n
+        WHERE n.userId IN :userIds
+          AND (n.type = com.example.notification_service.model.NotificationType.EMAIL OR n.type IS NULL)
+          AND n.status = com.example.notification_service.model.NotificationStatus.PENDING AND n.scheduledAt < :until
+        ORDER BY n.scheduledAt
+""")
+    List<UUID> findPendingEmailIdsByUserIds(@Param("userIds") Collection<UUID> userIds,
+                                       @Param("until") LocalDateTime until,
+                                       Pageable pageable);
+
+    /**
+     * Leases the given rows to the {@code claim} token until {@code leaseUntil}. Only PENDING
+     * rows that are due and IN_FLIGHT rows with an expired lease are taken, so concurrent
+     * claimers on different nodes never get the same row, and a row rescheduled for a retry
+     * is not sent early by a stale timer entry or dispatch.
+     */
+    default int claim(Collection<UUID> ids, String claim, LocalDateTime now, LocalDateTime leaseUntil) {
+        return claim(ids, claim, now, now, leaseUntil);
+    }
+
+    /**
+     * Like {@link #claim(Collection, String, LocalDateTime, LocalDateTime)}, but also takes
+     * PENDING rows that fall due up to {@code dueBy}, such as the companions of a digest.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Notification n SET n.status = com.example.notification_service.model.NotificationStatus.IN_FLIGHT,
+            n.claimedBy = :claim, n.claimedAt = :now, n.leaseUntil = :leaseUntil
+        WHERE n.id IN :ids
+          AND ((n.status = com.example.notification_service.model.NotificationStatus.PENDING AND n.scheduledAt <= :dueBy)
+               OR (n.status = com.example.notification_service.model.NotificationStatus.IN_FLIGHT AND n.leaseUntil < :now))
+""")
+    int claim(@Param("ids") Collection<UUID> ids,
+              @Param("claim") String claim,
+              @Param("now") LocalDateTime now,
+              @Param("dueBy") LocalDateTime dueBy,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Moves the lease of the rows still IN_FLIGHT under {@code claim} out to {@code leaseUntil},
+     * for a node that is still sending them.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Notification n SET n.leaseUntil = :leaseUntil
+        WHERE n.claimedBy = :claim AND n.status = com.example.notification_service.model.NotificationStatus.IN_FLIGHT
+""")
+    int extendLease(@Param("claim") String claim, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    List<Notification> findAllByClaimedBy(String claimedBy);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Notification n SET n.status = com.example.notification_service.model.NotificationStatus.SUCCEEDED,
+            n.lastError = null, n.claimedBy = null, n.leaseUntil = null
+        WHERE n.id IN :ids AND n.claimedBy = :claim
+""")
+    int markSucceeded(@Param("ids") Collection<UUID> ids, @Param("claim") String claim);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Notification n SET n.status = com.example.notification_service.model.NotificationStatus.FAILED,
+            n.attempts = :attempts, n.lastError = :lastError, n.claimedBy = null, n.leaseUntil = null
+        WHERE n.id IN :ids AND n.claimedBy = :claim
+""")
+    int markFailed(@Param("ids") Collection<UUID> ids,
+                   @Param("claim") String claim,
+                   @Param("attempts") Integer attempts,
+                   @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Notification n SET n.status = :status, n.attempts = :attempts, n.lastError = :lastError,
+            n.scheduledAt = :scheduledAt, n.claimedBy = null, n.leaseUntil = null
+        WHERE n.id = :id AND n.claimedBy = :claim
+""")
+    int updateDeliveryState(@Param("id") UUID id,
+                            @Param("claim") String claim,
+                            @Param("status") NotificationStatus status,
+                            @Param("attempts") Integer attempts,
+                            @Param("lastError") String lastError,
+                            @Param("scheduledAt") LocalDateTime scheduledAt);
+
+    /**
+     * Adds a SUCCEEDED outbox event for each of {@code ids} still held by {@code claim}. Runs
+     * before {@link #markSucceeded}, which releases the claim.
+     */
+    @Modifying
+    @Query("""
+        INSERT INTO OutboxEvent (notificationId, userId, status, attempts, occurredAt)
+        SELECT n.id, n.userId, com.example.notification_service.model.NotificationStatus.SUCCEEDED, n.attempts, local datetime
+        FROM Notification n
+        WHERE n.id IN :ids AND n.claimedBy = :claim
+""")
+    int insertSucceededEvents(@Param("ids") Collection<UUID> ids, @Param("claim") String claim);
+
+    /**
+     * Adds a FAILED outbox event for each of {@code ids} still held by {@code claim}. Runs
+     * before {@link #markFailed}, which releases the claim.
+     */
+    @Modifying
+    @Query("""
+        INSERT INTO OutboxEvent (notificationId, userId, status, attempts, lastError, occurredAt)
+        SELECT n.id, n.userId, com.example.notification_service.model.NotificationStatus.FAILED, :attempts, :lastError, local datetime
+        FROM Notification n
+        WHERE n.id IN :ids AND n.claimedBy = :claim
+""")
+    int insertFailedEvents(@Param("ids") Collection<UUID> ids,
+                           @Param("claim") String claim,
+                           @Param("attempts") Integer attempts,
+                           @Param("lastError") String lastError);
+
+    /**
+     * Adds an outbox event carrying the current state of the notification.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        INSERT INTO OutboxEvent (notificationId, userId, status, attempts, lastError, occurredAt)
+        SELECT n.id, n.userId, n.status, n.attempts, n.lastError, local datetime
+        FROM Notification n
+        WHERE n.id = :id
+""")
+    int insertStatusEvent(@Param("id") UUID id);
+
+    /**
+     * Saves the notification together with an outbox event for its status, in one transaction.
+     */
+    @Transactional
+    default Notification saveWithStatusEvent(Notification notification) {
+        Notification saved = save(notification);
+        insertStatusEvent(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Writes the outcome of a claimed batch in two short transactions: a single bulk update
+     * for the delivered rows, then one bulk update per distinct attempt count and error among
+     * the failed rows and one update per row that goes back to PENDING for a retry. The
+     * delivered rows are committed first, so a failure writing the others cannot put them
+     * back to IN_FLIGHT, where they would be claimed and sent again once the lease ran out.
+     * The rows of a digest share their outcome, so they cost one update whichever way it went.
+     * Rows whose lease was taken over by another node in the meantime are left alone.
+     * <p>
+     * With {@code statusEvents}, each transaction adds an outbox event for every row it moves
+     * to SUCCEEDED or FAILED; rows going back to PENDING for a retry get none.
+     */
+    default void recordResults(String claim, Collection<Notification> notifications, boolean statusEvents) {
+
+        List<UUID> succeeded = notifications.stream()
+                .filter(n -> n.getStatus() == NotificationStatus.SUCCEEDED)
+                .map(Notification::getId)
+                .toList();
+
+        if (!succeeded.isEmpty()) {
+            recordSucceeded(claim, succeeded, statusEvents);
+        }
+
+        List<Notification> others = notifications.stream()
+                .filter(n -> n.getStatus() != NotificationStatus.SUCCEEDED)
+                .toList();
+
+        if (!others.isEmpty()) {
+            recordUndelivered(claim, others, statusEvents);
+        }
+    }
+
+    @Transactional
+    default void recordSucceeded(String claim, Collection<UUID> ids, boolean statusEvents) {
+        if (statusEvents) {
+            insertSucceededEvents(ids, claim);
+        }
+        markSucceeded(ids, claim);
+    }
+
+    @Transactional
+    default void recordUndelivered(String claim, Collection<Notification> notifications, boolean statusEvents) {
+        notifications.stream()
+                .filter(n -> n.getStatus() == NotificationStatus.FAILED)
+                .collect(Collectors.groupingBy(n -> Arrays.asList(n.getAttempts(), n.getLastError()),
+                        Collectors.mapping(Notification::getId, Collectors.toList())))
+                .forEach((outcome, ids) -> {
+                    Integer attempts = (Integer) outcome.get(0);
+                    String lastError = (String) outcome.get(1);
+                    if (statusEvents) {
+                        insertFailedEvents(ids, claim, attempts, lastError);
+                    }
+                    markFailed(ids, claim, attempts, lastError);
+                });
+
+        notifications.stream()
+                .filter(n -> n.getStatus() != NotificationStatus.FAILED)
+                .forEach(n -> updateDeliveryState(n.getId(), claim, n.getStatus(), n.getAttempts(), n.getLastError(), n.getScheduledAt()));
+    }
 }
@@ -0,0 +1,9 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.model.NotificationTemplate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NotificationTemplateRepository extends JpaRepository<NotificationTemplate, String> {
+}
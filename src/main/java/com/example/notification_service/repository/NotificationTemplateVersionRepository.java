@@ -0,0 +1,10 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.model.NotificationTemplateVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NotificationTemplateVersionRepository
+        extends JpaRepository<NotificationTemplateVersion, NotificationTemplateVersion.Key> {
+}
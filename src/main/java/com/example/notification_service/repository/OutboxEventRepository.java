@@ -0,0 +1,18 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("""
+        SELECT e FROM OutboxEvent e ORDER BY e.id
+""")
+    List<OutboxEvent> findOldest(Pageable pageable);
+}
@@ -0,0 +1,146 @@
+package com.example.notification_service.scheduling;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel over absolute ticks (one tick per second in this service).
+ * <p>
+ * Four levels of 64 slots each cover {@code 64^4} ticks ahead: level 0 holds entries due in
+ * the next 64 ticks, level 1 the next {@code 64^2}, and so on. When the wheel reaches the
+ * start of a coarser slot, that slot's entries are cascaded into finer levels, so every
+ * entry fires on exactly the tick it was added for.
+ * <p>
+ * Entries are stored as {@code (deadline, mostSigBits, leastSigBits)} triples in plain
+ * {@code long[]} buckets that are reused across rotations, so advancing the wheel does not
+ * allocate. Buckets only grow when more entries land in one slot than it ever held before.
+ */
+public class HierarchicalTimingWheel {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final int ENTRY_LENGTH = 3;
+    private static final int INITIAL_BUCKET_ENTRIES = 4;
+
+    public static final long MAX_DELAY_TICKS = 1L << (WHEEL_BITS * LEVELS);
+
+    private final long[][][] buckets = new long[LEVELS][WHEEL_SIZE][];
+    private final int[][] bucketLengths = new int[LEVELS][WHEEL_SIZE];
+
+    private long currentTick;
+    private int size;
+
+    @FunctionalInterface
+    public interface ExpiryHandler {
+
+        void expired(long mostSigBits, long leastSigBits);
+    }
+
+    public HierarchicalTimingWheel(long startTick) {
+        this.currentTick = startTick;
+        for (long[][] level : buckets) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                level[slot] = new long[INITIAL_BUCKET_ENTRIES * ENTRY_LENGTH];
+            }
+        }
+    }
+
+    /**
+     * Adds an entry due at {@code deadlineTick}. Deadlines that already passed fire on the
+     * next tick. Returns {@code false} when the deadline is beyond what the wheel can hold.
+     */
+    public synchronized boolean add(long deadlineTick, long mostSigBits, long leastSigBits) {
+        long deadline = Math.max(deadlineTick, currentTick + 1);
+        if (deadline - currentTick >= MAX_DELAY_TICKS) {
+            return false;
+        }
+        insert(deadline, mostSigBits, leastSigBits);
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowTick}, passing every entry that came due to the
+     * handler. The handler runs while the wheel is locked and should only collect entries.
+     */
+    public synchronized int advance(long nowTick, ExpiryHandler handler) {
+        if (size == 0) {
+            currentTick = Math.max(currentTick, nowTick);
+            return 0;
+        }
+
+        int fired = 0;
+        while (currentTick < nowTick && size > 0) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(level, slotOf(currentTick, level));
+                }
+            }
+            fired += expire(slotOf(currentTick, 0), handler);
+        }
+        currentTick = Math.max(currentTick, nowTick);
+        return fired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long currentTick() {
+        return currentTick;
+    }
+
+    private void insert(long deadline, long mostSigBits, long leastSigBits) {
+        long delta = deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        append(level, slotOf(deadline, level), deadline, mostSigBits, leastSigBits);
+    }
+
+    private void append(int level, int slot, long deadline, long mostSigBits, long leastSigBits) {
+        long[] bucket = buckets[level][slot];
+        int length = bucketLengths[level][slot];
+        if (length + ENTRY_LENGTH > bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+            buckets[level][slot] = bucket;
+        }
+        bucket[length] = deadline;
+        bucket[length + 1] = mostSigBits;
+        bucket[length + 2] = leastSigBits;
+        bucketLengths[level][slot] = length + ENTRY_LENGTH;
+    }
+
+    /**
+     * Re-inserts the entries of a coarse slot whose time span has just begun. They are
+     * now closer than the span of {@code level}, so they always land on a finer level and
+     * never back in the bucket being read.
+     */
+    private void cascade(int level, int slot) {
+        long[] bucket = buckets[level][slot];
+        int length = bucketLengths[level][slot];
+        bucketLengths[level][slot] = 0;
+        for (int i = 0; i < length; i += ENTRY_LENGTH) {
+            insert(bucket[i], bucket[i + 1], bucket[i + 2]);
+        }
+    }
+
+    private int expire(int slot, ExpiryHandler handler) {
+        long[] bucket = buckets[0][slot];
+        int length = bucketLengths[0][slot];
+        bucketLengths[0][slot] = 0;
+        int fired = length / ENTRY_LENGTH;
+        size -= fired;
+        for (int i = 0; i < length; i += ENTRY_LENGTH) {
+            handler.expired(bucket[i + 1], bucket[i + 2]);
+        }
+        return fired;
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) ((tick >>> (WHEEL_BITS * level)) & MASK);
+    }
+}
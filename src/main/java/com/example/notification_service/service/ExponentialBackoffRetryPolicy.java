@@ -0,0 +1,61 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.mail.MailFailureClassifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Exponential backoff with full jitter: the n-th retry waits a uniformly random time
+ * between zero and {@code min(maxDelay, initialDelay * 2^(n-1))}. Spreading the retries
+ * keeps a backlog that failed together during a relay outage from coming back as one wave.
+ * <p>
+ * Permanent failures, as judged by {@link MailFailureClassifier}, are not retried.
+ */
+@Component
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    private final NotificationProperties.Retry retry;
+    private final MailFailureClassifier classifier;
+    private final Supplier<RandomGenerator> random;
+
+    @Autowired
+    public ExponentialBackoffRetryPolicy(NotificationProperties properties, MailFailureClassifier classifier) {
+        this(properties, classifier, ThreadLocalRandom::current);
+    }
+
+    public ExponentialBackoffRetryPolicy(NotificationProperties properties,
+                                         MailFailureClassifier classifier,
+                                         Supplier<RandomGenerator> random) {
+        this.retry = properties.getRetry();
+        this.classifier = classifier;
+        this.random = random;
+    }
+
+    @Override
+    public Optional<Duration> nextDelay(int attempts, Exception failure) {
+        if (attempts >= retry.getMaxAttempts() || classifier.isPermanent(failure)) {
+            return Optional.empty();
+        }
+
+        long cap = backoffCap(Math.max(attempts, 1)).toMillis();
+        return Optional.of(Duration.ofMillis(cap == 0 ? 0 : random.get().nextLong(cap + 1)));
+    }
+
+    Duration backoffCap(int attempts) {
+        long initial = retry.getInitialDelay().toMillis();
+        long max = retry.getMaxDelay().toMillis();
+        int shift = attempts - 1;
+        // Stop doubling before it overflows; by then the cap is far beyond any sane maxDelay.
+        if (shift >= Long.numberOfLeadingZeros(Math.max(initial, 1)) - 1) {
+            return Duration.ofMillis(max);
+        }
+        return Duration.ofMillis(Math.min(max, initial << shift));
+    }
+}
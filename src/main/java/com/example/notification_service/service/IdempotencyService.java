@@ -0,0 +1,180 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.exception.IdempotencyConflictException;
+import com.example.notification_service.exception.IdempotencyKeyReusedException;
+import com.example.notification_service.exception.InvalidIdempotencyKeyException;
+import com.example.notification_service.model.IdempotencyRecord;
+import com.example.notification_service.model.Notification;
+import com.example.notification_service.repository.IdempotencyRecordRepository;
+import com.example.notification_service.repository.NotificationRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Makes create requests carrying an {@code Idempotency-Key} safe to retry: the first request
+ * runs and records which notification it created, and every later request with the same key
+ * gets that notification back without sending anything.
+ * <p>
+ * The key is reserved in {@link IdempotencyRecord} before the request runs, so concurrent
+ * retries on different nodes cannot both get through; the loser receives a conflict until
+ * the winner has finished. Completed keys are also cached in memory, so a retry storm against
+ * one node is answered without touching the key table. A reservation left behind by a node
+ * that died is taken over after {@code reservationTimeout}.
+ * <p>
+ * Each key is stored with a fingerprint of the request that first used it. A later request
+ * with the same key but a different body, another user's included, is rejected with
+ * {@link IdempotencyKeyReusedException} instead of being handed the first request's notification.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final NotificationRepository notificationRepository;
+    private final ObjectMapper objectMapper;
+    private final NotificationProperties.Idempotency config;
+    private final Cache<String, Completed> completed;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository recordRepository,
+                              NotificationRepository notificationRepository,
+                              ObjectMapper objectMapper,
+                              NotificationProperties properties) {
+        this.recordRepository = recordRepository;
+        this.notificationRepository = notificationRepository;
+        this.objectMapper = objectMapper;
+        this.config = properties.getIdempotency();
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(config.getCacheMaximumSize())
+                .expireAfterWrite(config.getTtl())
+                .build();
+    }
+
+    /**
+     * Runs {@code create} unless {@code key} has been seen before, in which case the
+     * notification created for it the first time is returned. Without a key this just runs
+     * {@code create}.
+     *
+     * @param request the request body {@code create} acts on; a retry must send the same one
+     * @throws IdempotencyKeyReusedException if the key was first used with a different request
+     */
+    public Notification execute(String key, Object request, Supplier<Notification> create) {
+        if (!config.isEnabled() || key == null || key.isBlank()) {
+            return create.get();
+        }
+        if (key.length() > IdempotencyRecord.MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                    "Idempotency-Key must not be longer than " + IdempotencyRecord.MAX_KEY_LENGTH + " characters");
+        }
+
+        String requestHash = fingerprint(request);
+        Completed known = completed.getIfPresent(key);
+        if (known != null) {
+            checkSameRequest(known.requestHash(), requestHash);
+            return replay(known.notificationId());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!reserve(key, requestHash, now)) {
+            return replayReserved(key, requestHash);
+        }
+
+        Notification created;
+        try {
+            created = create.get();
+        } catch (RuntimeException e) {
+            // Nothing was created, so a retry with the same key should run again.
+            recordRepository.release(key);
+            throw e;
+        }
+
+        recordRepository.complete(key, created.getId());
+        completed.put(key, new Completed(requestHash, created.getId()));
+        return created;
+    }
+
+    @Scheduled(fixedDelayString = "${notification.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int purged = recordRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private boolean reserve(String key, String requestHash, LocalDateTime now) {
+        try {
+            recordRepository.insertReservation(key, requestHash, now, now.plus(config.getTtl()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // An expired record or an abandoned reservation no longer holds the key.
+            if (recordRepository.deleteIfExpired(key, now) == 0
+                    && recordRepository.releaseAbandoned(key, now.minus(config.getReservationTimeout())) == 0) {
+                return false;
+            }
+            try {
+                recordRepository.insertReservation(key, requestHash, now, now.plus(config.getTtl()));
+                return true;
+            } catch (DataIntegrityViolationException raced) {
+                return false;
+            }
+        }
+    }
+
+    private Notification replayReserved(String key, String requestHash) {
+        Optional<IdempotencyRecord> record = recordRepository.findById(key);
+        record.ifPresent(r -> checkSameRequest(r.getRequestHash(), requestHash));
+
+        Optional<UUID> notificationId = record.map(IdempotencyRecord::getNotificationId);
+        if (notificationId.isEmpty()) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+        }
+        completed.put(key, new Completed(record.get().getRequestHash(), notificationId.get()));
+        return replay(notificationId.get());
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash) {
+        // Records written before requests were fingerprinted have no hash to compare.
+        if (storedHash != null && !Objects.equals(storedHash, requestHash)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    /**
+     * Hex SHA-256 of the request's type and JSON form.
+     */
+    private String fingerprint(Object request) {
+        try {
+            String canonical = request == null ? "" : request.getClass().getName() + ":" + objectMapper.writeValueAsString(request);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot fingerprint idempotent request", e);
+        }
+    }
+
+    private Notification replay(UUID notificationId) {
+        return notificationRepository.findById(notificationId)
+                .orElseThrow(() -> new RuntimeException("Notification not found"));
+    }
+
+    private record Completed(String requestHash, UUID notificationId) {
+    }
+}
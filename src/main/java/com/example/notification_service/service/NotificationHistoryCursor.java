@@ -0,0 +1,40 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.exception.InvalidCursorException;
+import com.example.notification_service.model.NotificationSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a user's history, newest first: the {@code (created, id)} of the last row of
+ * the previous page. Clients get it as an opaque token and send it back unchanged.
+ */
+public record NotificationHistoryCursor(LocalDateTime created, UUID id) {
+
+    private static final char SEPARATOR = '_';
+
+    public static NotificationHistoryCursor after(NotificationSummary last) {
+        return new NotificationHistoryCursor(last.getCreated(), last.getId());
+    }
+
+    public static NotificationHistoryCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            return new NotificationHistoryCursor(
+                    LocalDateTime.parse(value.substring(0, separator)),
+                    UUID.fromString(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        String value = created.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.model.NotificationSummary;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One page of a user's history. {@code bodies} is empty unless bodies were requested, and
+ * {@code nextCursor} is null on the last page.
+ */
+public record NotificationHistoryPage(List<NotificationSummary> items,
+                                      Map<UUID, String> bodies,
+                                      String nextCursor) {
+}
@@ -0,0 +1,66 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.model.NotificationPreference;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-evicted cache of {@link NotificationPreference} by userId, so the send paths
+ * do not query the preference table once per message. Users without a preference are cached
+ * as empty entries as well.
+ * <p>
+ * Cached preferences are shared between threads and must not be modified; writes go to the
+ * repository and then replace the entry through {@link #put}. Other nodes see a change once
+ * their entry expires. Hit, miss and eviction counters are published as
+ * {@code cache.*{cache=notification.preferences}} metrics.
+ */
+@Component
+public class NotificationPreferenceCache {
+
+    public static final String CACHE_NAME = "notification.preferences";
+
+    private final Cache<UUID, Optional<NotificationPreference>> cache;
+
+    public NotificationPreferenceCache(NotificationProperties properties, MeterRegistry meterRegistry) {
+        NotificationProperties.PreferenceCache config = properties.getPreferenceCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<NotificationPreference> get(UUID userId, Function<UUID, Optional<NotificationPreference>> loader) {
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * Resolves all {@code userIds} at once; the loader is called a single time with the ids
+     * that are not cached and must return an entry, possibly empty, for each of them.
+     */
+    public Map<UUID, Optional<NotificationPreference>> getAll(
+            Set<UUID> userIds,
+            Function<Set<? extends UUID>, Map<UUID, Optional<NotificationPreference>>> loader) {
+        return cache.getAll(userIds, loader);
+    }
+
+    public void put(NotificationPreference preference) {
+        cache.put(preference.getUserId(), Optional.of(preference));
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
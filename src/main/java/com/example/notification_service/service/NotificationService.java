@@ -1,30 +1,90 @@
 package com.example.notification_service.service;
 
+import com.example.notification_service.channel.ChannelDeliveryException;
+import com.example.notification_service.channel.ChannelMessage;
+import com.example.notification_service.channel.ChannelResult;
+import com.example.notification_service.channel.NotificationChannel;
+import com.example.notification_service.channel.NotificationChannels;
+import com.example.notification_service.config.DispatchConfig;
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.content.NotificationBodyStore;
 import com.example.notification_service.exception.DisableNotificationPreferenceException;
+import com.example.notification_service.exception.InvalidTemplateException;
 import com.example.notification_service.exception.NotificationPreferenceNotFoundException;
+import com.example.notification_service.exception.NotificationTemplateNotFoundException;
+import com.example.notification_service.exception.RateLimitExceededException;
+import com.example.notification_service.mail.AdaptiveConcurrencyLimiter;
+import com.example.notification_service.mail.DomainRateLimiter;
+import com.example.notification_service.mail.MailCircuitBreaker;
+import com.example.notification_service.mail.MailFailureClassifier;
+import com.example.notification_service.mail.MailRelayUnavailableException;
+import com.example.notification_service.messaging.NotificationCommand;
 import com.example.notification_service.model.Notification;
 import com.example.notification_service.model.NotificationPreference;
+import com.example.notification_service.model.NotificationSchedule;
 import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.NotificationSummary;
+import com.example.notification_service.model.NotificationTemplate;
 import com.example.notification_service.model.NotificationType;
+import com.example.notification_service.ratelimit.UserRateLimiter;
 import com.example.notification_service.repository.NotificationPreferenceRepository;
 import com.example.notification_service.repository.NotificationRepository;
+import com.example.notification_service.template.NotificationTemplateEngine;
+import com.example.notification_service.web.dto.BatchNotificationResult;
 import com.example.notification_service.web.dto.EventReminderRequest;
+import com.example.notification_service.web.dto.FanOutRequest;
 import com.example.notification_service.web.dto.NotificationRequest;
+import com.example.notification_service.web.dto.NotificationTemplateRequest;
+import com.example.notification_service.web.dto.TemplatedNotificationRequest;
 import com.example.notification_service.web.dto.UpsertNotificationPreference;
 import com.example.notification_service.web.mapper.DtoMapper;
-import jakarta.transaction.Transactional;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -33,14 +93,56 @@ public class NotificationService {
     private final NotificationPreferenceRepository preferenceRepository;
     private final JavaMailSender mailSender;
     private final NotificationRepository notificationRepository;
+    private final TaskExecutor dispatchExecutor;
+    private final NotificationProperties properties;
+    private final NotificationTimer timer;
+    private final NotificationPreferenceCache preferenceCache;
+    private final Validator validator;
+    private final RetryPolicy retryPolicy;
+    private final MailCircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final DomainRateLimiter domainRateLimiter;
+    private final UserRateLimiter userRateLimiter;
+    private final MailFailureClassifier failureClassifier;
+    private final NotificationChannels channels;
+    private final NotificationTemplateEngine templates;
+    private final NotificationBodyStore bodyStore;
 
     @Autowired
     public NotificationService(NotificationPreferenceRepository preferenceRepository,
                                JavaMailSender mailSender,
-                               NotificationRepository notificationRepository) {
+                               NotificationRepository notificationRepository,
+                               @Qualifier(DispatchConfig.DISPATCH_EXECUTOR) TaskExecutor dispatchExecutor,
+                               NotificationProperties properties,
+                               NotificationTimer timer,
+                               NotificationPreferenceCache preferenceCache,
+                               Validator validator,
+                               RetryPolicy retryPolicy,
+                               MailCircuitBreaker circuitBreaker,
+                               AdaptiveConcurrencyLimiter concurrencyLimiter,
+                               DomainRateLimiter domainRateLimiter,
+                               UserRateLimiter userRateLimiter,
+                               MailFailureClassifier failureClassifier,
+                               NotificationChannels channels,
+                               NotificationTemplateEngine templates,
+                               NotificationBodyStore bodyStore) {
         this.preferenceRepository = preferenceRepository;
         this.mailSender = mailSender;
         this.notificationRepository = notificationRepository;
+        this.dispatchExecutor = dispatchExecutor;
+        this.properties = properties;
+        this.timer = timer;
+        this.preferenceCache = preferenceCache;
+        this.validator = validator;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.domainRateLimiter = domainRateLimiter;
+        this.userRateLimiter = userRateLimiter;
+        this.failureClassifier = failureClassifier;
+        this.channels = channels;
+        this.templates = templates;
+        this.bodyStore = bodyStore;
     }
 
     public NotificationPreference upsertPreference(UpsertNotificationPreference dto) {
@@ -53,7 +155,7 @@ public class NotificationService {
             preference.setEnabled(dto.isNotificationEnabled());
             preference.setType(DtoMapper.fromNotificationTypeRequest(dto.getType()));
             preference.setUpdatedOn(LocalDateTime.now());
-            return preferenceRepository.save(preference);
+            return cache(preferenceRepository.save(preference));
         }
 
         NotificationPreference notificationPreference = NotificationPreference.builder()
@@ -65,37 +167,46 @@ public class NotificationService {
                 .updatedOn(LocalDateTime.now())
                 .build();
 
-        return preferenceRepository.save(notificationPreference);
+        return cache(preferenceRepository.save(notificationPreference));
     }
 
     public NotificationPreference getPreferenceByUserId(UUID userId) {
-        return preferenceRepository.findByUserId(userId)
+        return findPreferenceByUserId(userId)
                 .orElseThrow(() ->
                         new NotificationPreferenceNotFoundException("Notification preference not found!"));
     }
 
     public Optional<NotificationPreference> findPreferenceByUserId(UUID userId) {
-        return preferenceRepository.findByUserId(userId);
+        return preferenceCache.get(userId, preferenceRepository::findByUserId);
     }
 
-    public Notification sendNotification(NotificationRequest notificationRequest) {
-
-        UUID userId = notificationRequest.getUserId();
-        NotificationPreference preferenceByUserId = getPreferenceByUserId(userId);
+    /**
+     * The user's preference, provided notifications can be delivered under it.
+     */
+    private NotificationPreference requireDeliverablePreference(UUID userId) {
+        NotificationPreference preference = getPreferenceByUserId(userId);
 
-        if (!preferenceByUserId.isEnabled()) {
+        if (!preference.isEnabled()) {
             throw new DisableNotificationPreferenceException("Notification preference is disabled!");
         }
 
-        if (preferenceByUserId.getContactInfo() == null ||
-                preferenceByUserId.getContactInfo().isBlank()) {
+        if (preference.getContactInfo() == null || preference.getContactInfo().isBlank()) {
             throw new IllegalStateException("Contact email is empty for user " + userId);
         }
+        return preference;
+    }
 
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(preferenceByUserId.getContactInfo());
-        message.setSubject(notificationRequest.getSubject());
-        message.setText(notificationRequest.getBody());
+    private NotificationPreference cache(NotificationPreference preference) {
+        preferenceCache.put(preference);
+        return preference;
+    }
+
+    public Notification sendNotification(NotificationRequest notificationRequest) {
+
+        UUID userId = notificationRequest.getUserId();
+        userRateLimiter.acquire(userId);
+
+        NotificationPreference preferenceByUserId = requireDeliverablePreference(userId);
 
         Notification notification = Notification.builder()
                 .subject(notificationRequest.getSubject())
@@ -103,25 +214,461 @@ public class NotificationService {
                 .userId(userId)
                 .created(LocalDateTime.now())
                 .deleted(false)
-                .type(NotificationType.EMAIL)
+                .type(channelOf(preferenceByUserId))
                 .build();
 
+        sendNow(notification, preferenceByUserId);
+        return saveStatusChange(notification);
+    }
+
+    /**
+     * Persists the notification as PENDING and hands delivery to the dispatch executor,
+     * so the caller does not wait for the SMTP round-trip. The final status is written
+     * by the worker and can be read through {@link #getById(UUID)}.
+     */
+    public Notification acceptNotification(NotificationRequest notificationRequest) {
+
+        UUID userId = notificationRequest.getUserId();
+        userRateLimiter.acquire(userId);
+
+        NotificationPreference preferenceByUserId = requireDeliverablePreference(userId);
+
+        Notification notification = Notification.builder()
+                .subject(notificationRequest.getSubject())
+                .body(notificationRequest.getBody())
+                .userId(userId)
+                .created(LocalDateTime.now())
+                .deleted(false)
+                .type(channelOf(preferenceByUserId))
+                .status(NotificationStatus.PENDING)
+                .scheduledAt(LocalDateTime.now())
+                .attempts(0)
+                .build();
+
+        Notification saved = notificationRepository.save(notification);
+        UUID id = saved.getId();
+
+        dispatch(List.of(id));
+
+        return saved;
+    }
+
+    /**
+     * Like {@link #acceptNotification}, for a notification created from a registered
+     * template. The template and parameters are checked and the subject is rendered now;
+     * the row stores the template id and parameters instead of a body, and the body is
+     * rendered when the notification is sent.
+     */
+    public Notification acceptTemplated(TemplatedNotificationRequest request) {
+
+        UUID userId = request.getUserId();
+        userRateLimiter.acquire(userId);
+
+        NotificationPreference preferenceByUserId = requireDeliverablePreference(userId);
+
+        Notification notification = templated(request.getTemplateId(), request.getParams())
+                .userId(userId)
+                .created(LocalDateTime.now())
+                .deleted(false)
+                .type(channelOf(preferenceByUserId))
+                .status(NotificationStatus.PENDING)
+                .scheduledAt(LocalDateTime.now())
+                .attempts(0)
+                .build();
+
+        Notification saved = notificationRepository.save(notification);
+
+        dispatch(List.of(saved.getId()));
+
+        return saved;
+    }
+
+    public NotificationTemplate registerTemplate(String id, NotificationTemplateRequest request) {
+        return templates.register(id, request.getSubject(), request.getBody());
+    }
+
+    public NotificationTemplate getTemplate(String id) {
+        return templates.find(id);
+    }
+
+    /**
+     * Starts a notification created from a template. The template must exist and the
+     * parameters must cover all of its placeholders; only the subject is rendered here.
+     */
+    private Notification.NotificationBuilder templated(String templateId, Map<String, String> params) {
+        Map<String, String> values = params == null ? Map.of() : params;
+        NotificationTemplateEngine.Compiled template = templates.get(templateId);
+        template.checkParameters(values);
+
+        return Notification.builder()
+                .subject(template.subject().render(values))
+                .templateId(templateId)
+                .templateVersion(template.version())
+                .templateParams(templates.encodeParams(values));
+    }
+
+    /**
+     * Body to send: the stored text, or the template rendered from the stored parameters.
+     */
+    private String bodyOf(Notification n) {
+        return bodyOf(n.getBody(), n.getTemplateId(), n.getTemplateVersion(), n.getTemplateParams());
+    }
+
+    private String bodyOf(String body, String templateId, Integer templateVersion, String templateParams) {
+        return templateId == null ? body : templates.renderBody(templateId, templateVersion, templateParams);
+    }
+
+    private void dispatchInBatches(List<UUID> ids) {
+        int batchSize = properties.getScheduler().getBatchSize();
+
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            dispatch(List.copyOf(ids.subList(from, Math.min(from + batchSize, ids.size()))));
+        }
+    }
+
+    private void dispatch(List<UUID> ids) {
         try {
-            mailSender.send(message);
-            notification.setStatus(NotificationStatus.SUCCEEDED);
-        } catch (Exception e) {
-            log.error("Failed to send email to {}: {}", preferenceByUserId.getContactInfo(), e.getMessage(), e);
-            notification.setStatus(NotificationStatus.FAILED);
-            notification.setLastError(e.getMessage());
+            dispatchExecutor.execute(() -> deliverClaimed(ids));
+        } catch (TaskRejectedException e) {
+            log.warn("Dispatch queue is full, leaving {} notifications to the scheduler", ids.size());
+        }
+    }
+
+    private void deliverClaimed(List<UUID> ids) {
+        // Left PENDING for the scheduler while the relay circuit is open.
+        if (circuitBreaker.isOpen()) {
+            return;
         }
 
-        return notificationRepository.save(notification);
+        String claim = newClaim();
+        LocalDateTime now = LocalDateTime.now();
+
+        // The scheduler may have picked the rows up already; whoever claims a row delivers it.
+        if (notificationRepository.claim(ids, claim, now, leaseUntil(now)) == 0) {
+            return;
+        }
+
+        deliver(claim, notificationRepository.findAllByClaimedBy(claim));
+    }
+
+    /**
+     * Accepts a stream of requests in chunks of {@code notification.batch.chunk-size}. Each
+     * chunk is validated, its preferences are resolved with one query, the accepted rows are
+     * inserted with JDBC batching and handed to the dispatch executor, and its results are
+     * passed to {@code results} before the next chunk is read. Only one chunk is held in memory.
+     * <p>
+     * If reading the requests fails, the items read so far are still accepted and reported
+     * before the exception is rethrown.
+     */
+    public void acceptBatch(Iterator<NotificationRequest> requests, Consumer<List<BatchNotificationResult>> results) {
+        int chunkSize = properties.getBatch().getChunkSize();
+        List<NotificationCommand> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        while (true) {
+            try {
+                if (!requests.hasNext()) {
+                    break;
+                }
+                chunk.add(NotificationCommand.notification(requests.next()));
+            } catch (RuntimeException e) {
+                if (!chunk.isEmpty()) {
+                    try {
+                        results.accept(acceptChunk(index, chunk, true));
+                    } catch (RuntimeException acceptFailure) {
+                        e.addSuppressed(acceptFailure);
+                    }
+                }
+                throw e;
+            }
+
+            if (chunk.size() == chunkSize) {
+                List<BatchNotificationResult> accepted = acceptChunk(index, chunk, true);
+                index += chunk.size();
+                chunk.clear();
+                results.accept(accepted);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            results.accept(acceptChunk(index, chunk, true));
+        }
+    }
+
+    /**
+     * Accepts a batch of commands with a single batched insert. Notifications, and reminders
+     * that are already due, go to the dispatch executor; later reminders go to the timer.
+     * Results are in command order.
+     * <p>
+     * Commands are not charged to the per-user rate limit: it protects the API from callers
+     * that flood one user, while a rejected command would be acknowledged and lost.
+     */
+    public List<BatchNotificationResult> acceptCommands(List<NotificationCommand> commands) {
+        if (commands.isEmpty()) {
+            return List.of();
+        }
+        return acceptChunk(0, commands, false);
+    }
+
+    private List<BatchNotificationResult> acceptChunk(int firstIndex, List<NotificationCommand> chunk, boolean rateLimited) {
+        Map<UUID, NotificationPreference> preferences = resolvePreferences(chunk.stream()
+                .map(NotificationCommand::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        BatchNotificationResult[] results = new BatchNotificationResult[chunk.size()];
+        List<Notification> accepted = new ArrayList<>(chunk.size());
+        List<Integer> acceptedPositions = new ArrayList<>(chunk.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            NotificationCommand command = chunk.get(i);
+
+            Notification.NotificationBuilder notification = null;
+            String error = validationError(command);
+            if (error == null) {
+                error = preferenceError(command.getUserId(), preferences.get(command.getUserId()));
+            }
+            if (error == null && command.getTemplateId() != null) {
+                try {
+                    notification = templated(command.getTemplateId(), command.getParams());
+                } catch (InvalidTemplateException | NotificationTemplateNotFoundException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error == null && rateLimited) {
+                error = rateLimitError(command.getUserId());
+            }
+            if (error != null) {
+                results[i] = BatchNotificationResult.builder()
+                        .index(firstIndex + i)
+                        .error(error)
+                        .build();
+                continue;
+            }
+
+            if (notification == null) {
+                notification = Notification.builder()
+                        .subject(command.getSubject())
+                        .body(command.getBody());
+            }
+            accepted.add(notification
+                    .userId(command.getUserId())
+                    .created(now)
+                    .deleted(false)
+                    .type(channelOf(preferences.get(command.getUserId())))
+                    .status(NotificationStatus.PENDING)
+                    .scheduledAt(command.getType() == NotificationCommand.Type.REMINDER ? command.getScheduledAt() : now)
+                    .attempts(0)
+                    .build());
+            acceptedPositions.add(i);
+        }
+
+        List<Notification> saved = notificationRepository.saveAll(accepted);
+
+        List<UUID> due = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            Notification n = saved.get(i);
+            int position = acceptedPositions.get(i);
+            results[position] = BatchNotificationResult.builder()
+                    .index(firstIndex + position)
+                    .id(n.getId())
+                    .status(n.getStatus())
+                    .build();
+
+            if (n.getScheduledAt().isAfter(now)) {
+                timer.schedule(n.getId(), n.getScheduledAt());
+            } else {
+                due.add(n.getId());
+            }
+        }
+
+        dispatchInBatches(due);
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Sends one message to many users. The MIME content is rendered once, the users'
+     * preferences are resolved in bulk, and the accepted users get one PENDING row each,
+     * inserted with JDBC batching. Delivery runs on the dispatch executor and addresses up to
+     * {@code notification.fan-out.recipients-per-message} users as BCC recipients of a single
+     * SMTP transaction. Results are in the order of the request's user ids.
+     */
+    public List<BatchNotificationResult> fanOut(FanOutRequest request) {
+        byte[] rendered = render(request.getSubject(), request.getBody());
+        int chunkSize = properties.getBatch().getChunkSize();
+        List<UUID> userIds = request.getUserIds();
+        List<BatchNotificationResult> results = new ArrayList<>(userIds.size());
+        Set<UUID> seen = new HashSet<>();
+
+        for (int from = 0; from < userIds.size(); from += chunkSize) {
+            List<UUID> chunk = userIds.subList(from, Math.min(from + chunkSize, userIds.size()));
+            results.addAll(fanOutChunk(from, chunk, seen, request, rendered));
+        }
+        return results;
+    }
+
+    private List<BatchNotificationResult> fanOutChunk(int firstIndex, List<UUID> chunk, Set<UUID> seen,
+                                                      FanOutRequest request, byte[] rendered) {
+        Map<UUID, NotificationPreference> preferences = resolvePreferences(new HashSet<>(chunk));
+
+        BatchNotificationResult[] results = new BatchNotificationResult[chunk.size()];
+        List<Notification> accepted = new ArrayList<>(chunk.size());
+        List<Integer> acceptedPositions = new ArrayList<>(chunk.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            UUID userId = chunk.get(i);
+
+            String error = seen.add(userId) ? preferenceError(userId, preferences.get(userId)) : "Duplicate userId";
+            if (error == null) {
+                error = rateLimitError(userId);
+            }
+            if (error != null) {
+                results[i] = BatchNotificationResult.builder()
+                        .index(firstIndex + i)
+                        .error(error)
+                        .build();
+                continue;
+            }
+
+            accepted.add(Notification.builder()
+                    .subject(request.getSubject())
+                    .body(request.getBody())
+                    .userId(userId)
+                    .created(now)
+                    .deleted(false)
+                    .type(channelOf(preferences.get(userId)))
+                    .status(NotificationStatus.PENDING)
+                    .scheduledAt(now)
+                    .attempts(0)
+                    .build());
+            acceptedPositions.add(i);
+        }
+
+        List<Notification> saved = notificationRepository.saveAll(accepted);
+
+        List<UUID> ids = new ArrayList<>(saved.size());
+        List<UUID> otherChannels = new ArrayList<>();
+        for (int i = 0; i < saved.size(); i++) {
+            Notification n = saved.get(i);
+            int position = acceptedPositions.get(i);
+            results[position] = BatchNotificationResult.builder()
+                    .index(firstIndex + position)
+                    .id(n.getId())
+                    .status(n.getStatus())
+                    .build();
+            // Only email recipients can share a message; the others are sent through their channel.
+            (typeOf(n) == NotificationType.EMAIL ? ids : otherChannels).add(n.getId());
+        }
+
+        dispatchInBatches(otherChannels);
+
+        if (!ids.isEmpty()) {
+            try {
+                dispatchExecutor.execute(() -> deliverFanOut(ids, rendered));
+            } catch (TaskRejectedException e) {
+                log.warn("Dispatch queue is full, leaving {} fan-out notifications to the scheduler", ids.size());
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private String validationError(NotificationCommand command) {
+        Set<ConstraintViolation<NotificationCommand>> violations = command.getTemplateId() == null
+                ? validator.validate(command, Default.class, NotificationCommand.Inline.class)
+                : validator.validate(command);
+        if (violations.isEmpty()) {
+            if (command.getType() == NotificationCommand.Type.REMINDER && command.getScheduledAt() == null) {
+                return "scheduledAt must not be null";
+            }
+            return null;
+        }
+
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private String preferenceError(UUID userId, NotificationPreference pref) {
+        if (pref == null) {
+            return "Notification preference not found!";
+        }
+        if (!pref.isEnabled()) {
+            return "Notification preference is disabled!";
+        }
+        if (pref.getContactInfo() == null || pref.getContactInfo().isBlank()) {
+            return "Contact email is empty for user " + userId;
+        }
+        return null;
+    }
+
+    /**
+     * Takes one of the user's tokens; a batch item over the limit is reported rather than
+     * failing the whole batch. Checked last, so items rejected for other reasons cost nothing.
+     */
+    private String rateLimitError(UUID userId) {
+        try {
+            userRateLimiter.acquire(userId);
+            return null;
+        } catch (RateLimitExceededException e) {
+            return e.getMessage();
+        }
     }
 
     public List<Notification> getNotifications(UUID userId) {
         return notificationRepository.findAllByUserIdAndDeleted(userId);
     }
 
+    /**
+     * Returns the user's visible history newest first, one page per call. The page size is
+     * capped by {@code notification.history.max-page-size}; bodies are loaded only when
+     * {@code includeBody} is set.
+     */
+    public NotificationHistoryPage getNotificationHistory(UUID userId, String cursor, Integer limit, boolean includeBody) {
+        int pageSize = properties.getHistory().pageSize(limit);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        List<NotificationSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = notificationRepository.findHistory(userId, page);
+        } else {
+            NotificationHistoryCursor after = NotificationHistoryCursor.decode(cursor);
+            rows = notificationRepository.findHistoryAfter(userId, after.created(), after.id(), page);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<NotificationSummary> items = hasMore ? rows.subList(0, pageSize) : rows;
+
+        Map<UUID, String> bodies = new HashMap<>();
+        if (includeBody && !items.isEmpty()) {
+            notificationRepository.findBodies(items.stream().map(NotificationSummary::getId).toList())
+                    .forEach(b -> bodies.put(b.getId(), renderedBody(b.getId(),
+                            b.getBodyHash() == null ? null : bodyStore.get(b.getBodyHash()),
+                            b.getTemplateId(), b.getTemplateVersion(), b.getTemplateParams())));
+        }
+
+        String nextCursor = hasMore ? NotificationHistoryCursor.after(items.get(items.size() - 1)).encode() : null;
+        return new NotificationHistoryPage(items, bodies, nextCursor);
+    }
+
+    /**
+     * Body of a stored notification for the read APIs. A template that can no longer be
+     * rendered leaves the body empty rather than failing the whole read.
+     */
+    private String renderedBody(UUID id, String body, String templateId, Integer templateVersion,
+                                String templateParams) {
+        try {
+            return bodyOf(body, templateId, templateVersion, templateParams);
+        } catch (InvalidTemplateException | NotificationTemplateNotFoundException e) {
+            log.warn("Cannot render the body of notification {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
     public NotificationPreference changeNotificationPreferenceStatus(UUID userId, boolean enabled) {
 
         Optional<NotificationPreference> optionalPreference = preferenceRepository.findByUserId(userId);
@@ -143,19 +690,23 @@ public class NotificationService {
                     .build();
         }
 
-        return preferenceRepository.save(pref);
+        return cache(preferenceRepository.save(pref));
     }
 
 
-    public void clearNotifications(UUID userId) {
-        List<Notification> notifications = getNotifications(userId);
-        notifications.forEach(notification -> {
-            notification.setDeleted(true);
-            notificationRepository.save(notification);
-        });
+    /**
+     * Marks the user's notifications as deleted and returns how many rows changed.
+     */
+    public int clearNotifications(UUID userId) {
+        return notificationRepository.softDeleteAllByUserId(userId);
     }
 
     public Notification scheduleNotification(NotificationRequest req, LocalDateTime scheduledAt) {
+        userRateLimiter.acquire(req.getUserId());
+        return schedule(req, scheduledAt);
+    }
+
+    private Notification schedule(NotificationRequest req, LocalDateTime scheduledAt) {
         log.error("### scheduleNotification: userId={}, subject='{}', scheduledAt={}",
                 req.getUserId(), req.getSubject(), scheduledAt);
 
@@ -170,7 +721,7 @@ public class NotificationService {
                 .userId(req.getUserId())
                 .created(LocalDateTime.now())
                 .deleted(false)
-                .type(NotificationType.EMAIL)
+                .type(channelOf(pref))
                 .status(NotificationStatus.PENDING)
                 .scheduledAt(scheduledAt)
                 .attempts(0)
@@ -180,10 +731,16 @@ public class NotificationService {
         log.error("### scheduleNotification SAVED: id={}, status={}, scheduledAt={}",
                 saved.getId(), saved.getStatus(), saved.getScheduledAt());
 
+        timer.schedule(saved.getId(), saved.getScheduledAt());
+
         return saved;
     }
 
 
+    /**
+     * Schedules a reminder for each offset that is still ahead. The user is charged for all
+     * of them before any is saved, so a request over the rate limit leaves nothing behind.
+     */
     public List<Notification> scheduleEventReminders(EventReminderRequest r) {
         List<Integer> offsets = (r.getOffsetsMinutes() == null || r.getOffsetsMinutes().isEmpty())
                 ? List.of(1440, 120)
@@ -191,31 +748,88 @@ public class NotificationService {
 
         NotificationRequest base = new NotificationRequest(r.getUserId(), r.getSubject(), r.getBody());
 
-        List<Notification> all = new ArrayList<>();
+        List<LocalDateTime> times = new ArrayList<>();
         for (Integer off : offsets) {
             LocalDateTime at = r.getEventStart().minusMinutes(off);
             if (at.isAfter(LocalDateTime.now())) {
-                all.add(scheduleNotification(base, at));
+                times.add(at);
             }
         }
+
+        userRateLimiter.acquire(r.getUserId(), times.size());
+
+        List<Notification> all = new ArrayList<>();
+        for (LocalDateTime at : times) {
+            all.add(schedule(base, at));
+        }
         return all;
     }
 
     public Notification sendReminder(NotificationRequest req) {
         Notification n = scheduleNotification(req, null);
+        sendNow(n, getPreferenceByUserId(n.getUserId()));
+        return saveStatusChange(n);
+    }
+
+    /**
+     * Sends on the caller's thread. A message the relay cannot take right now, because its
+     * recipient domain is over its rate or the relay circuit is open, is left PENDING for the
+     * timer and the scheduler instead of failing. Notifications for other channels are sent
+     * through their {@link NotificationChannel}.
+     */
+    private void sendNow(Notification n, NotificationPreference pref) {
+        LocalDateTime now = LocalDateTime.now();
+
+        if (typeOf(n) != NotificationType.EMAIL) {
+            // Not saved yet, so the message gets an id of its own to match the result by.
+            UUID messageId = n.getId() != null ? n.getId() : UUID.randomUUID();
+            ChannelResult result = sendThroughChannel(typeOf(n), List.of(
+                    new ChannelMessage(messageId, pref.getContactInfo(), n.getSubject(), n.getBody()))).get(messageId);
+            recordChannelResult(n, typeOf(n), result, now);
+            return;
+        }
+
+        Duration wait = domainRateLimiter.tryAcquire(pref.getContactInfo(), 0);
+        if (!wait.isZero()) {
+            queueForLater(n, now.plus(wait));
+            return;
+        }
+
         try {
-            sendEmail(n);
+            sendEmail(n, pref, bodyOf(n));
             n.setStatus(NotificationStatus.SUCCEEDED);
+        } catch (MailRelayUnavailableException e) {
+            queueForLater(n, now);
         } catch (Exception e) {
+            log.error("Failed to send email to {}: {}", pref.getContactInfo(), e.getMessage(), e);
             n.setStatus(NotificationStatus.FAILED);
             n.setLastError(e.getMessage());
         }
-        return notificationRepository.save(n);
     }
 
-    private void sendEmail(Notification n) {
-        NotificationPreference pref = getPreferenceByUserId(n.getUserId());
+    private void queueForLater(Notification n, LocalDateTime scheduledAt) {
+        n.setStatus(NotificationStatus.PENDING);
+        n.setScheduledAt(scheduledAt);
+        n.setAttempts(0);
+    }
+
+    /**
+     * Saves the outcome of a send on the caller's thread. As in
+     * {@link NotificationRepository#recordResults}, only a SUCCEEDED or FAILED row gets an
+     * outbox event; a row left PENDING is not a status change yet.
+     */
+    private Notification saveStatusChange(Notification n) {
+        boolean terminal = n.getStatus() == NotificationStatus.SUCCEEDED || n.getStatus() == NotificationStatus.FAILED;
+        Notification saved = terminal && properties.getOutbox().isEnabled()
+                ? notificationRepository.saveWithStatusEvent(n)
+                : notificationRepository.save(n);
+        if (saved.getStatus() == NotificationStatus.PENDING) {
+            timer.schedule(saved.getId(), saved.getScheduledAt());
+        }
+        return saved;
+    }
 
+    private void sendEmail(Notification n, NotificationPreference pref, String body) {
         if (pref.getContactInfo() == null || pref.getContactInfo().isBlank()) {
             throw new IllegalStateException("Contact email is empty for user " + n.getUserId());
         }
@@ -223,44 +837,579 @@ public class NotificationService {
         SimpleMailMessage msg = new SimpleMailMessage();
         msg.setTo(pref.getContactInfo());
         msg.setSubject(n.getSubject());
-        msg.setText(n.getBody());
-        mailSender.send(msg);
+        msg.setText(body);
+        send(msg);
     }
 
-    @Scheduled(fixedDelay = 60_000)
-    @Transactional
+    /**
+     * The circuit breaker goes first, so that sends rejected while the relay is down do not
+     * queue up for a concurrency slot.
+     */
+    private void send(SimpleMailMessage message) {
+        circuitBreaker.send(() -> concurrencyLimiter.send(() -> mailSender.send(message)));
+    }
+
+    private void send(MimeMessage message) {
+        circuitBreaker.send(() -> concurrencyLimiter.send(() -> mailSender.send(message)));
+    }
+
+    /**
+     * Renders the message to its wire form once; every recipient group of a fan-out is parsed
+     * back from these bytes instead of encoding the content again.
+     */
+    private byte[] render(String subject, String body) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+            helper.setSubject(subject);
+            helper.setText(body);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            message.writeTo(out);
+            return out.toByteArray();
+        } catch (MessagingException | IOException e) {
+            throw new MailPreparationException("Could not render fan-out message", e);
+        }
+    }
+
+    /**
+     * Works through the due notifications one bounded batch at a time: each batch is claimed
+     * in its own short transaction, sent with no transaction open, and its results are
+     * recorded in another short transaction. Heap use and transaction length therefore do
+     * not depend on how large the backlog is.
+     * <p>
+     * Claims are leases, so any number of instances can run this against the same database:
+     * each batch goes to exactly one node, and a batch left IN_FLIGHT by a node that died is
+     * picked up again once its lease expires. A node renews the lease while it is still
+     * sending, so a slow relay does not hand the batch to another node.
+     * <p>
+     * The cycle is skipped while the mail relay circuit is open; the rows stay PENDING.
+     */
+    @Scheduled(fixedDelayString = "${notification.scheduler.poll-interval:PT1M}")
     public void processDueNotifications() {
+        refillTimer();
+
+        int batchSize = properties.getScheduler().getBatchSize();
+
+        List<UUID> dueIds;
+        do {
+            if (circuitBreaker.isOpen()) {
+                log.warn("Mail relay circuit is open, skipping dispatch cycle");
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            dueIds = notificationRepository.findDueIds(now, PageRequest.of(0, batchSize));
+
+            if (dueIds.isEmpty()) {
+                return;
+            }
+
+            String claim = newClaim();
+            notificationRepository.claim(dueIds, claim, now, leaseUntil(now));
+            List<Notification> batch = notificationRepository.findAllByClaimedBy(claim);
+
+            log.debug("processDueNotifications: claimed {} due notifications", batch.size());
+
+            deliver(claim, batch);
+        } while (dueIds.size() == batchSize);
+    }
+
+    /**
+     * Loads the PENDING rows that entered the timer horizon since the last refill. On
+     * startup this rebuilds the whole wheel, overdue rows included.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refillTimer() {
+        if (!timer.isEnabled()) {
+            return;
+        }
+
+        NotificationTimer.Window window = timer.extendWindow(LocalDateTime.now());
+        int pageSize = properties.getScheduler().getBatchSize();
+
+        List<NotificationSchedule> page;
+        int pageNumber = 0;
+        do {
+            page = notificationRepository.findPendingSchedules(window.from(), window.until(),
+                    PageRequest.of(pageNumber++, pageSize));
+            page.forEach(s -> timer.schedule(s.getId(), s.getScheduledAt()));
+        } while (page.size() == pageSize);
+    }
+
+    /**
+     * Fires the notifications the timer holds for this second. Delivery runs on the dispatch
+     * executor so a slow relay cannot hold up the next tick. The scheduling pool has a thread
+     * per scheduled job ({@code spring.task.scheduling.pool.size}), so a long poll or outbox
+     * relay cannot delay the tick either. While the relay circuit is open the due entries stay
+     * in the timer and fire on the first tick after it lets sends through.
+     */
+    @Scheduled(fixedRate = 1_000)
+    public void fireTimer() {
+        if (!timer.isEnabled() || circuitBreaker.isOpen()) {
+            return;
+        }
+
+        dispatchInBatches(timer.drainDue(LocalDateTime.now()));
+    }
+
+    private String newClaim() {
+        return properties.getScheduler().getNodeId() + "/" + UUID.randomUUID();
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plus(properties.getScheduler().getLeaseDuration());
+    }
+
+    /**
+     * Keeps a claim's lease alive while its rows are sent one message at a time: once half of
+     * the lease has passed, the next {@link #renewIfDue} moves it out by a full lease again, so
+     * a slow relay cannot let another node take the rows over and send them a second time.
+     */
+    private final class LeaseRenewal {
+
+        private final String claim;
+        private LocalDateTime renewAt;
+
+        LeaseRenewal(String claim, LocalDateTime claimedAt) {
+            this.claim = claim;
+            this.renewAt = claimedAt.plus(properties.getScheduler().getLeaseDuration().dividedBy(2));
+        }
+
+        void renewIfDue() {
+            LocalDateTime now = LocalDateTime.now();
+            if (now.isBefore(renewAt)) {
+                return;
+            }
+            notificationRepository.extendLease(claim, leaseUntil(now));
+            renewAt = now.plus(properties.getScheduler().getLeaseDuration().dividedBy(2));
+        }
+    }
+
+    /**
+     * Looks up the preferences of every user in the batch with a single query for the
+     * users that are not cached. Users without a preference are absent from the result.
+     */
+    private Map<UUID, NotificationPreference> resolvePreferences(Set<UUID> userIds) {
+        Map<UUID, NotificationPreference> preferences = new HashMap<>();
+        preferenceCache.getAll(userIds, this::loadPreferences)
+                .forEach((userId, pref) -> pref.ifPresent(p -> preferences.put(userId, p)));
+        return preferences;
+    }
+
+    private Map<UUID, Optional<NotificationPreference>> loadPreferences(Set<? extends UUID> userIds) {
+        Map<UUID, Optional<NotificationPreference>> loaded = new HashMap<>();
+        userIds.forEach(userId -> loaded.put(userId, Optional.empty()));
+        preferenceRepository.findAllByUserIdIn(List.copyOf(userIds))
+                .forEach(pref -> loaded.put(pref.getUserId(), Optional.of(pref)));
+        return loaded;
+    }
+
+    private void deliverFanOut(List<UUID> ids, byte[] rendered) {
+        // Left PENDING for the scheduler while the relay circuit is open.
+        if (circuitBreaker.isOpen()) {
+            return;
+        }
+
+        String claim = newClaim();
+        LocalDateTime now = LocalDateTime.now();
+
+        // Rows the scheduler claimed first are sent by it, one message each.
+        if (notificationRepository.claim(ids, claim, now, leaseUntil(now)) == 0) {
+            return;
+        }
+
+        List<Notification> claimed = notificationRepository.findAllByClaimedBy(claim);
+        Map<UUID, NotificationPreference> preferences = resolvePreferences(claimed.stream()
+                .map(Notification::getUserId)
+                .collect(Collectors.toSet()));
+        Set<UUID> deferred = new HashSet<>();
+        List<FanOutRecipient> recipients = new ArrayList<>(claimed.size());
+
+        for (Notification n : claimed) {
+            NotificationPreference pref = preferences.get(n.getUserId());
+            String error = preferenceError(n.getUserId(), pref);
+            if (error != null) {
+                fail(n, error);
+                continue;
+            }
+            try {
+                recipients.add(new FanOutRecipient(n, new InternetAddress(pref.getContactInfo(), true)));
+            } catch (AddressException e) {
+                fail(n, e.getMessage());
+            }
+        }
+
+        LeaseRenewal lease = new LeaseRenewal(claim, now);
+        int groupSize = properties.getFanOut().getRecipientsPerMessage();
+        for (int from = 0; from < recipients.size(); from += groupSize) {
+            lease.renewIfDue();
+            sendFanOutGroup(rendered, recipients.subList(from, Math.min(from + groupSize, recipients.size())),
+                    true, now, deferred);
+        }
+
+        recordDelivery(claim, claimed, deferred);
+    }
+
+    /**
+     * Sends one SMTP transaction to every recipient of the group. Recipients the relay refuses
+     * outright fail on their own; the rest of the group is sent again once without them.
+     */
+    private void sendFanOutGroup(byte[] rendered, List<FanOutRecipient> group, boolean retryWithoutRefused,
+                                 LocalDateTime now, Set<UUID> deferred) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage(new ByteArrayInputStream(rendered));
+            message.setRecipients(Message.RecipientType.BCC,
+                    group.stream().map(FanOutRecipient::address).toArray(Address[]::new));
+            send(message);
+            group.forEach(r -> {
+                r.notification().setStatus(NotificationStatus.SUCCEEDED);
+                r.notification().setLastError(null);
+            });
+        } catch (MailRelayUnavailableException e) {
+            group.forEach(r -> {
+                r.notification().setStatus(NotificationStatus.PENDING);
+                deferred.add(r.notification().getId());
+            });
+        } catch (Exception e) {
+            Set<String> refused = retryWithoutRefused ? failureClassifier.refusedRecipients(e) : Set.of();
+            if (refused.isEmpty()) {
+                group.forEach(r -> recordFailure(r.notification(), e, now));
+                return;
+            }
+
+            List<FanOutRecipient> rest = new ArrayList<>(group.size());
+            for (FanOutRecipient r : group) {
+                if (refused.contains(r.address().toString().toLowerCase(Locale.ROOT))) {
+                    fail(r.notification(), e.getMessage());
+                } else {
+                    rest.add(r);
+                }
+            }
+            if (!rest.isEmpty()) {
+                sendFanOutGroup(rendered, rest, false, now, deferred);
+            }
+        }
+    }
+
+    private record FanOutRecipient(Notification notification, InternetAddress address) {
+    }
+
+    private void deliver(String claim, List<Notification> claimed) {
+        if (claimed.isEmpty()) {
+            return;
+        }
+
         LocalDateTime now = LocalDateTime.now();
-        List<Notification> due = notificationRepository
-                .findAllByStatusAndScheduledAtBefore(NotificationStatus.PENDING, now);
+        boolean digest = properties.getDigest().isEnabled();
+        if (digest) {
+            claimed = claimDigestCompanions(claim, claimed, now);
+        }
+        LeaseRenewal lease = new LeaseRenewal(claim, now);
+
+        Map<UUID, NotificationPreference> preferences = resolvePreferences(claimed.stream()
+                .map(Notification::getUserId)
+                .collect(Collectors.toSet()));
+        Set<UUID> deferred = new HashSet<>();
+        Map<String, Integer> deferredPerDomain = new HashMap<>();
+        Map<UUID, List<Notification>> perUser = new LinkedHashMap<>();
+        Map<NotificationType, List<Notification>> otherChannels = new EnumMap<>(NotificationType.class);
+
+        for (Notification n : claimed) {
+            NotificationPreference pref = preferences.get(n.getUserId());
+
+            // Retrying cannot help these, so they fail without spending attempts on the relay.
+            if (pref == null) {
+                fail(n, "Notification preference not found!");
+                continue;
+            }
+            if (!pref.isEnabled()) {
+                fail(n, "Notification preference is disabled!");
+                continue;
+            }
+            if (typeOf(n) != channelOf(pref)) {
+                fail(n, "Notification preference is for " + channelOf(pref) + " notifications");
+                continue;
+            }
+
+            if (typeOf(n) != NotificationType.EMAIL) {
+                otherChannels.computeIfAbsent(typeOf(n), type -> new ArrayList<>()).add(n);
+            } else if (digest) {
+                perUser.computeIfAbsent(n.getUserId(), userId -> new ArrayList<>()).add(n);
+            } else {
+                lease.renewIfDue();
+                deliver(List.of(n), pref, now, deferred, deferredPerDomain);
+            }
+        }
 
-        log.error("### processDueNotifications: found {} pending notifications", due.size());
+        int maxItems = properties.getDigest().getMaxItems();
+        perUser.forEach((userId, rows) -> {
+            rows.sort(Comparator.comparing(Notification::getScheduledAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+            for (int from = 0; from < rows.size(); from += maxItems) {
+                lease.renewIfDue();
+                deliver(rows.subList(from, Math.min(from + maxItems, rows.size())), preferences.get(userId),
+                        now, deferred, deferredPerDomain);
+            }
+        });
+
+        // Rows handed to another channel's workers are recorded by them, not here.
+        Set<UUID> handedOff = new HashSet<>();
+        otherChannels.forEach((type, rows) -> {
+            Set<UUID> ids = handOff(claim, type, rows, preferences, now) ? handedOff : deferred;
+            rows.forEach(n -> ids.add(n.getId()));
+        });
+
+        recordDelivery(claim, handedOff.isEmpty() ? claimed
+                : claimed.stream().filter(n -> !handedOff.contains(n.getId())).toList(), deferred);
+    }
 
-        for (Notification n : due) {
+    /**
+     * Passes rows of another channel, still under this claim, to that channel's worker pool,
+     * which sends them and records their results. Returns false after putting the rows back
+     * to PENDING for the scheduler when the pool's queue is full, or failing them when no
+     * channel is configured for their type.
+     * <p>
+     * Rows put back are due again one poll interval later, so the scheduler's current cycle
+     * does not claim them again while the queue is still full.
+     */
+    private boolean handOff(String claim, NotificationType type, List<Notification> rows,
+                            Map<UUID, NotificationPreference> preferences, LocalDateTime now) {
+        Optional<NotificationChannel> channel = channels.find(type);
+        if (channel.isEmpty()) {
+            rows.forEach(n -> fail(n, "No channel is configured for " + type + " notifications"));
+            return false;
+        }
+
+        try {
+            channel.get().executor().execute(() -> deliverThroughChannel(claim, type, rows, preferences));
+            return true;
+        } catch (TaskRejectedException e) {
+            log.warn("{} queue is full, leaving {} notifications to the scheduler", type, rows.size());
+            LocalDateTime retryAt = now.plus(properties.getScheduler().getPollInterval());
+            rows.forEach(n -> {
+                n.setStatus(NotificationStatus.PENDING);
+                if (n.getScheduledAt() == null || n.getScheduledAt().isBefore(retryAt)) {
+                    n.setScheduledAt(retryAt);
+                }
+            });
+            return false;
+        }
+    }
+
+    private void deliverThroughChannel(String claim, NotificationType type, List<Notification> rows,
+                                       Map<UUID, NotificationPreference> preferences) {
+        List<ChannelMessage> messages = new ArrayList<>(rows.size());
+        Set<UUID> unrenderable = new HashSet<>();
+        for (Notification n : rows) {
             try {
-                log.error("### processDueNotifications: sending id={}, userId={}, subject='{}'",
+                messages.add(new ChannelMessage(n.getId(), preferences.get(n.getUserId()).getContactInfo(),
+                        n.getSubject(), bodyOf(n)));
+            } catch (InvalidTemplateException | NotificationTemplateNotFoundException e) {
+                fail(n, e.getMessage());
+                unrenderable.add(n.getId());
+            }
+        }
+
+        Map<UUID, ChannelResult> results = messages.isEmpty() ? Map.of() : sendThroughChannel(type, messages);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (Notification n : rows) {
+            if (!unrenderable.contains(n.getId())) {
+                recordChannelResult(n, type, results.get(n.getId()), now);
+            }
+        }
+
+        recordDelivery(claim, rows, Set.of());
+    }
+
+    /**
+     * A rejected message fails for good; a missing result or one the channel asks to retry
+     * counts as an attempt under the retry policy.
+     */
+    private void recordChannelResult(Notification n, NotificationType type, ChannelResult result, LocalDateTime now) {
+        if (result == null) {
+            recordFailure(n, new ChannelDeliveryException("No result from the " + type + " channel"), now);
+        } else if (result.outcome() == ChannelResult.Outcome.DELIVERED) {
+            n.setStatus(NotificationStatus.SUCCEEDED);
+            n.setLastError(null);
+        } else if (result.outcome() == ChannelResult.Outcome.REJECTED) {
+            n.setAttempts((n.getAttempts() == null ? 0 : n.getAttempts()) + 1);
+            fail(n, result.error());
+        } else {
+            recordFailure(n, new ChannelDeliveryException(result.error()), now);
+        }
+    }
+
+    private Map<UUID, ChannelResult> sendThroughChannel(NotificationType type, List<ChannelMessage> messages) {
+        Optional<NotificationChannel> channel = channels.find(type);
+        if (channel.isEmpty()) {
+            return messages.stream().collect(Collectors.toMap(ChannelMessage::id,
+                    m -> ChannelResult.rejected("No channel is configured for " + type + " notifications")));
+        }
+
+        try {
+            return channel.get().send(messages);
+        } catch (Exception e) {
+            log.error("Failed to send {} notifications through the {} channel: {}", messages.size(), type, e.getMessage(), e);
+            return messages.stream().collect(Collectors.toMap(ChannelMessage::id, m -> ChannelResult.retry(e.getMessage())));
+        }
+    }
+
+    /**
+     * Channel a new notification for the user goes through. Preferences without a type
+     * predate the other channels and are email.
+     */
+    private static NotificationType channelOf(NotificationPreference pref) {
+        return pref == null || pref.getType() == null ? NotificationType.EMAIL : pref.getType();
+    }
+
+    private static NotificationType typeOf(Notification n) {
+        return n.getType() == null ? NotificationType.EMAIL : n.getType();
+    }
+
+    /**
+     * Adds the users' PENDING email rows that fall due within the digest window to the claim, so
+     * they go out in the digest of the rows that are due now. Returns the whole claim.
+     */
+    private List<Notification> claimDigestCompanions(String claim, List<Notification> claimed, LocalDateTime now) {
+        Set<UUID> userIds = claimed.stream().map(Notification::getUserId).collect(Collectors.toSet());
+        LocalDateTime until = now.plus(properties.getDigest().getWindow());
+        List<UUID> companions = notificationRepository.findPendingEmailIdsByUserIds(userIds,
+                until, PageRequest.of(0, properties.getScheduler().getBatchSize()));
+
+        if (companions.isEmpty() || notificationRepository.claim(companions, claim, now, until, leaseUntil(now)) == 0) {
+            return claimed;
+        }
+        return notificationRepository.findAllByClaimedBy(claim);
+    }
+
+    /**
+     * Sends the rows of one user as a single email: the notification itself, or a digest of
+     * all of them. The rows share the outcome, except that each failure is counted against
+     * every row's own attempts.
+     */
+    private void deliver(List<Notification> rows, NotificationPreference pref, LocalDateTime now,
+                         Set<UUID> deferred, Map<String, Integer> deferredPerDomain) {
+
+        // A row whose template changed under it fails on its own, since sending it again
+        // renders the same error; the other rows of the digest still go out.
+        List<Notification> sendable = new ArrayList<>(rows.size());
+        List<String> bodies = new ArrayList<>(rows.size());
+        for (Notification n : rows) {
+            try {
+                bodies.add(bodyOf(n));
+                sendable.add(n);
+            } catch (InvalidTemplateException | NotificationTemplateNotFoundException e) {
+                fail(n, e.getMessage());
+            }
+        }
+        if (sendable.isEmpty()) {
+            return;
+        }
+        rows = sendable;
+
+        // Over the domain's rate: deferred without spending an attempt, and spaced out so
+        // the deferred messages come back at the rate the domain accepts.
+        String domain = DomainRateLimiter.domainOf(pref.getContactInfo());
+        Duration wait = domainRateLimiter.tryAcquire(pref.getContactInfo(), deferredPerDomain.getOrDefault(domain, 0));
+        if (!wait.isZero()) {
+            deferredPerDomain.merge(domain, 1, Integer::sum);
+            LocalDateTime retryAt = now.plus(wait);
+            rows.forEach(n -> {
+                n.setStatus(NotificationStatus.PENDING);
+                if (n.getScheduledAt() == null || n.getScheduledAt().isBefore(retryAt)) {
+                    n.setScheduledAt(retryAt);
+                }
+            });
+            return;
+        }
+
+        try {
+            if (rows.size() == 1) {
+                Notification n = rows.get(0);
+                log.debug("Sending notification id={}, userId={}, subject='{}'",
                         n.getId(), n.getUserId(), n.getSubject());
 
-                sendEmail(n);
+                sendEmail(n, pref, bodies.get(0));
+            } else {
+                sendDigest(rows, bodies, pref);
+            }
+            rows.forEach(n -> {
                 n.setStatus(NotificationStatus.SUCCEEDED);
                 n.setLastError(null);
-            } catch (Exception e) {
-                int attempts = (n.getAttempts() == null ? 0 : n.getAttempts()) + 1;
-                n.setAttempts(attempts);
-                n.setLastError(e.getMessage());
-                if (attempts >= 3) {
-                    n.setStatus(NotificationStatus.FAILED);
-                } else {
-                    n.setScheduledAt(now.plusMinutes(2));
-                }
+            });
+        } catch (MailRelayUnavailableException e) {
+            // Not an attempt: the rows go back unchanged and the scheduler retries them
+            // once the circuit lets sends through again.
+            rows.forEach(n -> {
+                n.setStatus(NotificationStatus.PENDING);
+                deferred.add(n.getId());
+            });
+        } catch (Exception e) {
+            rows.forEach(n -> recordFailure(n, e, now));
+        }
+    }
+
+    private void sendDigest(List<Notification> rows, List<String> bodies, NotificationPreference pref) {
+        if (pref.getContactInfo() == null || pref.getContactInfo().isBlank()) {
+            throw new IllegalStateException("Contact email is empty for user " + pref.getUserId());
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < rows.size(); i++) {
+            if (!text.isEmpty()) {
+                text.append("\n\n----------\n\n");
             }
-            notificationRepository.save(n);
+            text.append(rows.get(i).getSubject()).append("\n\n").append(bodies.get(i));
         }
+
+        SimpleMailMessage msg = new SimpleMailMessage();
+        msg.setTo(pref.getContactInfo());
+        msg.setSubject(String.format(properties.getDigest().getSubject(), rows.size()));
+        msg.setText(text.toString());
+        send(msg);
+    }
+
+    /**
+     * Writes the results of a claimed batch and puts the rows due for a retry on the timer.
+     * Rows in {@code deferred} were held back by the open relay circuit and are left to the
+     * scheduler.
+     */
+    private void recordDelivery(String claim, List<Notification> claimed, Set<UUID> deferred) {
+        notificationRepository.recordResults(claim, claimed, properties.getOutbox().isEnabled());
+
+        claimed.stream()
+                .filter(n -> n.getStatus() == NotificationStatus.PENDING && !deferred.contains(n.getId()))
+                .forEach(n -> timer.schedule(n.getId(), n.getScheduledAt()));
     }
 
+    private void fail(Notification n, String error) {
+        n.setStatus(NotificationStatus.FAILED);
+        n.setLastError(error);
+    }
+
+    private void recordFailure(Notification n, Exception e, LocalDateTime now) {
+        int attempts = (n.getAttempts() == null ? 0 : n.getAttempts()) + 1;
+        n.setAttempts(attempts);
+        n.setLastError(e.getMessage());
+        retryPolicy.nextDelay(attempts, e).ifPresentOrElse(delay -> {
+            n.setStatus(NotificationStatus.PENDING);
+            n.setScheduledAt(now.plus(delay));
+        }, () -> n.setStatus(NotificationStatus.FAILED));
+    }
 
+
+    /**
+     * The row as stored, except that the body of a templated notification is rendered with the
+     * template version it was created from. The returned entity is not saved again, so the
+     * rendered body never reaches the table.
+     */
     public Notification getById(UUID id) {
-        return notificationRepository.findById(id)
+        Notification n = notificationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Notification not found"));
+        if (n.getTemplateId() != null) {
+            n.setBody(renderedBody(n.getId(), n.getBody(), n.getTemplateId(), n.getTemplateVersion(),
+                    n.getTemplateParams()));
+        }
+        return n;
     }
 }
@@ -0,0 +1,98 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.scheduling.HierarchicalTimingWheel;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps the PENDING notifications due within {@code notification.timer.horizon} in an
+ * in-process {@link HierarchicalTimingWheel}, so they fire within a second of their
+ * {@code scheduledAt} instead of waiting for the next database poll.
+ * <p>
+ * The wheel only knows about the window it was loaded for: {@link #extendWindow} moves the
+ * end of that window forward, and {@link #schedule} accepts new entries inside it.
+ * Firing an entry does not deliver it; the caller still has to claim the row, so duplicate
+ * entries and rows delivered by another node are harmless.
+ */
+@Component
+public class NotificationTimer {
+
+    private final HierarchicalTimingWheel wheel;
+    private final boolean enabled;
+    private final Duration horizon;
+
+    private LocalDateTime windowEnd;
+    private volatile long windowEndTick = Long.MIN_VALUE;
+
+    public record Window(LocalDateTime from, LocalDateTime until) {
+    }
+
+    public NotificationTimer(NotificationProperties properties) {
+        this.enabled = properties.getTimer().isEnabled();
+        this.horizon = properties.getTimer().getHorizon();
+        this.wheel = new HierarchicalTimingWheel(currentTick(LocalDateTime.now()));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Extends the window the wheel is responsible for to {@code now + horizon} and returns
+     * the part that was added; {@code from} is {@code null} on the first call. Entries
+     * scheduled into the window from now on go straight into the wheel, so the caller only
+     * has to load the rows of the returned range that already exist.
+     */
+    public synchronized Window extendWindow(LocalDateTime now) {
+        LocalDateTime from = windowEnd;
+        LocalDateTime until = now.plus(horizon);
+        if (from != null && !until.isAfter(from)) {
+            return new Window(from, from);
+        }
+        windowEnd = until;
+        windowEndTick = toTick(until);
+        return new Window(from, until);
+    }
+
+    public void schedule(UUID id, LocalDateTime scheduledAt) {
+        if (!enabled || scheduledAt == null) {
+            return;
+        }
+        long tick = toTick(scheduledAt);
+        if (tick < windowEndTick) {
+            wheel.add(tick, id.getMostSignificantBits(), id.getLeastSignificantBits());
+        }
+    }
+
+    public List<UUID> drainDue(LocalDateTime now) {
+        List<UUID> due = new ArrayList<>();
+        wheel.advance(currentTick(now), (msb, lsb) -> due.add(new UUID(msb, lsb)));
+        return due;
+    }
+
+    public int size() {
+        return wheel.size();
+    }
+
+    /**
+     * The last whole second that has passed; entries of the second under way fire once it is over.
+     */
+    private static long currentTick(LocalDateTime now) {
+        return now.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    /**
+     * Rounds up to whole seconds so an entry never fires before its scheduled time.
+     */
+    private static long toTick(LocalDateTime time) {
+        long seconds = time.atZone(ZoneId.systemDefault()).toEpochSecond();
+        return time.getNano() == 0 ? seconds : seconds + 1;
+    }
+}
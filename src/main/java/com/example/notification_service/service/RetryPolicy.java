@@ -0,0 +1,17 @@
+package com.example.notification_service.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Decides what happens to a notification after a failed delivery attempt.
+ */
+public interface RetryPolicy {
+
+    /**
+     * @param attempts delivery attempts made so far, including the one that just failed
+     * @param failure  why the last attempt failed
+     * @return how long to wait before the next attempt, or empty to give up
+     */
+    Optional<Duration> nextDelay(int attempts, Exception failure);
+}
@@ -0,0 +1,103 @@
+package com.example.notification_service.template;
+
+import com.example.notification_service.exception.InvalidTemplateException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A template source parsed once into the literal text between its {@code {{name}}}
+ * placeholders. Rendering appends the literals and parameter values into a single
+ * builder sized up front, with no parsing or pattern matching per call.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class CompiledTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    /**
+     * {@code literals[i]} precedes {@code names[i]}; the last literal follows the last name.
+     */
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+    private final Set<String> parameters;
+
+    private CompiledTemplate(List<String> literals, List<String> names) {
+        this.literals = literals.toArray(String[]::new);
+        this.names = names.toArray(String[]::new);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+        this.parameters = Collections.unmodifiableSet(new LinkedHashSet<>(names));
+    }
+
+    /**
+     * Parses {@code source}. Placeholder names may contain letters, digits, {@code _},
+     * {@code .} and {@code -}, with optional blanks inside the braces.
+     *
+     * @throws InvalidTemplateException if a placeholder is not closed or its name is invalid
+     */
+    public static CompiledTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        int from = 0;
+        int open;
+        while ((open = source.indexOf(OPEN, from)) >= 0) {
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new InvalidTemplateException("Unclosed placeholder at offset " + open);
+            }
+            String name = source.substring(open + OPEN.length(), close).strip();
+            if (!NAME.matcher(name).matches()) {
+                throw new InvalidTemplateException("Invalid placeholder name '" + name + "' at offset " + open);
+            }
+            literals.add(source.substring(from, open));
+            names.add(name);
+            from = close + CLOSE.length();
+        }
+        literals.add(source.substring(from));
+
+        return new CompiledTemplate(literals, names);
+    }
+
+    /**
+     * Names of the placeholders, in order of first use.
+     */
+    public Set<String> parameters() {
+        return parameters;
+    }
+
+    /**
+     * @throws InvalidTemplateException if {@code params} has no value for a placeholder
+     */
+    public String render(Map<String, String> params) {
+        if (names.length == 0) {
+            return literals[0];
+        }
+
+        String[] values = new String[names.length];
+        int length = literalLength;
+        for (int i = 0; i < names.length; i++) {
+            String value = params.get(names[i]);
+            if (value == null) {
+                throw new InvalidTemplateException("Missing template parameter: " + names[i]);
+            }
+            values[i] = value;
+            length += value.length();
+        }
+
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]).append(values[i]);
+        }
+        return out.append(literals[names.length]).toString();
+    }
+}
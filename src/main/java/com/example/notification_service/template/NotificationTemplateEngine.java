@@ -0,0 +1,222 @@
+package com.example.notification_service.template;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.exception.InvalidTemplateException;
+import com.example.notification_service.exception.NotificationTemplateNotFoundException;
+import com.example.notification_service.model.Notification;
+import com.example.notification_service.model.NotificationTemplate;
+import com.example.notification_service.model.NotificationTemplateVersion;
+import com.example.notification_service.repository.NotificationTemplateRepository;
+import com.example.notification_service.repository.NotificationTemplateVersionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Registry of {@link NotificationTemplate}s, compiled once and cached by id. Notifications
+ * created from a template store the template id and their parameters as JSON, and their
+ * body is rendered from the cached plan when it is sent.
+ * <p>
+ * Every registration is kept as a {@link NotificationTemplateVersion}, and a notification
+ * renders the version it was created from, so replacing a template changes neither what a
+ * pending notification sends nor what a sent one reads back. Other nodes pick up the new
+ * current version once their entry expires after {@code notification.template.cache-ttl}. Hit, miss and eviction counters are published
+ * as {@code cache.*{cache=notification.templates}} metrics.
+ */
+@Component
+public class NotificationTemplateEngine {
+
+    public static final String CACHE_NAME = "notification.templates";
+
+    private static final TypeReference<Map<String, String>> PARAMS_TYPE = new TypeReference<>() {
+    };
+
+    private final NotificationTemplateRepository repository;
+    private final NotificationTemplateVersionRepository versionRepository;
+    private final ObjectMapper objectMapper;
+    private final LoadingCache<Key, Optional<Compiled>> cache;
+
+    public NotificationTemplateEngine(NotificationTemplateRepository repository,
+                                      NotificationTemplateVersionRepository versionRepository,
+                                      ObjectMapper objectMapper,
+                                      NotificationProperties properties,
+                                      MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.versionRepository = versionRepository;
+        this.objectMapper = objectMapper;
+        NotificationProperties.Template config = properties.getTemplate();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getCacheMaximumSize())
+                .expireAfterWrite(config.getCacheTtl())
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Creates or replaces the template as its next version. Both parts are compiled before
+     * anything is saved, so an invalid template never reaches the table.
+     *
+     * @throws InvalidTemplateException if the id is too long or the subject or body does not compile
+     */
+    @Transactional
+    public NotificationTemplate register(String id, String subject, String body) {
+        checkId(id);
+        CompiledTemplate.compile(subject);
+        CompiledTemplate.compile(body);
+
+        LocalDateTime now = LocalDateTime.now();
+        NotificationTemplate template = repository.findById(id)
+                .orElseGet(() -> NotificationTemplate.builder().id(id).createdOn(now).build());
+        template.setVersion(template.getVersion() == null ? 1 : template.getVersion() + 1);
+        template.setSubject(subject);
+        template.setBody(body);
+        template.setUpdatedOn(now);
+
+        NotificationTemplate saved = repository.save(template);
+        versionRepository.save(NotificationTemplateVersion.builder()
+                .templateId(id)
+                .version(saved.getVersion())
+                .subject(subject)
+                .body(body)
+                .createdOn(now)
+                .build());
+
+        Compiled compiled = Compiled.of(saved);
+        cache.put(new Key(id, null), Optional.of(compiled));
+        cache.put(new Key(id, saved.getVersion()), Optional.of(compiled));
+        return saved;
+    }
+
+    /**
+     * The template as registered, read from the table.
+     *
+     * @throws NotificationTemplateNotFoundException if no template has this id
+     */
+    public NotificationTemplate find(String id) {
+        return repository.findById(id)
+                .orElseThrow(() -> new NotificationTemplateNotFoundException("Notification template not found: " + id));
+    }
+
+    /**
+     * The current version of the template.
+     *
+     * @throws InvalidTemplateException if the id is too long to be a template id
+     * @throws NotificationTemplateNotFoundException if no template has this id
+     */
+    public Compiled get(String id) {
+        checkId(id);
+        return get(id, null);
+    }
+
+    /**
+     * The given version of the template, or its current version when {@code version} is null.
+     *
+     * @throws NotificationTemplateNotFoundException if no template has this id and version
+     */
+    public Compiled get(String id, Integer version) {
+        return cache.get(new Key(id, version))
+                .orElseThrow(() -> new NotificationTemplateNotFoundException("Notification template not found: "
+                        + (version == null ? id : id + " version " + version)));
+    }
+
+    /**
+     * Body of a notification created from the template, rendered from its stored parameters
+     * with the version it was created from.
+     */
+    public String renderBody(String templateId, Integer version, String params) {
+        return get(templateId, version).body().render(decodeParams(params));
+    }
+
+    /**
+     * @throws InvalidTemplateException if the parameters cannot be written or their JSON does
+     *                                  not fit {@link Notification#MAX_TEMPLATE_PARAMS_LENGTH}
+     */
+    public String encodeParams(Map<String, String> params) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(params == null ? Map.of() : params);
+        } catch (JsonProcessingException e) {
+            throw new InvalidTemplateException("Template parameters cannot be written: " + e.getOriginalMessage());
+        }
+        if (json.length() > Notification.MAX_TEMPLATE_PARAMS_LENGTH) {
+            throw new InvalidTemplateException("Template parameters must not exceed "
+                    + Notification.MAX_TEMPLATE_PARAMS_LENGTH + " characters as JSON");
+        }
+        return json;
+    }
+
+    public Map<String, String> decodeParams(String params) {
+        if (params == null || params.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(params, PARAMS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new InvalidTemplateException("Stored template parameters are not readable: " + e.getOriginalMessage());
+        }
+    }
+
+    private Optional<Compiled> load(Key key) {
+        if (key.version() == null) {
+            return repository.findById(key.id()).map(Compiled::of);
+        }
+        return versionRepository.findById(new NotificationTemplateVersion.Key(key.id(), key.version()))
+                .map(Compiled::of);
+    }
+
+    private static void checkId(String id) {
+        if (id != null && id.length() > NotificationTemplate.MAX_ID_LENGTH) {
+            throw new InvalidTemplateException("Template id must not exceed "
+                    + NotificationTemplate.MAX_ID_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * A template version, or its current version when {@code version} is null.
+     */
+    private record Key(String id, Integer version) {
+    }
+
+    /**
+     * Render plans of one template's subject and body.
+     */
+    public record Compiled(String id, Integer version, CompiledTemplate subject, CompiledTemplate body) {
+
+        static Compiled of(NotificationTemplate template) {
+            return new Compiled(template.getId(), template.getVersion(),
+                    CompiledTemplate.compile(template.getSubject()),
+                    CompiledTemplate.compile(template.getBody()));
+        }
+
+        static Compiled of(NotificationTemplateVersion template) {
+            return new Compiled(template.getTemplateId(), template.getVersion(),
+                    CompiledTemplate.compile(template.getSubject()),
+                    CompiledTemplate.compile(template.getBody()));
+        }
+
+        /**
+         * @throws InvalidTemplateException if {@code params} lacks a value used by the subject or body
+         */
+        public void checkParameters(Map<String, String> params) {
+            Set<String> missing = new LinkedHashSet<>(subject.parameters());
+            missing.addAll(body.parameters());
+            missing.removeIf(name -> params != null && params.get(name) != null);
+            if (!missing.isEmpty()) {
+                throw new InvalidTemplateException("Missing template parameters: " + String.join(", ", missing));
+            }
+        }
+    }
+}
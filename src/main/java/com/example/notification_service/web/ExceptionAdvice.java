@@ -1,7 +1,15 @@
 package com.example.notification_service.web;
 
+import com.example.notification_service.exception.IdempotencyConflictException;
+import com.example.notification_service.exception.IdempotencyKeyReusedException;
+import com.example.notification_service.exception.InvalidCursorException;
+import com.example.notification_service.exception.InvalidIdempotencyKeyException;
+import com.example.notification_service.exception.InvalidTemplateException;
+import com.example.notification_service.exception.NotificationTemplateNotFoundException;
+import com.example.notification_service.exception.RateLimitExceededException;
 import com.example.notification_service.web.dto.ResponseError;
 import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -21,4 +29,72 @@ public class ExceptionAdvice {
 
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(responseError);
     }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ResponseError> handleInvalidCursor(InvalidCursorException e) {
+
+        ResponseError responseError = new ResponseError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseError);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<ResponseError> handleInvalidIdempotencyKey(InvalidIdempotencyKeyException e) {
+
+        ResponseError responseError = new ResponseError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseError);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidTemplateException.class)
+    public ResponseEntity<ResponseError> handleInvalidTemplate(InvalidTemplateException e) {
+
+        ResponseError responseError = new ResponseError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseError);
+    }
+
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(NotificationTemplateNotFoundException.class)
+    public ResponseEntity<ResponseError> handleTemplateNotFound(NotificationTemplateNotFoundException e) {
+
+        ResponseError responseError = new ResponseError(HttpStatus.NOT_FOUND.value(), e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(responseError);
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ResponseError> handleIdempotencyConflict(IdempotencyConflictException e) {
+
+        ResponseError responseError = new ResponseError(HttpStatus.CONFLICT.value(), e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(responseError);
+    }
+
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ResponseError> handleIdempotencyKeyReused(IdempotencyKeyReusedException e) {
+
+        ResponseError responseError = new ResponseError(HttpStatus.UNPROCESSABLE_ENTITY.value(), e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(responseError);
+    }
+
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ResponseError> handleRateLimitExceeded(RateLimitExceededException e) {
+
+        ResponseError responseError = new ResponseError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
+
+        // Retry-After takes whole seconds; round up so a client that honours it is not rejected again.
+        long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(responseError);
+    }
 }
@@ -2,32 +2,61 @@ package com.example.notification_service.web;
 
 import com.example.notification_service.model.Notification;
 import com.example.notification_service.model.NotificationPreference;
+import com.example.notification_service.model.NotificationTemplate;
+import com.example.notification_service.service.IdempotencyService;
+import com.example.notification_service.service.NotificationHistoryPage;
 import com.example.notification_service.service.NotificationService;
+import com.example.notification_service.web.dto.BatchNotificationResult;
+import com.example.notification_service.web.dto.ClearNotificationsResponse;
 import com.example.notification_service.web.dto.EventReminderRequest;
+import com.example.notification_service.web.dto.FanOutRequest;
 import com.example.notification_service.web.dto.NotificationPreferenceResponse;
 import com.example.notification_service.web.dto.NotificationRequest;
 import com.example.notification_service.web.dto.NotificationResponse;
 import com.example.notification_service.web.dto.NotificationScheduleRequest;
+import com.example.notification_service.web.dto.NotificationTemplateRequest;
+import com.example.notification_service.web.dto.NotificationTemplateResponse;
+import com.example.notification_service.web.dto.TemplatedNotificationRequest;
 import com.example.notification_service.web.dto.UpsertNotificationPreference;
 import com.example.notification_service.web.mapper.DtoMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/v1/notifications")
 public class NotificationController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public NotificationController(NotificationService notificationService) {
+    public NotificationController(NotificationService notificationService,
+                                  ObjectMapper objectMapper,
+                                  IdempotencyService idempotencyService) {
         this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping("/preferences")
@@ -51,25 +80,145 @@ public class NotificationController {
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
+    /**
+     * A retry carrying the {@value #IDEMPOTENCY_KEY_HEADER} of an earlier request returns the
+     * notification that request created and sends nothing.
+     */
     @PostMapping
-    public ResponseEntity<NotificationResponse> sendNotification(@RequestBody NotificationRequest notificationRequest) {
+    public ResponseEntity<NotificationResponse> sendNotification(@RequestBody NotificationRequest notificationRequest,
+                                                                 @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
 
-        Notification notification = notificationService.sendNotification(notificationRequest);
+        Notification notification = idempotentCreate(idempotencyKey, notificationRequest,
+                () -> notificationService.sendNotification(notificationRequest));
 
         NotificationResponse notificationResponse = DtoMapper.fromNotification(notification);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(notificationResponse);
     }
 
+    @PostMapping(params = "async=true")
+    public ResponseEntity<NotificationResponse> acceptNotification(@Valid @RequestBody NotificationRequest notificationRequest,
+                                                                   @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+
+        Notification notification = idempotentCreate(idempotencyKey, notificationRequest,
+                () -> notificationService.acceptNotification(notificationRequest));
+
+        NotificationResponse notificationResponse = DtoMapper.fromNotification(notification);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(notificationResponse);
+    }
+
+    /**
+     * Accepts a notification built from a registered template. Only the template id and its
+     * parameters are stored; the body is rendered when the notification is sent.
+     */
+    @PostMapping("/templated")
+    public ResponseEntity<NotificationResponse> acceptTemplated(@Valid @RequestBody TemplatedNotificationRequest request,
+                                                                @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+
+        Notification notification = idempotentCreate(idempotencyKey, request,
+                () -> notificationService.acceptTemplated(request));
+
+        NotificationResponse notificationResponse = DtoMapper.fromNotification(notification);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(notificationResponse);
+    }
+
+    /**
+     * Creates or replaces a template. Subject and body may use {@code {{name}}} placeholders.
+     */
+    @PutMapping("/templates/{id}")
+    public ResponseEntity<NotificationTemplateResponse> registerTemplate(@PathVariable String id,
+                                                                         @Valid @RequestBody NotificationTemplateRequest request) {
+
+        NotificationTemplate template = notificationService.registerTemplate(id, request);
+
+        return ResponseEntity.ok(DtoMapper.fromNotificationTemplate(template));
+    }
+
+    @GetMapping("/templates/{id}")
+    public ResponseEntity<NotificationTemplateResponse> getTemplate(@PathVariable String id) {
+        return ResponseEntity.ok(DtoMapper.fromNotificationTemplate(notificationService.getTemplate(id)));
+    }
+
+    /**
+     * Accepts a JSON array of {@link NotificationRequest} items and streams one
+     * {@link BatchNotificationResult} per item back as NDJSON while the rest are still being
+     * read. Neither the request nor the response is ever held in memory as a whole.
+     */
+    @PostMapping(path = "/batch", produces = APPLICATION_NDJSON_VALUE)
+    public void sendBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+
+        try (MappingIterator<NotificationRequest> items = objectMapper.readerFor(NotificationRequest.class)
+                .readValues(request.getInputStream())) {
+            notificationService.acceptBatch(items, results -> writeLines(out, results));
+        } catch (JsonProcessingException e) {
+            writeMalformedBody(out, e);
+        } catch (RuntimeException e) {
+            // MappingIterator reports unreadable input as unchecked exceptions
+            if (!(e instanceof RuntimeJsonMappingException) && !(e.getCause() instanceof JsonProcessingException)) {
+                throw e;
+            }
+            writeMalformedBody(out, e);
+        }
+    }
+
+    /**
+     * Sends one message to many users, rendered once and delivered in groups of recipients.
+     * Returns one {@link BatchNotificationResult} per user id, in request order.
+     */
+    @PostMapping("/fan-out")
+    public ResponseEntity<List<BatchNotificationResult>> fanOut(@Valid @RequestBody FanOutRequest request) {
+
+        List<BatchNotificationResult> results = notificationService.fanOut(request);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(results);
+    }
+
+    private void writeLines(OutputStream out, List<BatchNotificationResult> results) {
+        try {
+            for (BatchNotificationResult result : results) {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeMalformedBody(OutputStream out, Exception e) {
+        writeLines(out, List.of(BatchNotificationResult.builder()
+                .error("Malformed request body: " + e.getMessage())
+                .build()));
+    }
+
+    /**
+     * Returns one page of the user's history, newest first. When more rows follow, the
+     * {@value #NEXT_CURSOR_HEADER} header carries the cursor for the next page.
+     */
     @GetMapping
-    public ResponseEntity<List<NotificationResponse>> getNotifications(@RequestParam(name = "userId") UUID userId) {
+    public ResponseEntity<List<NotificationResponse>> getNotifications(@RequestParam(name = "userId") UUID userId,
+                                                                       @RequestParam(name = "cursor", required = false) String cursor,
+                                                                       @RequestParam(name = "limit", required = false) Integer limit,
+                                                                       @RequestParam(name = "includeBody", defaultValue = "false") boolean includeBody) {
 
-        List<NotificationResponse> notificationResponses = notificationService.getNotifications(userId)
+        NotificationHistoryPage page = notificationService.getNotificationHistory(userId, cursor, limit, includeBody);
+
+        List<NotificationResponse> notificationResponses = page.items()
                 .stream()
-                .map(DtoMapper::fromNotification)
+                .map(summary -> DtoMapper.fromNotificationSummary(summary, page.bodies().get(summary.getId())))
                 .toList();
 
-        return ResponseEntity.status(HttpStatus.OK).body(notificationResponses);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(notificationResponses);
     }
 
     @PutMapping("/preferences")
@@ -86,19 +235,20 @@ public class NotificationController {
     }
 
     @DeleteMapping
-    public ResponseEntity<Void> clearPreviousNotifications(@RequestParam(name = "userId") UUID userId) {
+    public ResponseEntity<ClearNotificationsResponse> clearPreviousNotifications(@RequestParam(name = "userId") UUID userId) {
 
-        notificationService.clearNotifications(userId);
+        int cleared = notificationService.clearNotifications(userId);
 
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(new ClearNotificationsResponse(cleared));
     }
 
     @PostMapping("/reminders/schedule")
-    public ResponseEntity<NotificationResponse> schedule(@Valid @RequestBody NotificationScheduleRequest req) {
-        Notification n = notificationService.scheduleNotification(
+    public ResponseEntity<NotificationResponse> schedule(@Valid @RequestBody NotificationScheduleRequest req,
+                                                         @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        Notification n = idempotentCreate(idempotencyKey, req, () -> notificationService.scheduleNotification(
                 new NotificationRequest(req.getUserId(), req.getSubject(), req.getBody()),
                 req.getScheduledAt()
-        );
+        ));
         return ResponseEntity.status(HttpStatus.CREATED).body(DtoMapper.fromNotification(n));
     }
 
@@ -114,4 +264,10 @@ public class NotificationController {
         return ResponseEntity.ok(DtoMapper.fromNotification(notificationService.getById(id)));
     }
 
+    private Notification idempotentCreate(String idempotencyKey, Object request, Supplier<Notification> create) {
+        if (idempotencyKey == null) {
+            return create.get();
+        }
+        return idempotencyService.execute(idempotencyKey, request, create);
+    }
 }
@@ -0,0 +1,27 @@
+package com.example.notification_service.web.dto;
+
+import com.example.notification_service.model.NotificationStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * One line of the NDJSON response of {@code POST /api/v1/notifications/batch}: either the id
+ * and status of the accepted notification, or the reason the item was rejected. A line
+ * without an index reports a request body that could not be read any further.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchNotificationResult {
+
+    private Integer index;
+
+    private UUID id;
+
+    private NotificationStatus status;
+
+    private String error;
+}
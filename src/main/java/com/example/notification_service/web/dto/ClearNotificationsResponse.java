@@ -0,0 +1,13 @@
+package com.example.notification_service.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClearNotificationsResponse {
+
+    private int cleared;
+}
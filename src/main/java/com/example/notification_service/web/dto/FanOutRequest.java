@@ -0,0 +1,36 @@
+package com.example.notification_service.web.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One message for many users. It is rendered once and sent to the users in groups of
+ * recipients, but each user still gets a notification row of their own.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FanOutRequest {
+
+    public static final int MAX_USERS = 10_000;
+
+    @NotEmpty
+    @Size(max = MAX_USERS)
+    private List<@NotNull UUID> userIds;
+
+    @NotBlank
+    private String subject;
+
+    @NotBlank
+    private String body;
+}
@@ -0,0 +1,22 @@
+package com.example.notification_service.web.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationTemplateRequest {
+
+    @NotBlank
+    @Size(max = 255)
+    private String subject;
+
+    @NotBlank
+    @Size(max = 10_000)
+    private String body;
+
+}
@@ -0,0 +1,22 @@
+package com.example.notification_service.web.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Data
+@Builder
+public class NotificationTemplateResponse {
+
+    private String id;
+
+    private String subject;
+
+    private String body;
+
+    private Set<String> parameters;
+
+    private LocalDateTime updatedOn;
+}
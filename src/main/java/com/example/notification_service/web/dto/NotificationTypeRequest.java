@@ -1,5 +1,7 @@
 package com.example.notification_service.web.dto;
 
 public enum NotificationTypeRequest {
-    EMAIL
+    EMAIL,
+    MOBILE,
+    WEBHOOK
 }
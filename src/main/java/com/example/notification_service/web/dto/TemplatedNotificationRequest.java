@@ -0,0 +1,25 @@
+package com.example.notification_service.web.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TemplatedNotificationRequest {
+
+    @NotNull
+    private UUID userId;
+
+    @NotBlank
+    private String templateId;
+
+    private Map<String, String> params;
+
+}
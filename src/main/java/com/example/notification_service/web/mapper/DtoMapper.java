@@ -2,18 +2,27 @@ package com.example.notification_service.web.mapper;
 
 import com.example.notification_service.model.Notification;
 import com.example.notification_service.model.NotificationPreference;
+import com.example.notification_service.model.NotificationSummary;
+import com.example.notification_service.model.NotificationTemplate;
 import com.example.notification_service.model.NotificationType;
 import com.example.notification_service.web.dto.NotificationPreferenceResponse;
 import com.example.notification_service.web.dto.NotificationResponse;
+import com.example.notification_service.web.dto.NotificationTemplateResponse;
 import com.example.notification_service.web.dto.NotificationTypeRequest;
+import com.example.notification_service.template.CompiledTemplate;
 import lombok.experimental.UtilityClass;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 @UtilityClass
 public class DtoMapper {
 
     public static NotificationType fromNotificationTypeRequest(NotificationTypeRequest notificationTypeRequest) {
         return switch (notificationTypeRequest) {
             case EMAIL -> NotificationType.EMAIL;
+            case MOBILE -> NotificationType.MOBILE;
+            case WEBHOOK -> NotificationType.WEBHOOK;
         };
     }
 
@@ -28,8 +37,33 @@ public class DtoMapper {
                 .build();
     }
 
+    public static NotificationResponse fromNotificationSummary(NotificationSummary summary, String body) {
+        return NotificationResponse.builder()
+                .id(summary.getId())
+                .subject(summary.getSubject())
+                .body(body)
+                .created(summary.getCreated())
+                .status(summary.getStatus())
+                .type(summary.getType())
+                .build();
+    }
+
+    public static NotificationTemplateResponse fromNotificationTemplate(NotificationTemplate template) {
+        Set<String> parameters = new LinkedHashSet<>(CompiledTemplate.compile(template.getSubject()).parameters());
+        parameters.addAll(CompiledTemplate.compile(template.getBody()).parameters());
+
+        return NotificationTemplateResponse.builder()
+                .id(template.getId())
+                .subject(template.getSubject())
+                .body(template.getBody())
+                .parameters(parameters)
+                .updatedOn(template.getUpdatedOn())
+                .build();
+    }
+
     public static NotificationResponse fromNotification(Notification notification) {
         return NotificationResponse.builder()
+                .id(notification.getId())
                 .subject(notification.getSubject())
                 .body(notification.getBody())
                 .created(notification.getCreated())
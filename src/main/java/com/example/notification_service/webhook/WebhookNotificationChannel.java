@@ -0,0 +1,205 @@
+package com.example.notification_service.webhook;
+
+import com.example.notification_service.channel.ChannelMessage;
+import com.example.notification_service.channel.ChannelResult;
+import com.example.notification_service.channel.NotificationChannel;
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.model.NotificationType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers WEBHOOK notifications as a JSON POST to the callback URL in the user's preference:
+ * <pre>
+ * POST {callback URL}
+ * X-Webhook-Id: {notification id}
+ * X-Webhook-Timestamp: {unix seconds}
+ * X-Webhook-Signature: v1={hex HMAC-SHA256 of "timestamp.body"}
+ *
+ * {"id": "...", "subject": "...", "body": "..."}
+ * </pre>
+ * All callbacks of a batch are sent asynchronously over one shared client, while a semaphore
+ * per endpoint keeps at most {@code notification.webhook.max-concurrent-per-endpoint} of them
+ * in flight to the same consumer. Receivers can check the signature with the shared secret,
+ * reject stale timestamps and drop redeliveries by id.
+ * <p>
+ * A 2xx answer delivers the notification. 408, 425, 429, 5xx, timeouts and connection
+ * failures are retried; any other answer, or a callback URL that is not http(s), rejects it.
+ */
+@Slf4j
+public class WebhookNotificationChannel implements NotificationChannel {
+
+    public static final String ID_HEADER = "X-Webhook-Id";
+    public static final String TIMESTAMP_HEADER = "X-Webhook-Timestamp";
+    public static final String SIGNATURE_HEADER = "X-Webhook-Signature";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor executor;
+    private final NotificationProperties.Webhook webhook;
+    private final Map<String, Semaphore> endpointSlots = new ConcurrentHashMap<>();
+
+    public WebhookNotificationChannel(HttpClient client,
+                                      ObjectMapper objectMapper,
+                                      TaskExecutor executor,
+                                      NotificationProperties properties) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.webhook = properties.getWebhook();
+    }
+
+    @Override
+    public NotificationType type() {
+        return NotificationType.WEBHOOK;
+    }
+
+    @Override
+    public TaskExecutor executor() {
+        return executor;
+    }
+
+    @Override
+    public Map<UUID, ChannelResult> send(List<ChannelMessage> messages) {
+        Map<UUID, CompletableFuture<ChannelResult>> inFlight = new LinkedHashMap<>();
+        for (ChannelMessage message : messages) {
+            inFlight.put(message.id(), sendAsync(message));
+        }
+
+        Map<UUID, ChannelResult> results = new HashMap<>();
+        inFlight.forEach((id, result) -> results.put(id, result.join()));
+        return results;
+    }
+
+    /**
+     * Starts the callback once its endpoint has a free slot. Waits on the calling thread for
+     * the slot, up to the request timeout, and completes without throwing.
+     */
+    public CompletableFuture<ChannelResult> sendAsync(ChannelMessage message) {
+        URI uri = callbackUri(message.recipient());
+        if (uri == null) {
+            return CompletableFuture.completedFuture(ChannelResult.rejected("Invalid webhook URL: " + message.recipient()));
+        }
+
+        String endpoint = endpoint(uri);
+        Semaphore slots = endpointSlots.computeIfAbsent(endpoint, e -> new Semaphore(webhook.getMaxConcurrentPerEndpoint()));
+        try {
+            if (!slots.tryAcquire(webhook.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.completedFuture(ChannelResult.retry("No free slot for " + endpoint));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(ChannelResult.retry("Interrupted while waiting for " + endpoint));
+        }
+
+        try {
+            return client.sendAsync(request(uri, message), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        slots.release();
+                        return failure == null ? toChannelResult(response.statusCode()) : failed(endpoint, failure);
+                    });
+        } catch (RuntimeException e) {
+            slots.release();
+            return CompletableFuture.completedFuture(ChannelResult.rejected(e.getMessage()));
+        }
+    }
+
+    private HttpRequest request(URI uri, ChannelMessage message) {
+        byte[] body = payload(message);
+        String timestamp = Long.toString(System.currentTimeMillis() / 1000);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(webhook.getRequestTimeout())
+                .header("Content-Type", "application/json")
+                .header(ID_HEADER, message.id().toString())
+                .header(TIMESTAMP_HEADER, timestamp)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (webhook.getSigningSecret() != null && !webhook.getSigningSecret().isBlank()) {
+            request.header(SIGNATURE_HEADER, "v1=" + sign(webhook.getSigningSecret(), timestamp, body));
+        }
+        return request.build();
+    }
+
+    private byte[] payload(ChannelMessage message) {
+        try {
+            return objectMapper.writeValueAsBytes(new WebhookPayload(message.id().toString(), message.subject(), message.body()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Hex HMAC-SHA256 of {@code timestamp + "." + body}, the value of the signature header.
+     */
+    public static String sign(String secret, String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static ChannelResult toChannelResult(int status) {
+        if (status >= 200 && status < 300) {
+            return ChannelResult.delivered();
+        }
+        String error = "Webhook endpoint returned HTTP " + status;
+        boolean retryable = status == 408 || status == 425 || status == 429 || status >= 500;
+        return retryable ? ChannelResult.retry(error) : ChannelResult.rejected(error);
+    }
+
+    private static ChannelResult failed(String endpoint, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        log.warn("Webhook call to {} failed: {}", endpoint, cause.toString());
+        return ChannelResult.retry("Webhook call to " + endpoint + " failed: " + cause);
+    }
+
+    private static URI callbackUri(String recipient) {
+        if (recipient == null) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(recipient.trim());
+            String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+            return (scheme.equals("http") || scheme.equals("https")) && uri.getHost() != null ? uri : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String endpoint(URI uri) {
+        return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT) + ":" + uri.getPort();
+    }
+
+    public record WebhookPayload(String id, String subject, String body) {
+    }
+}
@@ -0,0 +1,165 @@
+package app;
+
+import app.mail.FakeSmtpServer;
+import com.example.notification_service.Application;
+import com.example.notification_service.mail.PooledJavaMailSender;
+import com.example.notification_service.model.Notification;
+import com.example.notification_service.model.NotificationPreference;
+import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.NotificationType;
+import com.example.notification_service.repository.NotificationPreferenceRepository;
+import com.example.notification_service.repository.NotificationRepository;
+import com.example.notification_service.service.NotificationService;
+import com.example.notification_service.web.dto.BatchNotificationResult;
+import com.example.notification_service.web.dto.FanOutRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fans one message out to many users through a local SMTP server and checks that the relay
+ * sees one transaction per recipient group while every user still gets a row of their own.
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fanoutdb;MODE=MYSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "notification.timer.enabled=false",
+        "notification.fan-out.recipients-per-message=50"
+})
+@Import(FanOutITest.TestConfig.class)
+class FanOutITest {
+
+    @TestConfiguration
+    static class TestConfig {
+
+        @Bean(destroyMethod = "close")
+        public FakeSmtpServer fakeSmtpServer() throws IOException {
+            return new FakeSmtpServer();
+        }
+
+        @Bean
+        @Primary
+        public JavaMailSenderImpl fakeSmtpMailSender(FakeSmtpServer server) {
+            PooledJavaMailSender sender = new PooledJavaMailSender(2, Duration.ofSeconds(30), Duration.ofSeconds(5));
+            sender.setHost("localhost");
+            sender.setPort(server.getPort());
+            return sender;
+        }
+    }
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Autowired
+    private FakeSmtpServer server;
+
+    private int messagesBefore;
+    private int recipientsBefore;
+
+    @BeforeEach
+    void cleanDbAndState() {
+        notificationRepository.deleteAll();
+        preferenceRepository.deleteAll();
+        server.setRejectedRecipients(Set.of());
+        messagesBefore = server.getMessages();
+        recipientsBefore = server.getDeliveredRecipients();
+    }
+
+    @Test
+    void fanOut_shouldSendOneTransactionPerRecipientGroup_andRecordOneRowPerUser() throws Exception {
+        List<UUID> userIds = createEnabledPreferences(120);
+
+        List<BatchNotificationResult> results = notificationService.fanOut(FanOutRequest.builder()
+                .userIds(userIds)
+                .subject("Maintenance tonight")
+                .body("The service will be down from 22:00 to 23:00.")
+                .build());
+
+        assertEquals(120, results.size());
+        results.forEach(r -> assertNotNull(r.getId()));
+
+        List<Notification> rows = awaitFinalStatus(results.stream().map(BatchNotificationResult::getId).toList());
+        rows.forEach(n -> assertEquals(NotificationStatus.SUCCEEDED, n.getStatus()));
+        assertEquals(Set.copyOf(userIds), rows.stream().map(Notification::getUserId).collect(Collectors.toSet()));
+        assertEquals(3, server.getMessages() - messagesBefore);
+        assertEquals(120, server.getDeliveredRecipients() - recipientsBefore);
+    }
+
+    @Test
+    void fanOut_shouldFailOnlyRefusedRecipients() throws Exception {
+        List<UUID> userIds = createEnabledPreferences(10);
+        server.setRejectedRecipients(Set.of("user3@example.com"));
+
+        List<BatchNotificationResult> results = notificationService.fanOut(FanOutRequest.builder()
+                .userIds(userIds)
+                .subject("Subject")
+                .body("Body")
+                .build());
+
+        Map<UUID, Notification> byUser = awaitFinalStatus(results.stream().map(BatchNotificationResult::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Notification::getUserId, Function.identity()));
+        for (int i = 0; i < userIds.size(); i++) {
+            NotificationStatus expected = i == 3 ? NotificationStatus.FAILED : NotificationStatus.SUCCEEDED;
+            assertEquals(expected, byUser.get(userIds.get(i)).getStatus());
+        }
+        assertEquals(1, server.getMessages() - messagesBefore);
+        assertEquals(9, server.getDeliveredRecipients() - recipientsBefore);
+    }
+
+    private List<Notification> awaitFinalStatus(List<UUID> ids) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (true) {
+            List<Notification> rows = notificationRepository.findAllById(ids);
+            boolean done = rows.size() == ids.size() && rows.stream().allMatch(n ->
+                    n.getStatus() == NotificationStatus.SUCCEEDED || n.getStatus() == NotificationStatus.FAILED);
+            if (done || System.nanoTime() > deadline) {
+                return rows;
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private List<UUID> createEnabledPreferences(int count) {
+        List<NotificationPreference> preferences = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            preferences.add(NotificationPreference.builder()
+                    .userId(UUID.randomUUID())
+                    .type(NotificationType.EMAIL)
+                    .enabled(true)
+                    .contactInfo("user" + i + "@example.com")
+                    .createdOn(LocalDateTime.now())
+                    .updatedOn(LocalDateTime.now())
+                    .build());
+        }
+        return preferenceRepository.saveAll(preferences).stream().map(NotificationPreference::getUserId).toList();
+    }
+}
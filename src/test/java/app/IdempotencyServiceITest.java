@@ -0,0 +1,253 @@
+package app;
+
+import com.example.notification_service.Application;
+import com.example.notification_service.exception.IdempotencyConflictException;
+import com.example.notification_service.exception.IdempotencyKeyReusedException;
+import com.example.notification_service.exception.InvalidIdempotencyKeyException;
+import com.example.notification_service.exception.NotificationPreferenceNotFoundException;
+import com.example.notification_service.model.IdempotencyRecord;
+import com.example.notification_service.model.Notification;
+import com.example.notification_service.model.NotificationPreference;
+import com.example.notification_service.model.NotificationType;
+import com.example.notification_service.repository.IdempotencyRecordRepository;
+import com.example.notification_service.repository.NotificationPreferenceRepository;
+import com.example.notification_service.repository.NotificationRepository;
+import com.example.notification_service.service.IdempotencyService;
+import com.example.notification_service.service.NotificationService;
+import com.example.notification_service.web.dto.NotificationRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a real database without a test transaction, since the key reservation relies
+ * on the primary key rejecting a second insert.
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotencydb;MODE=MYSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "notification.timer.enabled=false"
+})
+@Import(IdempotencyServiceITest.TestConfig.class)
+class IdempotencyServiceITest {
+
+    @TestConfiguration
+    static class TestConfig {
+
+        static class RecordingMailSender extends JavaMailSenderImpl {
+
+            private final Queue<SimpleMailMessage> sentMessages = new ConcurrentLinkedQueue<>();
+
+            @Override
+            public void send(@NotNull SimpleMailMessage simpleMessage) {
+                sentMessages.add(simpleMessage);
+            }
+        }
+
+        @Bean
+        @Primary
+        public JavaMailSenderImpl recordingMailSender() {
+            return new RecordingMailSender();
+        }
+    }
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void cleanDbAndState() {
+        recordRepository.deleteAll();
+        notificationRepository.deleteAll();
+        preferenceRepository.deleteAll();
+        sentMessages().clear();
+    }
+
+    @Test
+    void execute_shouldSendOnce_andReturnOriginalNotification_whenRequestIsRetried() {
+        UUID userId = createEnabledPreference();
+        NotificationRequest request = new NotificationRequest(userId, "Subject", "Body");
+
+        Notification first = idempotencyService.execute("key-1", request, () -> notificationService.sendNotification(request));
+        Notification retry = idempotencyService.execute("key-1", request, () -> notificationService.sendNotification(request));
+
+        assertEquals(first.getId(), retry.getId());
+        assertEquals(1, sentMessages().size());
+        assertEquals(1, notificationRepository.count());
+        assertEquals(first.getId(), recordRepository.findById("key-1").orElseThrow().getNotificationId());
+    }
+
+    @Test
+    void execute_shouldReject_whenKeyIsReusedForAnotherRequest() {
+        UUID userId = createEnabledPreference();
+        UUID otherUserId = createEnabledPreference();
+        NotificationRequest request = new NotificationRequest(userId, "Subject", "Body");
+        NotificationRequest other = new NotificationRequest(otherUserId, "Subject", "Body");
+
+        idempotencyService.execute("key-6", request, () -> notificationService.sendNotification(request));
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> idempotencyService.execute("key-6", other, () -> notificationService.sendNotification(other)));
+        assertEquals(1, sentMessages().size());
+        assertEquals(1, notificationRepository.count());
+    }
+
+    @Test
+    void execute_shouldLetOnlyOneOfConcurrentRequestsThrough() throws Exception {
+        UUID userId = createEnabledPreference();
+        NotificationRequest request = new NotificationRequest(userId, "Subject", "Body");
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Notification> first = executor.submit(() -> idempotencyService.execute("key-2", request, () -> {
+                inside.countDown();
+                await(release);
+                return notificationService.sendNotification(request);
+            }));
+            assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+            assertThrows(IdempotencyConflictException.class,
+                    () -> idempotencyService.execute("key-2", request, () -> notificationService.sendNotification(request)));
+
+            release.countDown();
+            Notification created = first.get(10, TimeUnit.SECONDS);
+            assertEquals(created.getId(),
+                    idempotencyService.execute("key-2", request, () -> notificationService.sendNotification(request)).getId());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        assertEquals(1, sentMessages().size());
+    }
+
+    @Test
+    void execute_shouldReleaseKey_whenFirstRequestFails() {
+        UUID unknownUser = UUID.randomUUID();
+        NotificationRequest request = new NotificationRequest(unknownUser, "Subject", "Body");
+
+        assertThrows(NotificationPreferenceNotFoundException.class,
+                () -> idempotencyService.execute("key-3", request, () -> notificationService.sendNotification(request)));
+        assertFalse(recordRepository.existsById("key-3"));
+
+        UUID userId = createEnabledPreference();
+        NotificationRequest retried = new NotificationRequest(userId, "Subject", "Body");
+        Notification created = idempotencyService.execute("key-3", retried,
+                () -> notificationService.sendNotification(retried));
+
+        assertEquals(userId, created.getUserId());
+        assertEquals(1, sentMessages().size());
+    }
+
+    @Test
+    void execute_shouldTakeOverKey_whenItsReservationWasAbandoned() {
+        UUID userId = createEnabledPreference();
+        LocalDateTime longAgo = LocalDateTime.now().minusHours(1);
+        recordRepository.insertReservation("key-4", null, longAgo, longAgo.plusDays(1));
+
+        NotificationRequest request = new NotificationRequest(userId, "Subject", "Body");
+        Notification created = idempotencyService.execute("key-4", request,
+                () -> notificationService.sendNotification(request));
+
+        assertEquals(created.getId(), recordRepository.findById("key-4").orElseThrow().getNotificationId());
+    }
+
+    @Test
+    void execute_shouldRunAgain_whenKeyHasExpired() {
+        UUID userId = createEnabledPreference();
+        NotificationRequest request = new NotificationRequest(userId, "Subject", "Body");
+        Notification earlier = notificationService.sendNotification(request);
+        LocalDateTime twoDaysAgo = LocalDateTime.now().minusDays(2);
+        recordRepository.insertReservation("key-5", null, twoDaysAgo, twoDaysAgo.plusDays(1));
+        recordRepository.complete("key-5", earlier.getId());
+
+        Notification second = idempotencyService.execute("key-5", request, () -> notificationService.sendNotification(request));
+
+        assertNotEquals(earlier.getId(), second.getId());
+        assertEquals(2, sentMessages().size());
+        assertTrue(recordRepository.findById("key-5").orElseThrow().getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void purgeExpired_shouldDeleteOnlyExpiredKeys() {
+        LocalDateTime now = LocalDateTime.now();
+        recordRepository.insertReservation("expired", null, now.minusDays(2), now.minusDays(1));
+        recordRepository.insertReservation("live", null, now, now.plusDays(1));
+
+        idempotencyService.purgeExpired();
+
+        assertFalse(recordRepository.existsById("expired"));
+        assertTrue(recordRepository.existsById("live"));
+    }
+
+    @Test
+    void execute_shouldRejectOverlongKey() {
+        String key = "k".repeat(IdempotencyRecord.MAX_KEY_LENGTH + 1);
+
+        assertThrows(InvalidIdempotencyKeyException.class, () -> idempotencyService.execute(key, null, () -> null));
+    }
+
+    private UUID createEnabledPreference() {
+        UUID userId = UUID.randomUUID();
+        preferenceRepository.save(NotificationPreference.builder()
+                .userId(userId)
+                .type(NotificationType.EMAIL)
+                .enabled(true)
+                .contactInfo("user@example.com")
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .build());
+        return userId;
+    }
+
+    private Queue<SimpleMailMessage> sentMessages() {
+        return ((TestConfig.RecordingMailSender) mailSender).sentMessages;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
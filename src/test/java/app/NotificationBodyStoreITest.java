@@ -0,0 +1,201 @@
+package app;
+
+import com.example.notification_service.Application;
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.content.NotificationBodyCompactor;
+import com.example.notification_service.content.NotificationBodyStore;
+import com.example.notification_service.model.Notification;
+import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.NotificationType;
+import com.example.notification_service.repository.JobLeaseRepository;
+import com.example.notification_service.repository.NotificationRepository;
+import com.example.notification_service.web.mapper.DtoMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction, since bodies are only cached once their transaction commits.
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bodystoredb;MODE=MYSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "notification.timer.enabled=false",
+        "notification.body-store.compaction-enabled=false",
+        "notification.body-store.compaction-batch-size=2"
+})
+class NotificationBodyStoreITest {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationBodyStore bodyStore;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JobLeaseRepository leaseRepository;
+
+    @Autowired
+    private NotificationProperties properties;
+
+    @Test
+    void save_shouldStoreEachDistinctBodyOnce_andReadItBackTransparently() {
+        String campaign = "Spring sale " + UUID.randomUUID();
+        String personal = "Your order " + UUID.randomUUID();
+        List<Notification> rows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rows.add(notification(campaign));
+        }
+        rows.add(notification(personal));
+
+        long contentBefore = contentRows();
+        List<UUID> ids = notificationRepository.saveAll(rows).stream().map(Notification::getId).toList();
+
+        assertEquals(contentBefore + 2, contentRows());
+        assertEquals(campaign, storedBody(NotificationBodyStore.hash(campaign)));
+
+        long missesBefore = bodyStore.stats().missCount();
+        List<Notification> loaded = notificationRepository.findAllById(ids);
+
+        assertEquals(21, loaded.size());
+        assertEquals(20, loaded.stream().filter(n -> campaign.equals(n.getBody())).count());
+        assertEquals(personal, DtoMapper.fromNotification(loaded.stream()
+                .filter(n -> !campaign.equals(n.getBody())).findFirst().orElseThrow()).getBody());
+        // Both bodies were cached when their insert committed, so the reads never went to the table.
+        assertEquals(missesBefore, bodyStore.stats().missCount());
+    }
+
+    @Test
+    void save_shouldNotCacheBodyAsStored_whenItsTransactionRollsBack() {
+        String body = "Rolled back " + UUID.randomUUID();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            notificationRepository.save(notification(body));
+            status.setRollbackOnly();
+        });
+        assertNull(storedBody(NotificationBodyStore.hash(body)));
+
+        UUID id = notificationRepository.save(notification(body)).getId();
+
+        assertEquals(body, storedBody(NotificationBodyStore.hash(body)));
+        assertEquals(body, notificationRepository.findById(id).orElseThrow().getBody());
+    }
+
+    @Test
+    void save_shouldStoreLargeBodyCompressed_andReadItBackTransparently() {
+        String body = largeBody();
+
+        UUID id = notificationRepository.save(notification(body)).getId();
+
+        String hash = NotificationBodyStore.hash(body);
+        assertNull(storedBody(hash));
+        assertTrue(compressedBody(hash).length < body.length() / 3);
+        bodyStore.evict(hash);
+        assertEquals(body, notificationRepository.findById(id).orElseThrow().getBody());
+    }
+
+    @Test
+    void load_shouldFetchAndInflateBody_onlyWhenItIsRead() {
+        String body = largeBody();
+        UUID id = notificationRepository.save(notification(body)).getId();
+        String hash = NotificationBodyStore.hash(body);
+        bodyStore.evict(hash);
+
+        long missesBefore = bodyStore.stats().missCount();
+        Notification loaded = notificationRepository.findById(id).orElseThrow();
+
+        assertEquals(hash, loaded.getBodyHash());
+        assertEquals(missesBefore, bodyStore.stats().missCount());
+        assertEquals(body, loaded.getBody());
+        assertEquals(missesBefore + 1, bodyStore.stats().missCount());
+    }
+
+    @Test
+    void compact_shouldCompressLargeBodiesStoredAsText_andLeaveThemReadable() {
+        List<String> bodies = List.of(largeBody(), largeBody(), largeBody());
+        String small = "Small " + UUID.randomUUID();
+        for (String body : bodies) {
+            insertAsText(body);
+        }
+        insertAsText(small);
+
+        new NotificationBodyCompactor(bodyStore, leaseRepository, properties).compact();
+
+        for (String body : bodies) {
+            String hash = NotificationBodyStore.hash(body);
+            assertNull(storedBody(hash));
+            assertNotNull(compressedBody(hash));
+            bodyStore.evict(hash);
+            assertEquals(body, bodyStore.get(hash));
+        }
+        assertEquals(small, storedBody(NotificationBodyStore.hash(small)));
+        assertNull(compressedBody(NotificationBodyStore.hash(small)));
+    }
+
+    /**
+     * Stores a body the way rows were stored before compression.
+     */
+    private void insertAsText(String body) {
+        jdbcTemplate.update("INSERT INTO \"notification_content\" (\"hash\", \"body\", \"created\") VALUES (?, ?, ?)",
+                NotificationBodyStore.hash(body), body, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private byte[] compressedBody(String hash) {
+        return jdbcTemplate.queryForObject("SELECT \"compressed_body\" FROM \"notification_content\" WHERE \"hash\" = ?",
+                byte[].class, hash);
+    }
+
+    private static String largeBody() {
+        StringBuilder html = new StringBuilder("<html><body><h1>Order ").append(UUID.randomUUID()).append("</h1><table>");
+        for (int i = 0; i < 40; i++) {
+            html.append("<tr><td class=\"item\">Item ").append(i).append("</td><td class=\"price\">").append(i * 3).append(".99</td></tr>");
+        }
+        return html.append("</table></body></html>").toString();
+    }
+
+    private long contentRows() {
+        return entityManager.createQuery("SELECT COUNT(c) FROM NotificationContent c", Long.class).getSingleResult();
+    }
+
+    private String storedBody(String hash) {
+        List<String> bodies = entityManager.createQuery("SELECT c.body FROM NotificationContent c WHERE c.hash = :hash", String.class)
+                .setParameter("hash", hash)
+                .getResultList();
+        return bodies.isEmpty() ? null : bodies.get(0);
+    }
+
+    private static Notification notification(String body) {
+        return Notification.builder()
+                .userId(UUID.randomUUID())
+                .subject("Subject")
+                .body(body)
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.SUCCEEDED)
+                .created(LocalDateTime.now())
+                .deleted(false)
+                .build();
+    }
+}
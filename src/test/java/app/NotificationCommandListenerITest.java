@@ -0,0 +1,236 @@
+package app;
+
+import com.example.notification_service.Application;
+import com.example.notification_service.messaging.NotificationCommand;
+import com.example.notification_service.model.Notification;
+import com.example.notification_service.model.NotificationPreference;
+import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.NotificationType;
+import com.example.notification_service.repository.NotificationPreferenceRepository;
+import com.example.notification_service.repository.NotificationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Publishes commands to an embedded broker and checks that the batch listener persists
+ * them, hands due ones to delivery, and commits offsets once the batch is stored.
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 3, topics = NotificationCommandListenerITest.TOPIC)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:kafkadb;MODE=MYSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "notification.kafka.enabled=true",
+        "notification.kafka.topic=" + NotificationCommandListenerITest.TOPIC,
+        "notification.kafka.group-id=" + NotificationCommandListenerITest.GROUP,
+        "notification.timer.enabled=false",
+        "notification.mail.domain-rate-limit.enabled=false"
+})
+@Import(NotificationCommandListenerITest.TestConfig.class)
+class NotificationCommandListenerITest {
+
+    static final String TOPIC = "notification-commands-it";
+    static final String GROUP = "notification-service-it";
+
+    @TestConfiguration
+    static class TestConfig {
+
+        static class RecordingMailSender extends JavaMailSenderImpl {
+
+            private final Queue<SimpleMailMessage> sentMessages = new ConcurrentLinkedQueue<>();
+
+            @Override
+            public void send(@NotNull SimpleMailMessage simpleMessage) {
+                sentMessages.add(simpleMessage);
+            }
+        }
+
+        @Bean
+        @Primary
+        public JavaMailSenderImpl recordingMailSender() {
+            return new RecordingMailSender();
+        }
+    }
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    private KafkaTemplate<String, Object> template;
+
+    // the tests share one consumer group, so each counts the offsets it adds
+    private long offsetsBefore;
+
+    @BeforeEach
+    void setUp() {
+        offsetsBefore = Math.max(committedOffsets(), 0);
+        notificationRepository.deleteAll();
+        ((TestConfig.RecordingMailSender) mailSender).sentMessages.clear();
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(broker);
+        template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                producerProps, new StringSerializer(), new JsonSerializer<>(objectMapper)));
+    }
+
+    @Test
+    void commands_shouldBePersistedDispatchedAndCommitted() throws Exception {
+        int users = 6;
+        int perUser = 10;
+        List<UUID> userIds = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            UUID userId = UUID.randomUUID();
+            userIds.add(userId);
+            preferenceRepository.save(NotificationPreference.builder()
+                    .userId(userId)
+                    .type(NotificationType.EMAIL)
+                    .enabled(true)
+                    .contactInfo("user" + u + "@example.com")
+                    .createdOn(LocalDateTime.now())
+                    .updatedOn(LocalDateTime.now())
+                    .build());
+        }
+
+        LocalDateTime remindAt = LocalDateTime.now().plusDays(1);
+        for (UUID userId : userIds) {
+            for (int i = 0; i < perUser; i++) {
+                template.send(TOPIC, userId.toString(), NotificationCommand.builder()
+                        .type(NotificationCommand.Type.NOTIFICATION)
+                        .userId(userId)
+                        .subject("Hello " + i)
+                        .body("Body " + i)
+                        .build());
+            }
+            template.send(TOPIC, userId.toString(), NotificationCommand.builder()
+                    .type(NotificationCommand.Type.REMINDER)
+                    .userId(userId)
+                    .subject("Reminder")
+                    .body("Tomorrow")
+                    .scheduledAt(remindAt)
+                    .build());
+        }
+        // rejected by validation, still consumed and committed
+        template.send(TOPIC, UUID.randomUUID().toString(), NotificationCommand.builder()
+                .type(NotificationCommand.Type.NOTIFICATION)
+                .userId(userIds.get(0))
+                .subject("")
+                .body("Body")
+                .build());
+        // not a command at all
+        template.send(TOPIC, "garbage", "not json");
+        template.flush();
+
+        int expectedRows = users * (perUser + 1);
+        int records = expectedRows + 2;
+        TestConfig.RecordingMailSender recorder = (TestConfig.RecordingMailSender) mailSender;
+
+        await(() -> committedOffsets() == offsetsBefore + records);
+        await(() -> notificationRepository.findAll().stream()
+                .filter(n -> n.getStatus() == NotificationStatus.SUCCEEDED).count() == users * perUser);
+
+        assertEquals(users * perUser, recorder.sentMessages.size());
+        List<Notification> stored = notificationRepository.findAll();
+        assertEquals(expectedRows, stored.size());
+        assertEquals(users, stored.stream()
+                .filter(n -> n.getStatus() == NotificationStatus.PENDING && n.getScheduledAt().isAfter(LocalDateTime.now()))
+                .count());
+    }
+
+    @Test
+    void commands_shouldAllBeStored_whenTheyExceedTheUserRateLimit() throws Exception {
+        UUID userId = UUID.randomUUID();
+        preferenceRepository.save(NotificationPreference.builder()
+                .userId(userId)
+                .type(NotificationType.EMAIL)
+                .enabled(true)
+                .contactInfo("busy@example.com")
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .build());
+
+        // more than the user's burst of 20, all at once
+        int commands = 30;
+        for (int i = 0; i < commands; i++) {
+            template.send(TOPIC, userId.toString(), NotificationCommand.builder()
+                    .type(NotificationCommand.Type.NOTIFICATION)
+                    .userId(userId)
+                    .subject("Update " + i)
+                    .body("Body " + i)
+                    .build());
+        }
+        template.flush();
+
+        await(() -> committedOffsets() == offsetsBefore + commands);
+        await(() -> notificationRepository.findAllByUserIdAndDeleted(userId).stream()
+                .filter(n -> n.getStatus() == NotificationStatus.SUCCEEDED).count() == commands);
+
+        assertEquals(commands, notificationRepository.findAllByUserIdAndDeleted(userId).size());
+    }
+
+    private long committedOffsets() {
+        try (AdminClient admin = AdminClient.create(Map.of(
+                AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()))) {
+            Map<TopicPartition, OffsetAndMetadata> offsets =
+                    admin.listConsumerGroupOffsets(GROUP).partitionsToOffsetAndMetadata().get();
+            return offsets.values().stream().mapToLong(OffsetAndMetadata::offset).sum();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within 30s");
+            }
+            Thread.sleep(100);
+        }
+    }
+}
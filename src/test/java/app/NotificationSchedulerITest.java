@@ -0,0 +1,434 @@
+package app;
+
+import com.example.notification_service.Application;
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.model.Notification;
+import com.example.notification_service.model.NotificationPreference;
+import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.NotificationType;
+import com.example.notification_service.model.OutboxEvent;
+import com.example.notification_service.repository.NotificationPreferenceRepository;
+import com.example.notification_service.repository.NotificationRepository;
+import com.example.notification_service.repository.OutboxEventRepository;
+import com.example.notification_service.service.NotificationService;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs several scheduler instances side by side against one database, the way several
+ * service nodes would, and checks that every due notification is sent exactly once.
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schedulerdb;MODE=MYSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "notification.scheduler.batch-size=20",
+        "notification.timer.enabled=false",
+        "notification.mail.domain-rate-limit.enabled=false"
+})
+@Import(NotificationSchedulerITest.TestConfig.class)
+class NotificationSchedulerITest {
+
+    private static final int NODES = 4;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        static class RecordingMailSender extends JavaMailSenderImpl {
+
+            private final Queue<SimpleMailMessage> sentMessages = new ConcurrentLinkedQueue<>();
+
+            @Override
+            public void send(@NotNull SimpleMailMessage simpleMessage) {
+                try {
+                    // keep the nodes busy long enough to overlap
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sentMessages.add(simpleMessage);
+            }
+        }
+
+        @Bean
+        @Primary
+        public JavaMailSenderImpl recordingMailSender() {
+            return new RecordingMailSender();
+        }
+    }
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private NotificationProperties properties;
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void cleanDbAndState() {
+        notificationRepository.deleteAll();
+        preferenceRepository.deleteAll();
+        outboxEventRepository.deleteAll();
+        sentMessages().clear();
+    }
+
+    @Test
+    void processDueNotifications_shouldSendEachNotificationOnce_whenSeveralNodesRunConcurrently() throws Exception {
+        List<UUID> ids = createDueNotifications(300);
+
+        List<NotificationService> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(newNode());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(NODES);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> runs = new ArrayList<>();
+            for (NotificationService node : nodes) {
+                runs.add(executor.submit(() -> {
+                    start.await();
+                    node.processDueNotifications();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> run : runs) {
+                run.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> subjects = sentMessages().stream().map(SimpleMailMessage::getSubject).toList();
+        assertEquals(ids.size(), subjects.size());
+        assertEquals(ids.size(), new HashSet<>(subjects).size());
+
+        notificationRepository.findAllById(ids).forEach(n -> {
+            assertEquals(NotificationStatus.SUCCEEDED, n.getStatus());
+            assertNull(n.getClaimedBy());
+        });
+    }
+
+    @Test
+    void processDueNotifications_shouldTakeOverBatch_whenLeaseOfCrashedNodeExpired() {
+        List<UUID> ids = createDueNotifications(5);
+        LocalDateTime claimedAt = LocalDateTime.now().minusMinutes(10);
+        notificationRepository.claim(ids, "crashed-node/1", claimedAt, claimedAt.plusMinutes(5));
+
+        newNode().processDueNotifications();
+
+        assertEquals(5, sentMessages().size());
+        notificationRepository.findAllById(ids)
+                .forEach(n -> assertEquals(NotificationStatus.SUCCEEDED, n.getStatus()));
+    }
+
+    @Test
+    void processDueNotifications_shouldLeaveBatchAlone_whileLeaseOfOtherNodeIsValid() {
+        List<UUID> ids = createDueNotifications(5);
+        LocalDateTime now = LocalDateTime.now();
+        notificationRepository.claim(ids, "busy-node/1", now, now.plusMinutes(5));
+
+        newNode().processDueNotifications();
+
+        assertTrue(sentMessages().isEmpty());
+        notificationRepository.findAllById(ids)
+                .forEach(n -> assertEquals(NotificationStatus.IN_FLIGHT, n.getStatus()));
+    }
+
+    @Test
+    void claim_shouldLeaveRowsThatAreNotDueYet() {
+        UUID due = createDueNotifications(1).get(0);
+        Notification retry = notificationRepository.findById(due).orElseThrow();
+        UUID later = notificationRepository.save(Notification.builder()
+                .userId(retry.getUserId())
+                .subject("Retry")
+                .body("Rescheduled after a failed attempt")
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.PENDING)
+                .created(LocalDateTime.now())
+                .scheduledAt(LocalDateTime.now().plusMinutes(10))
+                .deleted(false)
+                .attempts(1)
+                .build()).getId();
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(1, notificationRepository.claim(List.of(due, later), "node/1", now, now.plusMinutes(5)));
+
+        assertEquals(NotificationStatus.PENDING, notificationRepository.findById(later).orElseThrow().getStatus());
+        assertEquals(1, notificationRepository.claim(List.of(later), "node/1", now, now.plusMinutes(15), now.plusMinutes(5)));
+    }
+
+    @Test
+    void extendLease_shouldKeepBatchFromBeingTakenOver() {
+        List<UUID> ids = createDueNotifications(2);
+        LocalDateTime claimedAt = LocalDateTime.now().minusMinutes(10);
+        notificationRepository.claim(ids, "slow-node/1", claimedAt, claimedAt.plusMinutes(5));
+
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(2, notificationRepository.extendLease("slow-node/1", now.plusMinutes(5)));
+
+        newNode().processDueNotifications();
+
+        assertTrue(sentMessages().isEmpty());
+        notificationRepository.findAllById(ids).forEach(n -> assertEquals("slow-node/1", n.getClaimedBy()));
+    }
+
+    @Test
+    void recordResults_shouldWriteOutboxEvents_forFinalStatusesOnly() {
+        List<UUID> ids = createDueNotifications(3);
+        LocalDateTime now = LocalDateTime.now();
+        notificationRepository.claim(ids, "node/1", now, now.plusMinutes(5));
+
+        List<Notification> claimed = notificationRepository.findAllByClaimedBy("node/1");
+        Map<UUID, NotificationStatus> outcome = Map.of(
+                ids.get(0), NotificationStatus.SUCCEEDED,
+                ids.get(1), NotificationStatus.FAILED,
+                ids.get(2), NotificationStatus.PENDING);
+        claimed.forEach(n -> {
+            n.setStatus(outcome.get(n.getId()));
+            n.setLastError(n.getStatus() == NotificationStatus.FAILED ? "mailbox unavailable" : null);
+        });
+
+        notificationRepository.recordResults("node/1", claimed, true);
+
+        List<OutboxEvent> events = outboxEventRepository.findAll();
+        assertEquals(2, events.size());
+        Map<UUID, OutboxEvent> byNotification = new HashMap<>();
+        events.forEach(e -> byNotification.put(e.getNotificationId(), e));
+        assertEquals(NotificationStatus.SUCCEEDED, byNotification.get(ids.get(0)).getStatus());
+        assertEquals(NotificationStatus.FAILED, byNotification.get(ids.get(1)).getStatus());
+        assertEquals("mailbox unavailable", byNotification.get(ids.get(1)).getLastError());
+        assertNotNull(byNotification.get(ids.get(0)).getUserId());
+        assertNotNull(byNotification.get(ids.get(0)).getOccurredAt());
+    }
+
+    @Test
+    void recordResults_shouldStoreLongErrorsCutToTheColumn_andRecordDeliveredRows() {
+        List<UUID> ids = createDueNotifications(2);
+        LocalDateTime now = LocalDateTime.now();
+        notificationRepository.claim(ids, "node/1", now, now.plusMinutes(5));
+        String relayReply = "550 5.1.1 <user@example.com>: Recipient address rejected: " + "x".repeat(400);
+
+        List<Notification> claimed = notificationRepository.findAllByClaimedBy("node/1");
+        claimed.forEach(n -> {
+            boolean delivered = n.getId().equals(ids.get(0));
+            n.setStatus(delivered ? NotificationStatus.SUCCEEDED : NotificationStatus.FAILED);
+            n.setLastError(delivered ? null : relayReply);
+        });
+
+        notificationRepository.recordResults("node/1", claimed, true);
+
+        assertEquals(NotificationStatus.SUCCEEDED, notificationRepository.findById(ids.get(0)).orElseThrow().getStatus());
+        Notification failed = notificationRepository.findById(ids.get(1)).orElseThrow();
+        assertEquals(NotificationStatus.FAILED, failed.getStatus());
+        assertEquals(relayReply.substring(0, Notification.MAX_ERROR_LENGTH), failed.getLastError());
+        assertEquals(2, outboxEventRepository.count());
+    }
+
+    @Test
+    void recordResults_shouldBeIgnored_whenLeaseWasTakenOverByAnotherNode() {
+        List<UUID> ids = createDueNotifications(1);
+        LocalDateTime now = LocalDateTime.now();
+        notificationRepository.claim(ids, "slow-node/1", now.minusMinutes(10), now.minusMinutes(5));
+        notificationRepository.claim(ids, "fast-node/1", now, now.plusMinutes(5));
+
+        Notification stale = notificationRepository.findById(ids.get(0)).orElseThrow();
+        stale.setStatus(NotificationStatus.FAILED);
+        notificationRepository.recordResults("slow-node/1", List.of(stale), true);
+
+        Notification fromDb = notificationRepository.findById(ids.get(0)).orElseThrow();
+        assertEquals(NotificationStatus.IN_FLIGHT, fromDb.getStatus());
+        assertEquals("fast-node/1", fromDb.getClaimedBy());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void processDueNotifications_shouldSendOneDigest_forRowsOfOneUserWithinTheWindow() {
+        List<UUID> due = createDueNotifications(3);
+        UUID userId = notificationRepository.findById(due.get(0)).orElseThrow().getUserId();
+        Notification soon = notificationRepository.save(Notification.builder()
+                .userId(userId)
+                .subject("Soon")
+                .body("Due within the window")
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.PENDING)
+                .created(LocalDateTime.now())
+                .scheduledAt(LocalDateTime.now().plusMinutes(5))
+                .deleted(false)
+                .attempts(0)
+                .build());
+        Notification later = notificationRepository.save(Notification.builder()
+                .userId(userId)
+                .subject("Later")
+                .body("Due after the window")
+                .type(NotificationType.EMAIL)
+                .status(NotificationStatus.PENDING)
+                .created(LocalDateTime.now())
+                .scheduledAt(LocalDateTime.now().plusHours(2))
+                .deleted(false)
+                .attempts(0)
+                .build());
+
+        properties.getDigest().setEnabled(true);
+        try {
+            newNode().processDueNotifications();
+        } finally {
+            properties.getDigest().setEnabled(false);
+        }
+
+        assertEquals(1, sentMessages().size());
+        assertEquals("You have 4 new notifications", sentMessages().peek().getSubject());
+        List<UUID> digested = new ArrayList<>(due);
+        digested.add(soon.getId());
+        notificationRepository.findAllById(digested).forEach(n -> {
+            assertEquals(NotificationStatus.SUCCEEDED, n.getStatus());
+            assertNull(n.getClaimedBy());
+        });
+        assertEquals(NotificationStatus.PENDING, notificationRepository.findById(later.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void processDueNotifications_shouldLeaveOtherChannelsRows_outOfTheDigest() {
+        List<UUID> due = createDueNotifications(2);
+        UUID userId = notificationRepository.findById(due.get(0)).orElseThrow().getUserId();
+        LocalDateTime pushAt = LocalDateTime.now().plusMinutes(5);
+        Notification push = notificationRepository.save(Notification.builder()
+                .userId(userId)
+                .subject("Push")
+                .body("Due within the window, but not an email")
+                .type(NotificationType.MOBILE)
+                .status(NotificationStatus.PENDING)
+                .created(LocalDateTime.now())
+                .scheduledAt(pushAt)
+                .deleted(false)
+                .attempts(0)
+                .build());
+
+        properties.getDigest().setEnabled(true);
+        try {
+            newNode().processDueNotifications();
+        } finally {
+            properties.getDigest().setEnabled(false);
+        }
+
+        assertEquals(1, sentMessages().size());
+        assertEquals("You have 2 new notifications", sentMessages().peek().getSubject());
+        Notification untouched = notificationRepository.findById(push.getId()).orElseThrow();
+        assertEquals(NotificationStatus.PENDING, untouched.getStatus());
+        assertEquals(0, untouched.getAttempts());
+        assertNull(untouched.getClaimedBy());
+    }
+
+    @Test
+    void recordResults_shouldFailRowsSharingAnOutcome_inBulk_withOneEventEach() {
+        List<UUID> ids = createDueNotifications(3);
+        LocalDateTime now = LocalDateTime.now();
+        notificationRepository.claim(ids, "node/1", now, now.plusMinutes(5));
+
+        List<Notification> claimed = notificationRepository.findAllByClaimedBy("node/1");
+        claimed.forEach(n -> {
+            n.setStatus(NotificationStatus.FAILED);
+            n.setAttempts(1);
+            n.setLastError("digest rejected");
+        });
+
+        notificationRepository.recordResults("node/1", claimed, true);
+
+        notificationRepository.findAllById(ids).forEach(n -> {
+            assertEquals(NotificationStatus.FAILED, n.getStatus());
+            assertEquals(1, n.getAttempts());
+            assertEquals("digest rejected", n.getLastError());
+            assertNull(n.getClaimedBy());
+        });
+        List<OutboxEvent> events = outboxEventRepository.findAll();
+        assertEquals(3, events.size());
+        events.forEach(e -> {
+            assertEquals(NotificationStatus.FAILED, e.getStatus());
+            assertEquals("digest rejected", e.getLastError());
+            assertEquals(1, e.getAttempts());
+        });
+    }
+
+    /**
+     * A second, independent scheduler instance wired to the same database, standing in for
+     * another node of the service.
+     */
+    private NotificationService newNode() {
+        return (NotificationService) beanFactory.autowire(
+                NotificationService.class, AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR, false);
+    }
+
+    private List<UUID> createDueNotifications(int count) {
+        UUID userId = UUID.randomUUID();
+        preferenceRepository.save(NotificationPreference.builder()
+                .userId(userId)
+                .type(NotificationType.EMAIL)
+                .enabled(true)
+                .contactInfo("user@example.com")
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .build());
+
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            notifications.add(Notification.builder()
+                    .userId(userId)
+                    .subject("Due " + i)
+                    .body("Body " + i)
+                    .type(NotificationType.EMAIL)
+                    .status(NotificationStatus.PENDING)
+                    .created(LocalDateTime.now().minusHours(1))
+                    .scheduledAt(LocalDateTime.now().minusMinutes(30))
+                    .deleted(false)
+                    .attempts(0)
+                    .build());
+        }
+
+        return notificationRepository.saveAll(notifications).stream().map(Notification::getId).toList();
+    }
+
+    private Queue<SimpleMailMessage> sentMessages() {
+        return ((TestConfig.RecordingMailSender) mailSender).sentMessages;
+    }
+}
@@ -1,18 +1,25 @@
 package app;
 
 import com.example.notification_service.Application;
+import com.example.notification_service.config.NotificationProperties;
 import com.example.notification_service.exception.DisableNotificationPreferenceException;
+import com.example.notification_service.exception.InvalidCursorException;
 import com.example.notification_service.exception.NotificationPreferenceNotFoundException;
 import com.example.notification_service.model.Notification;
 import com.example.notification_service.model.NotificationPreference;
 import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.NotificationTemplate;
 import com.example.notification_service.model.NotificationType;
 import com.example.notification_service.repository.NotificationPreferenceRepository;
 import com.example.notification_service.repository.NotificationRepository;
+import com.example.notification_service.service.NotificationHistoryPage;
 import com.example.notification_service.service.NotificationService;
+import com.example.notification_service.web.dto.BatchNotificationResult;
 import com.example.notification_service.web.dto.EventReminderRequest;
 import com.example.notification_service.web.dto.NotificationRequest;
+import com.example.notification_service.web.dto.NotificationTemplateRequest;
 import com.example.notification_service.web.dto.NotificationTypeRequest;
+import com.example.notification_service.web.dto.TemplatedNotificationRequest;
 import com.example.notification_service.web.dto.UpsertNotificationPreference;
 import lombok.Getter;
 import lombok.Setter;
@@ -34,7 +41,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -90,6 +99,9 @@ class NotificationServiceITest {
     @Autowired
     private JavaMailSenderImpl mailSender;
 
+    @Autowired
+    private NotificationProperties notificationProperties;
+
     @BeforeEach
     void cleanDbAndState() {
         notificationRepository.deleteAll();
@@ -252,14 +264,38 @@ class NotificationServiceITest {
         notificationRepository.save(n1);
         notificationRepository.save(n2);
 
-        notificationService.clearNotifications(userId);
+        int cleared = notificationService.clearNotifications(userId);
 
+        assertEquals(2, cleared);
         List<Notification> all = notificationRepository.findAll();
         assertEquals(2, all.size());
         assertTrue(all.get(0).isDeleted());
         assertTrue(all.get(1).isDeleted());
     }
 
+    @Test
+    void clearNotifications_shouldLeaveOtherUsersAlone_andCountOnlyRowsItChanged() {
+        UUID userId = UUID.randomUUID();
+        UUID otherUserId = UUID.randomUUID();
+
+        Notification alreadyDeleted = notificationRepository.save(Notification.builder()
+                .userId(userId).subject("A").body("A body").type(NotificationType.EMAIL)
+                .status(NotificationStatus.SUCCEEDED).created(LocalDateTime.now()).deleted(true).build());
+        Notification visible = notificationRepository.save(Notification.builder()
+                .userId(userId).subject("B").body("B body").type(NotificationType.EMAIL)
+                .status(NotificationStatus.SUCCEEDED).created(LocalDateTime.now()).deleted(false).build());
+        Notification otherUsers = notificationRepository.save(Notification.builder()
+                .userId(otherUserId).subject("C").body("C body").type(NotificationType.EMAIL)
+                .status(NotificationStatus.SUCCEEDED).created(LocalDateTime.now()).deleted(false).build());
+
+        assertEquals(1, notificationService.clearNotifications(userId));
+
+        assertTrue(notificationRepository.findById(alreadyDeleted.getId()).orElseThrow().isDeleted());
+        assertTrue(notificationRepository.findById(visible.getId()).orElseThrow().isDeleted());
+        assertFalse(notificationRepository.findById(otherUsers.getId()).orElseThrow().isDeleted());
+        assertEquals(1, notificationService.getNotifications(otherUserId).size());
+    }
+
     @Test
     void changeNotificationPreferenceStatus_shouldUpdateEnabledFlag() {
         UUID userId = UUID.randomUUID();
@@ -595,6 +631,106 @@ class NotificationServiceITest {
         assertNotNull(fromDb.getLastError());
     }
 
+    @Test
+    void acceptBatch_shouldPersistValidItemsAsPending_andReportEveryItemInOrder() {
+        // Spread over enough users to stay within each user's rate limit.
+        List<UUID> userIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UUID userId = UUID.randomUUID();
+            createEnabledPreference(userId, "user" + i + "@example.com");
+            userIds.add(userId);
+        }
+        UUID disabledUserId = UUID.randomUUID();
+        createDisabledPreference(disabledUserId, "disabled@example.com");
+
+        List<NotificationRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            requests.add(new NotificationRequest(userIds.get(i % userIds.size()), "Campaign", "Body " + i));
+        }
+        requests.set(7, new NotificationRequest(disabledUserId, "Campaign", "Body"));
+        requests.set(600, new NotificationRequest(userIds.get(0), "", "Body"));
+
+        List<BatchNotificationResult> results = new ArrayList<>();
+        notificationService.acceptBatch(requests.iterator(), results::addAll);
+
+        assertEquals(1200, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+        assertEquals("Notification preference is disabled!", results.get(7).getError());
+        assertEquals("subject must not be blank", results.get(600).getError());
+
+        List<Notification> stored = notificationRepository.findAll();
+        assertEquals(1198, stored.size());
+        assertTrue(stored.stream().allMatch(n -> n.getStatus() == NotificationStatus.PENDING));
+        assertEquals(NotificationStatus.PENDING, results.get(0).getStatus());
+        assertTrue(notificationRepository.findById(results.get(0).getId()).isPresent());
+    }
+
+    @Test
+    void getNotificationHistory_shouldPageNewestFirst_withoutSkippingOrRepeatingRows() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime base = LocalDateTime.now().withNano(0).minusHours(1);
+
+        List<UUID> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // two rows share a timestamp so the id tie-breaker is exercised
+            LocalDateTime created = base.plusMinutes(i == 3 ? 2 : i);
+            Notification n = notificationRepository.save(Notification.builder()
+                    .userId(userId).subject("S" + i).body("B" + i).type(NotificationType.EMAIL)
+                    .status(NotificationStatus.SUCCEEDED).created(created).deleted(false).build());
+            expected.add(n.getId());
+        }
+        notificationRepository.save(Notification.builder()
+                .userId(userId).subject("gone").body("gone").type(NotificationType.EMAIL)
+                .status(NotificationStatus.SUCCEEDED).created(base.plusMinutes(10)).deleted(true).build());
+
+        List<UUID> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            NotificationHistoryPage page = notificationService.getNotificationHistory(userId, cursor, 2, false);
+            page.items().forEach(item -> seen.add(item.getId()));
+            assertTrue(page.bodies().isEmpty());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(5, seen.size());
+        assertEquals(Set.copyOf(expected), Set.copyOf(seen));
+        assertEquals(expected.get(4), seen.get(0));
+    }
+
+    @Test
+    void getNotificationHistory_shouldLoadBodiesOnlyWhenRequested_andCapPageSize() {
+        UUID userId = UUID.randomUUID();
+        int cap = notificationProperties.getHistory().getMaxPageSize();
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> rows = new ArrayList<>();
+        for (int i = 0; i < cap + 5; i++) {
+            rows.add(Notification.builder()
+                    .userId(userId).subject("S" + i).body("B" + i).type(NotificationType.EMAIL)
+                    .status(NotificationStatus.SUCCEEDED).created(now.minusMinutes(i)).deleted(false).build());
+        }
+        notificationRepository.saveAll(rows);
+
+        NotificationHistoryPage page = notificationService.getNotificationHistory(userId, null, 10_000, true);
+
+        assertEquals(cap, page.items().size());
+        assertEquals(cap, page.bodies().size());
+        assertEquals("B0", page.bodies().get(page.items().get(0).getId()));
+        assertNotNull(page.nextCursor());
+
+        NotificationHistoryPage last = notificationService.getNotificationHistory(userId, page.nextCursor(), 10_000, false);
+
+        assertEquals(5, last.items().size());
+        assertNull(last.nextCursor());
+        assertTrue(last.bodies().isEmpty());
+        assertThrows(InvalidCursorException.class,
+                () -> notificationService.getNotificationHistory(userId, "not-a-cursor", null, false));
+    }
+
     @Test
     void getById_shouldReturnNotification_whenExists() {
         UUID userId = UUID.randomUUID();
@@ -619,6 +755,25 @@ class NotificationServiceITest {
         assertEquals("Y", fromService.getBody());
     }
 
+    @Test
+    void getById_shouldRenderTheTemplateAsItWas_whenTheNotificationWasCreated() {
+        UUID userId = UUID.randomUUID();
+        createEnabledPreference(userId, "u@example.com");
+        String templateId = "welcome-" + userId;
+        notificationService.registerTemplate(templateId, new NotificationTemplateRequest("Hi {{name}}", "Your code is {{code}}"));
+        Notification first = notificationService.acceptTemplated(
+                new TemplatedNotificationRequest(userId, templateId, Map.of("name", "Ana", "code", "1234")));
+
+        NotificationTemplate replaced = notificationService.registerTemplate(templateId,
+                new NotificationTemplateRequest("Hello {{name}}", "Use {{code}} to sign in"));
+        Notification second = notificationService.acceptTemplated(
+                new TemplatedNotificationRequest(userId, templateId, Map.of("name", "Ana", "code", "5678")));
+
+        assertEquals(2, replaced.getVersion());
+        assertEquals("Your code is 1234", notificationService.getById(first.getId()).getBody());
+        assertEquals("Use 5678 to sign in", notificationService.getById(second.getId()).getBody());
+    }
+
     @Test
     void getById_shouldThrow_whenNotExists() {
         UUID randomId = UUID.randomUUID();
@@ -0,0 +1,180 @@
+package app;
+
+import com.example.notification_service.Application;
+import com.example.notification_service.messaging.NotificationStatusEvent;
+import com.example.notification_service.messaging.OutboxRelay;
+import com.example.notification_service.model.NotificationPreference;
+import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.NotificationType;
+import com.example.notification_service.repository.JobLeaseRepository;
+import com.example.notification_service.repository.NotificationPreferenceRepository;
+import com.example.notification_service.repository.OutboxEventRepository;
+import com.example.notification_service.service.NotificationService;
+import com.example.notification_service.web.dto.NotificationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes status changes through the service with the outbox enabled and checks that the
+ * relay publishes them to Kafka in per-user order and then empties the outbox.
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 2, topics = OutboxRelayITest.TOPIC)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outboxdb;MODE=MYSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "notification.outbox.enabled=true",
+        "notification.outbox.topic=" + OutboxRelayITest.TOPIC,
+        "notification.outbox.batch-size=7",
+        "notification.outbox.relay-interval=PT0.2S",
+        "notification.timer.enabled=false",
+        "notification.mail.domain-rate-limit.enabled=false"
+})
+@Import(OutboxRelayITest.TestConfig.class)
+class OutboxRelayITest {
+
+    static final String TOPIC = "notification-status-it";
+
+    @TestConfiguration
+    static class TestConfig {
+
+        static class FlakyMailSender extends JavaMailSenderImpl {
+
+            @Override
+            public void send(@NotNull SimpleMailMessage simpleMessage) {
+                if (simpleMessage.getSubject() != null && simpleMessage.getSubject().startsWith("fail")) {
+                    throw new MailSendException("relay refused");
+                }
+            }
+        }
+
+        @Bean
+        @Primary
+        public JavaMailSenderImpl flakyMailSender() {
+            return new FlakyMailSender();
+        }
+    }
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationPreferenceRepository preferenceRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @Test
+    void statusChanges_shouldReachKafkaInOrderPerUser_andLeaveOutboxEmpty() throws Exception {
+        List<UUID> userIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        userIds.forEach(this::createEnabledPreference);
+
+        Map<UUID, List<UUID>> sentPerUser = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            for (UUID userId : userIds) {
+                String subject = (i % 4 == 3 ? "fail " : "ok ") + i;
+                UUID id = notificationService.sendNotification(new NotificationRequest(userId, subject, "Body")).getId();
+                sentPerUser.computeIfAbsent(userId, k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        Map<UUID, List<NotificationStatusEvent>> receivedPerUser = new HashMap<>();
+        try (Consumer<String, String> consumer = statusConsumer()) {
+            long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            int received = 0;
+            while (received < 30 && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                    NotificationStatusEvent event = objectMapper.readValue(record.value(), NotificationStatusEvent.class);
+                    assertEquals(event.getUserId().toString(), record.key());
+                    receivedPerUser.computeIfAbsent(event.getUserId(), k -> new ArrayList<>()).add(event);
+                    received++;
+                }
+            }
+            assertEquals(30, received);
+        }
+
+        for (UUID userId : userIds) {
+            List<NotificationStatusEvent> events = receivedPerUser.get(userId);
+            assertEquals(sentPerUser.get(userId), events.stream().map(NotificationStatusEvent::getNotificationId).toList());
+            assertEquals(NotificationStatus.FAILED, events.get(3).getStatus());
+            assertEquals("relay refused", events.get(3).getLastError());
+            assertEquals(NotificationStatus.SUCCEEDED, events.get(4).getStatus());
+        }
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (outboxEventRepository.count() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void relayLease_shouldBeHeldByOneNodeAtATime() {
+        LocalDateTime now = LocalDateTime.now();
+        String lease = OutboxRelay.LEASE_NAME + "-it";
+
+        assertTrue(jobLeaseRepository.tryAcquire(lease, "node-a", now, now.plusSeconds(30)));
+        assertFalse(jobLeaseRepository.tryAcquire(lease, "node-b", now, now.plusSeconds(30)));
+        assertTrue(jobLeaseRepository.tryAcquire(lease, "node-a", now.plusSeconds(10), now.plusSeconds(40)));
+        assertTrue(jobLeaseRepository.tryAcquire(lease, "node-b", now.plusSeconds(41), now.plusSeconds(71)));
+    }
+
+    private Consumer<String, String> statusConsumer() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("status-reader", "true", broker);
+        props.put("auto.offset.reset", "earliest");
+        Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(
+                props, new StringDeserializer(), new StringDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+        return consumer;
+    }
+
+    private void createEnabledPreference(UUID userId) {
+        preferenceRepository.save(NotificationPreference.builder()
+                .userId(userId)
+                .type(NotificationType.EMAIL)
+                .enabled(true)
+                .contactInfo(userId + "@example.com")
+                .createdOn(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .build());
+    }
+}
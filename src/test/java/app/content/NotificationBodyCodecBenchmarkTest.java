@@ -0,0 +1,111 @@
+package app.content;
+
+import com.example.notification_service.content.NotificationBodyCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class NotificationBodyCodecBenchmarkTest {
+
+    private static final int BODIES = 200;
+    private static final int ROUNDS = 20;
+
+    @Test
+    void compressedBodies_shouldRoundTrip_atAFractionOfTheSpace() {
+        List<String> bodies = bodies();
+
+        long rawBytes = 0;
+        long compressedBytes = 0;
+        for (String body : bodies) {
+            byte[] bytes = NotificationBodyCodec.compress(body);
+            rawBytes += body.getBytes(StandardCharsets.UTF_8).length;
+            compressedBytes += bytes.length;
+            assertEquals(body, NotificationBodyCodec.decompress(bytes));
+        }
+
+        double ratio = (double) rawBytes / compressedBytes;
+        assertTrue(ratio >= 3, "compression ratio " + ratio);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark_encodeAndDecode() {
+        List<String> bodies = bodies();
+        long rawBytes = 0;
+        long compressedBytes = 0;
+        List<byte[]> compressed = new ArrayList<>();
+        for (String body : bodies) {
+            byte[] bytes = NotificationBodyCodec.compress(body);
+            rawBytes += body.getBytes(StandardCharsets.UTF_8).length;
+            compressedBytes += bytes.length;
+            compressed.add(bytes);
+        }
+
+        // Warm up, then time.
+        encodeAll(bodies);
+        decodeAll(compressed);
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            encodeAll(bodies);
+            encodeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            decodeAll(compressed);
+            decodeNanos += System.nanoTime() - start;
+        }
+
+        log.info("Notification body codec ({} bodies, {} bytes on average): {} bytes raw, {} bytes deflated "
+                        + "({}x), encode {} us/body, decode {} us/body",
+                BODIES, rawBytes / BODIES, rawBytes, compressedBytes,
+                String.format("%.1f", (double) rawBytes / compressedBytes),
+                String.format("%.1f", encodeNanos / 1_000.0 / (BODIES * ROUNDS)),
+                String.format("%.1f", decodeNanos / 1_000.0 / (BODIES * ROUNDS)));
+    }
+
+    private static List<String> bodies() {
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < BODIES; i++) {
+            bodies.add(orderEmail(i));
+        }
+        return bodies;
+    }
+
+    private static void encodeAll(List<String> bodies) {
+        for (String body : bodies) {
+            NotificationBodyCodec.compress(body);
+        }
+    }
+
+    private static void decodeAll(List<byte[]> compressed) {
+        for (byte[] bytes : compressed) {
+            NotificationBodyCodec.decompress(bytes);
+        }
+    }
+
+    private static String orderEmail(int seed) {
+        StringBuilder html = new StringBuilder()
+                .append("<html><head><style>td { padding: 4px; font-family: sans-serif; }</style></head><body>")
+                .append("<h1>Thanks for your order, customer ").append(seed).append("!</h1>")
+                .append("<p>Order <b>").append(UUID.randomUUID()).append("</b> has shipped and is on its way.</p>")
+                .append("<table class=\"items\"><tr><th>Item</th><th>Qty</th><th>Price</th></tr>");
+        for (int i = 0; i < 10 + seed % 20; i++) {
+            html.append("<tr><td class=\"item\">Product #").append(seed * 31 + i)
+                    .append("</td><td class=\"qty\">").append(1 + i % 3)
+                    .append("</td><td class=\"price\">").append(i * 7 % 100).append(".99 EUR</td></tr>");
+        }
+        return html.append("</table><p>Questions? Reply to this email or visit our help centre.</p>")
+                .append("<p style=\"color: #888\">You receive this email because you have an account with us.</p>")
+                .append("</body></html>")
+                .toString();
+    }
+}
@@ -0,0 +1,40 @@
+package app.content;
+
+import com.example.notification_service.content.NotificationBodyCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationBodyCodecUTest {
+
+    @Test
+    void decompress_shouldRestoreBody_includingMultiByteCharacters() {
+        String body = "<p>Здравейте, ваша поръчка е изпратена ✓</p>".repeat(50);
+
+        byte[] compressed = NotificationBodyCodec.compress(body);
+
+        assertTrue(compressed.length < body.length());
+        assertEquals(body, NotificationBodyCodec.decompress(compressed));
+    }
+
+    @Test
+    void decompress_shouldRestoreEmptyBody() {
+        assertEquals("", NotificationBodyCodec.decompress(NotificationBodyCodec.compress("")));
+    }
+
+    @Test
+    void decompress_shouldThrow_whenStreamIsTruncated() {
+        byte[] compressed = NotificationBodyCodec.compress("<p>Your order has shipped</p>".repeat(20));
+
+        assertThrows(IllegalStateException.class,
+                () -> NotificationBodyCodec.decompress(Arrays.copyOf(compressed, compressed.length / 2)));
+    }
+
+    @Test
+    void decompress_shouldThrow_whenBytesAreNotDeflated() {
+        assertThrows(IllegalStateException.class,
+                () -> NotificationBodyCodec.decompress("not deflated".getBytes()));
+    }
+}
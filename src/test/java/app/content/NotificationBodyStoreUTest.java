@@ -0,0 +1,84 @@
+package app.content;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.content.NotificationBodyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NotificationBodyStoreUTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private NotificationBodyStore store;
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("\"");
+        store = new NotificationBodyStore(jdbcTemplate, new NotificationProperties(), new SimpleMeterRegistry());
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void put_shouldWriteEachBodyOncePerTransaction_andCacheItOnCommit() {
+        String campaign = "Spring sale: everything 20% off";
+
+        for (int i = 0; i < 500; i++) {
+            assertEquals(NotificationBodyStore.hash(campaign), store.put(campaign));
+        }
+        store.put("Your order has shipped");
+
+        verify(jdbcTemplate, times(2)).update(anyString(), any(Object[].class));
+
+        commit();
+
+        long missesBefore = store.stats().missCount();
+        assertEquals(campaign, store.get(NotificationBodyStore.hash(campaign)));
+        assertEquals(missesBefore, store.stats().missCount());
+    }
+
+    @Test
+    void put_shouldWriteAgain_inTheNextTransaction_whenTheFirstRolledBack() {
+        String body = "Rolled back";
+
+        store.put(body);
+        rollback();
+        TransactionSynchronizationManager.initSynchronization();
+        store.put(body);
+
+        verify(jdbcTemplate, times(2)).update(anyString(), any(Object[].class));
+    }
+
+    private static void commit() {
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private static void rollback() {
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
@@ -0,0 +1,114 @@
+package app.mail;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.mail.AdaptiveConcurrencyLimiter;
+import com.example.notification_service.mail.MailFailureClassifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class AdaptiveConcurrencyLimiterBenchmarkTest {
+
+    private static final int MESSAGES = 400;
+    private static final int THREADS = 16;
+    private static final int RELAY_CAPACITY = 4;
+
+    private FakeSmtpServer server;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new FakeSmtpServer();
+        server.setDataDelayMillis(15);
+        server.setMaxConcurrentMessages(RELAY_CAPACITY);
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void limiter_shouldSettleBelowRelayCapacity_andCutThrottledSends() throws Exception {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(server.getPort());
+
+        int unlimitedFailures = run(sender::send);
+        int unlimitedThrottled = server.getThrottled();
+
+        NotificationProperties properties = new NotificationProperties();
+        properties.getMail().getConcurrency().setInitialLimit(THREADS);
+        properties.getMail().getConcurrency().setMaxLimit(THREADS);
+        properties.getMail().getConcurrency().setLatencyThreshold(Duration.ofSeconds(2));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                properties, new MailFailureClassifier(), new SimpleMeterRegistry());
+
+        int limitedFailures = run(message -> limiter.send(() -> sender.send(message)));
+        int limitedThrottled = server.getThrottled() - unlimitedThrottled;
+
+        log.info("Adaptive limiter ({} messages, {} threads, relay takes {} at once): "
+                        + "without limiter {} throttled, with limiter {} throttled, settled at limit {}",
+                MESSAGES, THREADS, RELAY_CAPACITY, unlimitedThrottled, limitedThrottled, limiter.getLimit());
+
+        assertEquals(unlimitedThrottled, unlimitedFailures);
+        assertEquals(limitedThrottled, limitedFailures);
+        assertTrue(limitedThrottled < unlimitedThrottled / 2);
+        assertTrue(limiter.getLimit() <= RELAY_CAPACITY + 2);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private int run(Consumer<SimpleMailMessage> send) throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < MESSAGES) {
+                        try {
+                            send.accept(message(i));
+                        } catch (MailException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return failures.get();
+    }
+
+    private static SimpleMailMessage message(int i) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo("user" + i + "@example.com");
+        message.setSubject("Message " + i);
+        message.setText("Body " + i);
+        return message;
+    }
+}
@@ -0,0 +1,138 @@
+package app.mail;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.mail.AdaptiveConcurrencyLimiter;
+import com.example.notification_service.mail.MailFailureClassifier;
+import com.example.notification_service.mail.MailSendSlotUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterUTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void send_shouldRaiseLimit_whileSendsAreFastAndLimitIsInUse() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(1, 8, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 20; i++) {
+            limiter.send(() -> clock.addAndGet(Duration.ofMillis(10).toNanos()));
+        }
+
+        assertTrue(limiter.getLimit() > 1);
+    }
+
+    @Test
+    void send_shouldNotRaiseLimit_whenFewerSendsThanHalfTheLimitAreInFlight() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(8, 16, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 100; i++) {
+            limiter.send(() -> { });
+        }
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void send_shouldBackOff_whenRelayThrottles() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10, 16, Duration.ofSeconds(1));
+
+        assertThrows(MailSendException.class, () -> limiter.send(() -> {
+            throw new MailSendException("421 Too many concurrent messages");
+        }));
+
+        assertEquals(9, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void send_shouldBackOff_whenSendIsSlowerThanThreshold() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10, 16, Duration.ofSeconds(1));
+
+        limiter.send(() -> clock.addAndGet(Duration.ofSeconds(2).toNanos()));
+
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    void send_shouldKeepLimit_whenFailureIsPermanent() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10, 16, Duration.ofSeconds(1));
+
+        assertThrows(MailParseException.class, () -> limiter.send(() -> {
+            throw new MailParseException("Illegal address");
+        }));
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void send_shouldNotGoBelowMinLimit() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(1, 16, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 10; i++) {
+            limiter.send(() -> clock.addAndGet(Duration.ofSeconds(2).toNanos()));
+        }
+
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void send_shouldWaitForSlot_andFailAfterAcquireTimeout() throws Exception {
+        NotificationProperties properties = properties(1, 1, Duration.ofSeconds(1));
+        properties.getMail().getConcurrency().setAcquireTimeout(Duration.ofMillis(50));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                properties, new MailFailureClassifier(), meterRegistry, clock::get);
+
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.execute(() -> limiter.send(() -> {
+                sending.countDown();
+                await(done);
+            }));
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+            MailSendException e = assertThrows(MailSendSlotUnavailableException.class, () -> limiter.send(() -> { }));
+            assertTrue(e.getMessage().contains("free mail send slot"));
+            assertEquals(1.0, meterRegistry.get("notification.mail.concurrency.inflight").gauge().value());
+        } finally {
+            done.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter(int initialLimit, int maxLimit, Duration latencyThreshold) {
+        return new AdaptiveConcurrencyLimiter(properties(initialLimit, maxLimit, latencyThreshold),
+                new MailFailureClassifier(), meterRegistry, clock::get);
+    }
+
+    private static NotificationProperties properties(int initialLimit, int maxLimit, Duration latencyThreshold) {
+        NotificationProperties properties = new NotificationProperties();
+        NotificationProperties.Mail.Concurrency concurrency = properties.getMail().getConcurrency();
+        concurrency.setInitialLimit(initialLimit);
+        concurrency.setMaxLimit(maxLimit);
+        concurrency.setLatencyThreshold(latencyThreshold);
+        return properties;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package app.mail;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.mail.DomainRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainRateLimiterUTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void tryAcquire_shouldAllowBurst_thenDeferUntilNextToken() {
+        DomainRateLimiter limiter = newLimiter(10, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Duration.ZERO, limiter.tryAcquire("user" + i + "@example.com", 0));
+        }
+
+        assertEquals(Duration.ofMillis(100), limiter.tryAcquire("late@example.com", 0));
+        assertEquals(1.0, meterRegistry.get("notification.mail.domain.deferred").counter().count());
+    }
+
+    @Test
+    void tryAcquire_shouldRefillAtConfiguredRate() {
+        DomainRateLimiter limiter = newLimiter(10, 1);
+
+        assertEquals(Duration.ZERO, limiter.tryAcquire("a@example.com", 0));
+        assertFalse(limiter.tryAcquire("b@example.com", 0).isZero());
+
+        clock.addAndGet(Duration.ofMillis(100).toNanos());
+
+        assertEquals(Duration.ZERO, limiter.tryAcquire("b@example.com", 0));
+    }
+
+    @Test
+    void tryAcquire_shouldPlaceDeferredMessagesBehindEachOther() {
+        DomainRateLimiter limiter = newLimiter(10, 1);
+        limiter.tryAcquire("a@example.com", 0);
+
+        Duration first = limiter.tryAcquire("b@example.com", 0);
+        Duration third = limiter.tryAcquire("c@example.com", 2);
+
+        assertEquals(Duration.ofMillis(100), first);
+        assertEquals(Duration.ofMillis(300), third);
+    }
+
+    @Test
+    void tryAcquire_shouldKeepSeparateBucketsPerDomain_ignoringCase() {
+        DomainRateLimiter limiter = newLimiter(1, 1);
+
+        assertEquals(Duration.ZERO, limiter.tryAcquire("a@example.com", 0));
+        assertEquals(Duration.ZERO, limiter.tryAcquire("a@other.org", 0));
+        assertFalse(limiter.tryAcquire("b@EXAMPLE.com", 0).isZero());
+    }
+
+    @Test
+    void tryAcquire_shouldUseDomainOverride() {
+        NotificationProperties properties = properties(10, 1);
+        properties.getMail().getDomainRateLimit().getDomains().put("slow.example", 2.0);
+        DomainRateLimiter limiter = new DomainRateLimiter(properties, meterRegistry, clock::get);
+
+        limiter.tryAcquire("a@slow.example", 0);
+
+        assertEquals(Duration.ofMillis(500), limiter.tryAcquire("b@slow.example", 0));
+    }
+
+    @Test
+    void tryAcquire_shouldNotLimit_whenContactHasNoDomain() {
+        DomainRateLimiter limiter = newLimiter(1, 1);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Duration.ZERO, limiter.tryAcquire("", 0));
+        }
+    }
+
+    @Test
+    void tryAcquire_shouldHandOutExactlyTheBurst_underParallelCallers() throws Exception {
+        DomainRateLimiter limiter = newLimiter(1, 100);
+        int threads = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int granted = 0;
+                    for (int i = 0; i < 1_000; i++) {
+                        if (limiter.tryAcquire("user@example.com", 0).isZero()) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+
+            int granted = 0;
+            for (Future<Integer> result : results) {
+                granted += result.get();
+            }
+            assertEquals(100, granted);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private DomainRateLimiter newLimiter(double permitsPerSecond, int burst) {
+        return new DomainRateLimiter(properties(permitsPerSecond, burst), meterRegistry, clock::get);
+    }
+
+    private static NotificationProperties properties(double permitsPerSecond, int burst) {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getMail().getDomainRateLimit().setPermitsPerSecond(permitsPerSecond);
+        properties.getMail().getDomainRateLimit().setBurst(burst);
+        return properties;
+    }
+}
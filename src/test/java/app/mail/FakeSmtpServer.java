@@ -0,0 +1,214 @@
+package app.mail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal local SMTP stand-in for tests and benchmarks. It speaks just enough of the
+ * protocol for Jakarta Mail (EHLO, MAIL, RCPT, DATA, RSET, NOOP, QUIT), accepts every
+ * message up to an optional concurrency limit, refuses configured recipients with 550 and
+ * counts connections, transactions and recipients.
+ */
+public class FakeSmtpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger messages = new AtomicInteger();
+    private final AtomicInteger recipients = new AtomicInteger();
+    private final AtomicInteger deliveredRecipients = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final AtomicInteger messagesInProgress = new AtomicInteger();
+
+    private volatile long greetingDelayMillis;
+    private volatile long dataDelayMillis;
+    private volatile int maxConcurrentMessages = Integer.MAX_VALUE;
+    private volatile Set<String> rejectedRecipients = Set.of();
+
+    public FakeSmtpServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Delay before the 220 greeting, standing in for the TLS and AUTH cost of a new connection.
+     */
+    public void setGreetingDelayMillis(long greetingDelayMillis) {
+        this.greetingDelayMillis = greetingDelayMillis;
+    }
+
+    /**
+     * Delay before the message is acknowledged after DATA.
+     */
+    public void setDataDelayMillis(long dataDelayMillis) {
+        this.dataDelayMillis = dataDelayMillis;
+    }
+
+    /**
+     * Messages finishing DATA while this many others are still in progress are refused with
+     * 421, the way a relay throttles a client that opens too many sessions.
+     */
+    public void setMaxConcurrentMessages(int maxConcurrentMessages) {
+        this.maxConcurrentMessages = maxConcurrentMessages;
+    }
+
+    /**
+     * Addresses refused at RCPT TO with 550, the way a relay answers for a mailbox that does
+     * not exist. Compared case-insensitively.
+     */
+    public void setRejectedRecipients(Set<String> rejectedRecipients) {
+        this.rejectedRecipients = rejectedRecipients.stream()
+                .map(r -> r.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public int getThrottled() {
+        return throttled.get();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public int getMessages() {
+        return messages.get();
+    }
+
+    public int getRecipients() {
+        return recipients.get();
+    }
+
+    /**
+     * Accepted recipients of the messages that were queued, as opposed to every RCPT TO seen.
+     */
+    public int getDeliveredRecipients() {
+        return deliveredRecipients.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            socket.close();
+        }
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                openSockets.add(socket);
+                executor.execute(() -> handle(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+
+            sleep(greetingDelayMillis);
+            reply(out, "220 localhost fake SMTP ready");
+
+            int accepted = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "RCPT" -> {
+                        recipients.incrementAndGet();
+                        if (rejectedRecipients.contains(address(line))) {
+                            reply(out, "550 5.1.1 No such user");
+                        } else {
+                            accepted++;
+                            reply(out, "250 OK");
+                        }
+                    }
+                    case "MAIL", "RSET" -> {
+                        accepted = 0;
+                        reply(out, "250 OK");
+                    }
+                    case "NOOP" -> reply(out, "250 OK");
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // discard message content
+                        }
+                        int inProgress = messagesInProgress.incrementAndGet();
+                        try {
+                            sleep(dataDelayMillis);
+                        } finally {
+                            messagesInProgress.decrementAndGet();
+                        }
+                        if (inProgress > maxConcurrentMessages) {
+                            throttled.incrementAndGet();
+                            reply(out, "421 4.7.0 Too many concurrent messages, try again later");
+                        } else {
+                            messages.incrementAndGet();
+                            deliveredRecipients.addAndGet(accepted);
+                            reply(out, "250 OK queued");
+                        }
+                        accepted = 0;
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    private static String address(String rcptLine) {
+        int start = rcptLine.indexOf('<');
+        int end = rcptLine.indexOf('>', start + 1);
+        String address = start >= 0 && end > start ? rcptLine.substring(start + 1, end) : rcptLine.substring(8).trim();
+        return address.toLowerCase(Locale.ROOT);
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package app.mail;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.mail.MailCircuitBreaker;
+import com.example.notification_service.mail.MailCircuitBreaker.State;
+import com.example.notification_service.mail.MailFailureClassifier;
+import com.example.notification_service.mail.MailRelayUnavailableException;
+import com.example.notification_service.mail.MailSendSlotUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailCircuitBreakerUTest {
+
+    private static final Runnable RELAY_DOWN = () -> {
+        throw new MailSendException("Mail server connection failed");
+    };
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MailCircuitBreaker breaker = newBreaker(3, Duration.ofSeconds(30));
+
+    @Test
+    void send_shouldOpenCircuit_afterConsecutiveTransientFailures() {
+        failTimes(3);
+
+        assertEquals(State.OPEN, breaker.state());
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    void send_shouldNotCountLocalSlotTimeouts_asRelayFailures() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(MailSendSlotUnavailableException.class, () -> breaker.send(() -> {
+                throw new MailSendSlotUnavailableException("Timed out waiting for a free mail send slot");
+            }));
+        }
+
+        assertEquals(State.CLOSED, breaker.state());
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    void send_shouldRejectWithoutCallingRelay_whileOpen() {
+        failTimes(3);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(MailRelayUnavailableException.class, () -> breaker.send(calls::incrementAndGet));
+
+        assertEquals(0, calls.get());
+        assertEquals(1.0, meterRegistry.get("notification.mail.circuit.rejected").counter().count());
+    }
+
+    @Test
+    void send_shouldCloseCircuit_whenProbeSucceedsAfterOpenDuration() {
+        failTimes(3);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertFalse(breaker.isOpen());
+        breaker.send(() -> { });
+
+        assertEquals(State.CLOSED, breaker.state());
+        assertEquals(1.0, meterRegistry.get("notification.mail.circuit.transitions")
+                .tags("from", "HALF_OPEN", "to", "CLOSED").counter().count());
+    }
+
+    @Test
+    void send_shouldReopenCircuit_whenProbeFails() {
+        failTimes(3);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertThrows(MailSendException.class, () -> breaker.send(RELAY_DOWN));
+
+        assertEquals(State.OPEN, breaker.state());
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    void send_shouldLetOnlyOneProbeThrough_whileHalfOpen() {
+        failTimes(3);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        breaker.send(() -> assertThrows(MailRelayUnavailableException.class, () -> breaker.send(() -> { })));
+
+        assertEquals(State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void send_shouldNotCountPermanentFailures_againstTheRelay() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(MailParseException.class, () -> breaker.send(() -> {
+                throw new MailParseException("Illegal address");
+            }));
+        }
+
+        assertEquals(State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void send_shouldResetFailureCount_afterSuccess() {
+        failTimes(2);
+        breaker.send(() -> { });
+        failTimes(2);
+
+        assertEquals(State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void stateGauge_shouldFollowTransitions() {
+        assertEquals(0.0, meterRegistry.get("notification.mail.circuit.state").gauge().value());
+
+        failTimes(3);
+
+        assertEquals(1.0, meterRegistry.get("notification.mail.circuit.state").gauge().value());
+    }
+
+    private void failTimes(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThrows(MailSendException.class, () -> breaker.send(RELAY_DOWN));
+        }
+    }
+
+    private MailCircuitBreaker newBreaker(int failureThreshold, Duration openDuration) {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getMail().getCircuitBreaker().setFailureThreshold(failureThreshold);
+        properties.getMail().getCircuitBreaker().setOpenDuration(openDuration);
+        return new MailCircuitBreaker(properties, new MailFailureClassifier(), meterRegistry, clock::get);
+    }
+}
@@ -0,0 +1,90 @@
+package app.mail;
+
+import com.example.notification_service.mail.MailFailureClassifier;
+import com.example.notification_service.mail.MailFailureClassifier.Kind;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
+
+import java.net.ConnectException;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailFailureClassifierUTest {
+
+    private final MailFailureClassifier classifier = new MailFailureClassifier();
+
+    @Test
+    void classify_shouldBePermanent_whenMessageCannotBeParsed() {
+        assertEquals(Kind.PERMANENT,
+                classifier.classify(new MailParseException(new AddressException("Illegal address", "a@"))));
+    }
+
+    @Test
+    void classify_shouldBePermanent_whenRelayRejectsRecipientWith5xx() throws Exception {
+        InternetAddress recipient = new InternetAddress("nobody@example.com");
+        SendFailedException rejected = new SendFailedException("Invalid Addresses",
+                new SMTPAddressFailedException(recipient, "RCPT TO", 550, "5.1.1 User unknown"));
+
+        assertEquals(Kind.PERMANENT, classifier.classify(new MailSendException(Map.of("message", rejected))));
+    }
+
+    @Test
+    void classify_shouldBeTransient_whenRelayDefersRecipientWith4xx() throws Exception {
+        InternetAddress recipient = new InternetAddress("busy@example.com");
+        SendFailedException deferred = new SendFailedException("Invalid Addresses",
+                new SMTPAddressFailedException(recipient, "RCPT TO", 452, "4.2.2 Mailbox full"));
+
+        assertEquals(Kind.TRANSIENT, classifier.classify(new MailSendException(Map.of("message", deferred))));
+    }
+
+    @Test
+    void classify_shouldBePermanent_whenMessageIsRejectedAfterData() {
+        SMTPSendFailedException rejected = new SMTPSendFailedException("DATA", 554, "5.7.1 Message rejected",
+                null, new Address[0], new Address[0], new Address[0]);
+
+        assertEquals(Kind.PERMANENT, classifier.classify(new MailSendException(Map.of("message", rejected))));
+    }
+
+    @Test
+    void classify_shouldBeTransient_whenRelayIsUnreachable() {
+        MessagingException cause = new MessagingException("Couldn't connect", new ConnectException("Connection refused"));
+
+        assertEquals(Kind.TRANSIENT,
+                classifier.classify(new MailSendException("Mail server connection failed", cause)));
+    }
+
+    @Test
+    void classify_shouldBeTransient_whenAuthenticationFails() {
+        assertEquals(Kind.TRANSIENT,
+                classifier.classify(new MailAuthenticationException(new AuthenticationFailedException("535"))));
+    }
+
+    @Test
+    void classify_shouldBeTransient_forUnknownFailures() {
+        assertEquals(Kind.TRANSIENT, classifier.classify(new IllegalStateException("boom")));
+    }
+
+    @Test
+    void refusedRecipients_shouldListInvalidAddressesOnly() throws Exception {
+        SendFailedException partlyRefused = new SendFailedException("Invalid Addresses", null,
+                new Address[0],
+                new Address[]{new InternetAddress("ok@example.com"), new InternetAddress("busy@example.com")},
+                new Address[]{new InternetAddress("Nobody@Example.com")});
+
+        assertEquals(Set.of("nobody@example.com"),
+                classifier.refusedRecipients(new MailSendException(Map.of("message", partlyRefused))));
+        assertTrue(classifier.refusedRecipients(new MailSendException("Connection refused")).isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+package app.mail;
+
+import com.example.notification_service.mail.PooledJavaMailSender;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class PooledJavaMailSenderBenchmarkTest {
+
+    private static final int MESSAGES = 200;
+    private static final int THREADS = 4;
+
+    private FakeSmtpServer server;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new FakeSmtpServer();
+        // stands in for the STARTTLS + AUTH handshake of a real relay
+        server.setGreetingDelayMillis(20);
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void pooledSender_shouldReuseConnections_insteadOfOpeningOnePerMessage() throws Exception {
+        JavaMailSenderImpl plain = configure(new JavaMailSenderImpl());
+        run(plain);
+        int plainConnections = server.getConnections();
+
+        PooledJavaMailSender pooled = configure(new PooledJavaMailSender(THREADS, Duration.ofSeconds(10), Duration.ofSeconds(10)));
+        try {
+            run(pooled);
+        } finally {
+            pooled.destroy();
+        }
+        int pooledConnections = server.getConnections() - plainConnections;
+
+        assertEquals(2 * MESSAGES, server.getMessages());
+        assertEquals(MESSAGES, plainConnections);
+        assertTrue(pooledConnections <= THREADS);
+        assertEquals(MESSAGES - pooledConnections, pooled.getConnectionsReused());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark_pooledVersusPerMessageConnections() throws Exception {
+        double plainRate = run(configure(new JavaMailSenderImpl()));
+
+        PooledJavaMailSender pooled = configure(new PooledJavaMailSender(THREADS, Duration.ofSeconds(10), Duration.ofSeconds(10)));
+        double pooledRate;
+        try {
+            pooledRate = run(pooled);
+        } finally {
+            pooled.destroy();
+        }
+
+        log.info("SMTP benchmark ({} messages, {} threads): without pooling {} msg/s, with pooling {} msg/s",
+                MESSAGES, THREADS, String.format("%.1f", plainRate), String.format("%.1f", pooledRate));
+    }
+
+    @Test
+    void pooledSender_shouldReconnect_whenPooledConnectionWasDropped() throws Exception {
+        PooledJavaMailSender pooled = configure(new PooledJavaMailSender(1, Duration.ofHours(1), Duration.ofSeconds(10)));
+        try {
+            pooled.send(message(0));
+            server.close();
+
+            FakeSmtpServer restarted = new FakeSmtpServer();
+            try {
+                pooled.setPort(restarted.getPort());
+                pooled.send(message(1));
+
+                assertEquals(1, restarted.getMessages());
+                assertEquals(2, pooled.getConnectionsOpened());
+            } finally {
+                restarted.close();
+            }
+        } finally {
+            pooled.destroy();
+        }
+    }
+
+    private double run(JavaMailSenderImpl sender) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < MESSAGES; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> sender.send(message(index))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            return MESSAGES / seconds;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private <T extends JavaMailSenderImpl> T configure(T sender) {
+        sender.setHost("localhost");
+        sender.setPort(server.getPort());
+        return sender;
+    }
+
+    private static SimpleMailMessage message(int index) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("bench@example.com");
+        message.setTo("user" + index + "@example.com");
+        message.setSubject("Benchmark " + index);
+        message.setText("Body " + index);
+        return message;
+    }
+}
@@ -0,0 +1,83 @@
+package app.notification;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.mail.MailFailureClassifier;
+import com.example.notification_service.service.ExponentialBackoffRetryPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExponentialBackoffRetryPolicyUTest {
+
+    private static final Exception TRANSIENT = new MailSendException("Mail server connection failed");
+
+    @Test
+    void nextDelay_shouldStayWithinDoublingCap_forEachAttempt() {
+        ExponentialBackoffRetryPolicy policy = policy(10, new SplittableRandom(42));
+
+        for (int attempt = 1; attempt < 10; attempt++) {
+            Duration cap = Duration.ofMinutes(1L << (attempt - 1)).compareTo(Duration.ofHours(1)) > 0
+                    ? Duration.ofHours(1)
+                    : Duration.ofMinutes(1L << (attempt - 1));
+            for (int i = 0; i < 200; i++) {
+                Duration delay = policy.nextDelay(attempt, TRANSIENT).orElseThrow();
+                assertFalse(delay.isNegative());
+                assertTrue(delay.compareTo(cap) <= 0, "attempt " + attempt + " waited " + delay);
+            }
+        }
+    }
+
+    @Test
+    void nextDelay_shouldSpreadRetries_insteadOfReturningOneFixedDelay() {
+        ExponentialBackoffRetryPolicy policy = policy(3, new SplittableRandom(7));
+
+        Set<Duration> delays = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            delays.add(policy.nextDelay(2, TRANSIENT).orElseThrow());
+        }
+
+        assertTrue(delays.size() > 50);
+    }
+
+    @Test
+    void nextDelay_shouldGiveUp_whenMaxAttemptsReached() {
+        ExponentialBackoffRetryPolicy policy = policy(3, new SplittableRandom(1));
+
+        assertTrue(policy.nextDelay(2, TRANSIENT).isPresent());
+        assertEquals(Optional.empty(), policy.nextDelay(3, TRANSIENT));
+    }
+
+    @Test
+    void nextDelay_shouldGiveUp_whenFailureIsPermanent() {
+        ExponentialBackoffRetryPolicy policy = policy(3, new SplittableRandom(1));
+
+        assertEquals(Optional.empty(), policy.nextDelay(1, new MailParseException("Illegal address")));
+    }
+
+    @Test
+    void nextDelay_shouldNotOverflow_forVeryHighAttemptCounts() {
+        ExponentialBackoffRetryPolicy policy = policy(Integer.MAX_VALUE, new SplittableRandom(3));
+
+        Duration delay = policy.nextDelay(1_000, TRANSIENT).orElseThrow();
+
+        assertFalse(delay.isNegative());
+        assertTrue(delay.compareTo(Duration.ofHours(1)) <= 0);
+    }
+
+    private static ExponentialBackoffRetryPolicy policy(int maxAttempts, RandomGenerator random) {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getRetry().setMaxAttempts(maxAttempts);
+        properties.getRetry().setInitialDelay(Duration.ofMinutes(1));
+        properties.getRetry().setMaxDelay(Duration.ofHours(1));
+        return new ExponentialBackoffRetryPolicy(properties, new MailFailureClassifier(), () -> random);
+    }
+}
@@ -1,21 +1,62 @@
 package app.notification;
 
+import com.example.notification_service.channel.ChannelMessage;
+import com.example.notification_service.channel.ChannelResult;
+import com.example.notification_service.channel.NotificationChannel;
+import com.example.notification_service.channel.NotificationChannels;
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.mail.AdaptiveConcurrencyLimiter;
+import com.example.notification_service.mail.DomainRateLimiter;
+import com.example.notification_service.mail.MailCircuitBreaker;
+import com.example.notification_service.mail.MailFailureClassifier;
+import com.example.notification_service.mail.MailRelayUnavailableException;
 import com.example.notification_service.exception.DisableNotificationPreferenceException;
+import com.example.notification_service.exception.InvalidTemplateException;
 import com.example.notification_service.exception.NotificationPreferenceNotFoundException;
+import com.example.notification_service.exception.RateLimitExceededException;
 import com.example.notification_service.model.*;
+import com.example.notification_service.ratelimit.UserRateLimiter;
 import com.example.notification_service.repository.NotificationPreferenceRepository;
 import com.example.notification_service.repository.NotificationRepository;
+import com.example.notification_service.repository.NotificationTemplateRepository;
+import com.example.notification_service.repository.NotificationTemplateVersionRepository;
+import com.example.notification_service.service.NotificationPreferenceCache;
+import com.example.notification_service.service.ExponentialBackoffRetryPolicy;
 import com.example.notification_service.service.NotificationService;
+import com.example.notification_service.service.NotificationTimer;
+import com.example.notification_service.service.RetryPolicy;
+import com.example.notification_service.messaging.NotificationCommand;
+import com.example.notification_service.template.NotificationTemplateEngine;
 import com.example.notification_service.web.dto.EventReminderRequest;
+import com.example.notification_service.web.dto.FanOutRequest;
 import com.example.notification_service.web.dto.NotificationRequest;
+import com.example.notification_service.web.dto.TemplatedNotificationRequest;
 import com.example.notification_service.web.dto.UpsertNotificationPreference;
+import com.example.notification_service.web.dto.BatchNotificationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -34,6 +75,57 @@ class NotificationServiceUTest {
     @Mock
     private NotificationRepository notificationRepository;
 
+    @Mock
+    private TaskExecutor dispatchExecutor;
+
+    @Spy
+    private NotificationProperties properties = new NotificationProperties();
+
+    @Spy
+    private NotificationTimer timer = new NotificationTimer(new NotificationProperties());
+
+    @Spy
+    private NotificationPreferenceCache preferenceCache =
+            new NotificationPreferenceCache(new NotificationProperties(), new SimpleMeterRegistry());
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private RetryPolicy retryPolicy =
+            new ExponentialBackoffRetryPolicy(new NotificationProperties(), new MailFailureClassifier());
+
+    @Spy
+    private MailCircuitBreaker circuitBreaker =
+            new MailCircuitBreaker(new NotificationProperties(), new MailFailureClassifier(), new SimpleMeterRegistry());
+
+    @Spy
+    private AdaptiveConcurrencyLimiter concurrencyLimiter =
+            new AdaptiveConcurrencyLimiter(new NotificationProperties(), new MailFailureClassifier(), new SimpleMeterRegistry());
+
+    @Spy
+    private DomainRateLimiter domainRateLimiter =
+            new DomainRateLimiter(new NotificationProperties(), new SimpleMeterRegistry());
+
+    @Spy
+    private UserRateLimiter userRateLimiter =
+            new UserRateLimiter(new NotificationProperties(), new SimpleMeterRegistry());
+
+    @Spy
+    private MailFailureClassifier failureClassifier = new MailFailureClassifier();
+
+    @Spy
+    private NotificationChannels channels = new NotificationChannels(List.of());
+
+    private final NotificationTemplateRepository templateRepository = mock(NotificationTemplateRepository.class);
+
+    private final NotificationTemplateVersionRepository templateVersionRepository =
+            mock(NotificationTemplateVersionRepository.class);
+
+    @Spy
+    private NotificationTemplateEngine templates = new NotificationTemplateEngine(templateRepository,
+            templateVersionRepository, new ObjectMapper(), new NotificationProperties(), new SimpleMeterRegistry());
+
     @InjectMocks
     private NotificationService notificationService;
 
@@ -182,6 +274,96 @@ class NotificationServiceUTest {
         verify(mailSender, never()).send(any(SimpleMailMessage.class));
     }
 
+    @Test
+    void acceptNotification_shouldPersistPendingAndDispatchInBackground() {
+        UUID userId = UUID.randomUUID();
+        UUID id = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("user@example.com")
+                .enabled(true)
+                .build();
+
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.save(any(Notification.class)))
+                .thenAnswer(inv -> {
+                    Notification n = inv.getArgument(0);
+                    n.setId(id);
+                    return n;
+                });
+
+        Notification result = notificationService.acceptNotification(new NotificationRequest(userId, "Subject", "Body"));
+
+        assertEquals(id, result.getId());
+        assertEquals(NotificationStatus.PENDING, result.getStatus());
+        verify(mailSender, never()).send(any(SimpleMailMessage.class));
+
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(dispatchExecutor).execute(task.capture());
+
+        when(notificationRepository.claim(eq(List.of(id)), anyString(), any(), any())).thenReturn(1);
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(result));
+        task.getValue().run();
+
+        assertEquals(NotificationStatus.SUCCEEDED, result.getStatus());
+        verify(mailSender).send(any(SimpleMailMessage.class));
+        verify(notificationRepository).recordResults(anyString(), eq(List.of(result)), eq(false));
+    }
+
+    @Test
+    void acceptNotification_shouldNotSendTwice_whenSchedulerClaimedItFirst() {
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("user@example.com")
+                .enabled(true)
+                .build();
+
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.save(any(Notification.class)))
+                .thenAnswer(inv -> {
+                    Notification n = inv.getArgument(0);
+                    n.setId(UUID.randomUUID());
+                    return n;
+                });
+
+        notificationService.acceptNotification(new NotificationRequest(userId, "Subject", "Body"));
+
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(dispatchExecutor).execute(task.capture());
+
+        when(notificationRepository.claim(anyCollection(), anyString(), any(), any())).thenReturn(0);
+        task.getValue().run();
+
+        verify(mailSender, never()).send(any(SimpleMailMessage.class));
+        verify(notificationRepository, never()).recordResults(anyString(), anyCollection(), anyBoolean());
+    }
+
+    @Test
+    void acceptNotification_shouldLeaveNotificationToScheduler_whenDispatchQueueIsFull() {
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId)
+                .contactInfo("user@example.com")
+                .enabled(true)
+                .build();
+
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.save(any(Notification.class)))
+                .thenAnswer(inv -> {
+                    Notification n = inv.getArgument(0);
+                    n.setId(UUID.randomUUID());
+                    return n;
+                });
+        doThrow(new TaskRejectedException("queue full")).when(dispatchExecutor).execute(any(Runnable.class));
+
+        Notification result = notificationService.acceptNotification(new NotificationRequest(userId, "Subject", "Body"));
+
+        assertEquals(NotificationStatus.PENDING, result.getStatus());
+        assertNotNull(result.getScheduledAt());
+        verify(mailSender, never()).send(any(SimpleMailMessage.class));
+    }
+
     @Test
     void getNotifications_shouldDelegateToRepository() {
         UUID userId = UUID.randomUUID();
@@ -217,19 +399,16 @@ class NotificationServiceUTest {
     }
 
     @Test
-    void clearNotifications_shouldMarkAllAsDeleted() {
+    void clearNotifications_shouldMarkAllAsDeleted_withOneBulkUpdate() {
         UUID userId = UUID.randomUUID();
-        Notification n1 = Notification.builder().id(UUID.randomUUID()).userId(userId).deleted(false).build();
-        Notification n2 = Notification.builder().id(UUID.randomUUID()).userId(userId).deleted(false).build();
 
-        when(notificationRepository.findAllByUserIdAndDeleted(userId))
-                .thenReturn(List.of(n1, n2));
+        when(notificationRepository.softDeleteAllByUserId(userId)).thenReturn(2);
 
-        notificationService.clearNotifications(userId);
+        int cleared = notificationService.clearNotifications(userId);
 
-        assertTrue(n1.isDeleted());
-        assertTrue(n2.isDeleted());
-        verify(notificationRepository, times(2)).save(any(Notification.class));
+        assertEquals(2, cleared);
+        verify(notificationRepository, never()).findAllByUserIdAndDeleted(any());
+        verify(notificationRepository, never()).save(any(Notification.class));
     }
 
     @Test
@@ -254,6 +433,78 @@ class NotificationServiceUTest {
         assertEquals(0, result.getAttempts());
     }
 
+    @Test
+    void scheduleNotification_shouldPutNotificationIntoTimer_whenDueWithinHorizon() {
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId)
+                .enabled(true)
+                .build();
+
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.save(any(Notification.class)))
+                .thenAnswer(inv -> {
+                    Notification n = inv.getArgument(0);
+                    n.setId(UUID.randomUUID());
+                    return n;
+                });
+
+        notificationService.refillTimer();
+
+        Notification soon = notificationService.scheduleNotification(
+                new NotificationRequest(userId, "Soon", "Body"), LocalDateTime.now().plusMinutes(10));
+        notificationService.scheduleNotification(
+                new NotificationRequest(userId, "Later", "Body"), LocalDateTime.now().plusDays(1));
+
+        assertEquals(1, timer.size());
+        assertEquals(List.of(soon.getId()), timer.drainDue(LocalDateTime.now().plusMinutes(11)));
+    }
+
+    @Test
+    void fireTimer_shouldDispatchNotificationsThatCameDue() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        Notification n = Notification.builder()
+                .id(id)
+                .userId(UUID.randomUUID())
+                .status(NotificationStatus.PENDING)
+                .scheduledAt(LocalDateTime.now().minusSeconds(1))
+                .attempts(0)
+                .build();
+
+        when(notificationRepository.findPendingSchedules(any(), any(), any()))
+                .thenReturn(List.of(new NotificationSchedule() {
+                    public UUID getId() {
+                        return id;
+                    }
+
+                    public LocalDateTime getScheduledAt() {
+                        return n.getScheduledAt();
+                    }
+                }));
+
+        notificationService.refillTimer();
+        assertEquals(1, timer.size());
+
+        // the wheel fires overdue entries on its next one-second tick
+        Thread.sleep(1_100);
+        notificationService.fireTimer();
+
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(dispatchExecutor).execute(task.capture());
+
+        when(notificationRepository.claim(eq(List.of(id)), anyString(), any(), any())).thenReturn(1);
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(n));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(NotificationPreference.builder()
+                .userId(n.getUserId())
+                .enabled(true)
+                .contactInfo("user@example.com")
+                .build()));
+        task.getValue().run();
+
+        assertEquals(NotificationStatus.SUCCEEDED, n.getStatus());
+        verify(mailSender).send(any(SimpleMailMessage.class));
+    }
+
     @Test
     void scheduleNotification_shouldThrow_whenPreferenceDisabled() {
         UUID userId = UUID.randomUUID();
@@ -323,6 +574,27 @@ class NotificationServiceUTest {
         assertEquals(1, result.size());
     }
 
+    @Test
+    void scheduleEventReminders_shouldSaveNone_whenUserCannotAffordAllOfThem() {
+        UUID userId = UUID.randomUUID();
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            offsets.add(i * 10);
+        }
+
+        EventReminderRequest r = new EventReminderRequest();
+        r.setUserId(userId);
+        r.setSubject("Event");
+        r.setBody("Body");
+        r.setEventStart(LocalDateTime.now().plusDays(1));
+        r.setOffsetsMinutes(offsets);
+
+        assertThrows(RateLimitExceededException.class, () -> notificationService.scheduleEventReminders(r));
+
+        verify(userRateLimiter).acquire(userId, 25);
+        verifyNoInteractions(preferenceRepository, notificationRepository);
+    }
+
     @Test
     void sendReminder_shouldScheduleAndSendEmail_andSaveResult() {
         UUID userId = UUID.randomUUID();
@@ -363,15 +635,35 @@ class NotificationServiceUTest {
                 .contactInfo("user@example.com")
                 .build();
 
-        when(notificationRepository.findAllByStatusAndScheduledAtBefore(eq(NotificationStatus.PENDING), any()))
-                .thenReturn(List.of(n));
-        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.findDueIds(any(), any()))
+                .thenReturn(List.of(n.getId()));
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(n));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(pref));
 
         notificationService.processDueNotifications();
 
         assertEquals(NotificationStatus.SUCCEEDED, n.getStatus());
         assertNull(n.getLastError());
-        verify(notificationRepository).save(n);
+        verify(notificationRepository).claim(eq(List.of(n.getId())), anyString(), any(), any());
+        verify(notificationRepository).recordResults(anyString(), eq(List.of(n)), eq(false));
+    }
+
+    @Test
+    void processDueNotifications_shouldRenewTheLease_onceHalfOfItHasPassed() {
+        properties.getScheduler().setLeaseDuration(Duration.ZERO);
+        UUID userId = UUID.randomUUID();
+        Notification first = pendingNotification(userId, "First", LocalDateTime.now().minusMinutes(1));
+        Notification second = pendingNotification(userId, "Second", LocalDateTime.now().minusMinutes(1));
+
+        when(notificationRepository.findDueIds(any(), any())).thenReturn(List.of(first.getId(), second.getId()));
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(first, second));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").build()));
+
+        notificationService.processDueNotifications();
+
+        verify(notificationRepository, times(2)).extendLease(anyString(), any());
+        verify(mailSender, times(2)).send(any(SimpleMailMessage.class));
     }
 
     @Test
@@ -400,9 +692,10 @@ class NotificationServiceUTest {
                 .contactInfo("user@example.com")
                 .build();
 
-        when(notificationRepository.findAllByStatusAndScheduledAtBefore(eq(NotificationStatus.PENDING), any()))
-                .thenReturn(List.of(n1, n2));
-        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.findDueIds(any(), any()))
+                .thenReturn(List.of(n1.getId(), n2.getId()));
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(n1, n2));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(pref));
 
         doThrow(new RuntimeException("SMTP error"))
                 .when(mailSender)
@@ -419,7 +712,244 @@ class NotificationServiceUTest {
         assertEquals(NotificationStatus.FAILED, n2.getStatus());
         assertEquals("SMTP error", n2.getLastError());
 
-        verify(notificationRepository, times(2)).save(any(Notification.class));
+        verify(notificationRepository).recordResults(anyString(), eq(List.of(n1, n2)), eq(false));
+        verify(notificationRepository, never()).save(any(Notification.class));
+    }
+
+    @Test
+    void processDueNotifications_shouldFailWithoutRetry_whenFailureIsPermanent() {
+        UUID userId = UUID.randomUUID();
+
+        Notification n = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .status(NotificationStatus.PENDING)
+                .scheduledAt(LocalDateTime.now().minusMinutes(5))
+                .attempts(0)
+                .build();
+
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId)
+                .enabled(true)
+                .contactInfo("not an address")
+                .build();
+
+        when(notificationRepository.findDueIds(any(), any())).thenReturn(List.of(n.getId()));
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(n));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(pref));
+
+        doThrow(new MailParseException("Illegal address"))
+                .when(mailSender)
+                .send(any(SimpleMailMessage.class));
+
+        notificationService.processDueNotifications();
+
+        assertEquals(1, n.getAttempts());
+        assertEquals(NotificationStatus.FAILED, n.getStatus());
+        assertEquals("Illegal address", n.getLastError());
+        verify(timer, never()).schedule(any(), any());
+    }
+
+    @Test
+    void processDueNotifications_shouldSkipCycle_whenRelayCircuitIsOpen() {
+        when(circuitBreaker.isOpen()).thenReturn(true);
+
+        notificationService.processDueNotifications();
+
+        verify(notificationRepository, never()).findDueIds(any(), any());
+        verify(notificationRepository, never()).claim(any(), anyString(), any(), any());
+    }
+
+    @Test
+    void processDueNotifications_shouldReturnRowUnchanged_whenCircuitRejectsSend() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime scheduledAt = LocalDateTime.now().minusMinutes(5);
+
+        Notification n = Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .status(NotificationStatus.IN_FLIGHT)
+                .scheduledAt(scheduledAt)
+                .attempts(1)
+                .build();
+
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId)
+                .enabled(true)
+                .contactInfo("user@example.com")
+                .build();
+
+        when(notificationRepository.findDueIds(any(), any())).thenReturn(List.of(n.getId()));
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(n));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(pref));
+        doThrow(new MailRelayUnavailableException("Mail relay circuit is open"))
+                .when(circuitBreaker).send(any());
+
+        notificationService.processDueNotifications();
+
+        assertEquals(NotificationStatus.PENDING, n.getStatus());
+        assertEquals(1, n.getAttempts());
+        assertEquals(scheduledAt, n.getScheduledAt());
+        verify(notificationRepository).recordResults(anyString(), eq(List.of(n)), eq(false));
+        verify(timer, never()).schedule(any(), any());
+    }
+
+    @Test
+    void sendNotification_shouldRejectBeforeAnyRepositoryAccess_whenUserIsOverRateLimit() {
+        UUID userId = UUID.randomUUID();
+        doThrow(new RateLimitExceededException("Too many notifications", Duration.ofSeconds(1)))
+                .when(userRateLimiter).acquire(userId);
+
+        assertThrows(RateLimitExceededException.class,
+                () -> notificationService.sendNotification(new NotificationRequest(userId, "Subject", "Body")));
+        assertThrows(RateLimitExceededException.class,
+                () -> notificationService.scheduleNotification(
+                        new NotificationRequest(userId, "Subject", "Body"), LocalDateTime.now().plusHours(1)));
+
+        verifyNoInteractions(preferenceRepository, notificationRepository, mailSender);
+    }
+
+    @Test
+    void sendNotification_shouldQueueAsPending_whenRelayCircuitIsOpen() {
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId)
+                .enabled(true)
+                .contactInfo("user@example.com")
+                .build();
+
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        doThrow(new MailRelayUnavailableException("Mail relay circuit is open"))
+                .when(circuitBreaker).send(any());
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Notification result = notificationService.sendNotification(new NotificationRequest(userId, "Subject", "Body"));
+
+        assertEquals(NotificationStatus.PENDING, result.getStatus());
+        assertEquals(0, result.getAttempts());
+        assertNotNull(result.getScheduledAt());
+        assertNull(result.getLastError());
+        verifyNoInteractions(mailSender);
+    }
+
+    @Test
+    void processDueNotifications_shouldDeferOverLimitMessages_spacedAtTheDomainRate() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime scheduledAt = LocalDateTime.now().minusMinutes(5);
+
+        List<Notification> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            batch.add(Notification.builder()
+                    .id(UUID.randomUUID())
+                    .userId(userId)
+                    .status(NotificationStatus.IN_FLIGHT)
+                    .scheduledAt(scheduledAt)
+                    .attempts(0)
+                    .build());
+        }
+
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId)
+                .enabled(true)
+                .contactInfo("user@example.com")
+                .build();
+
+        when(notificationRepository.findDueIds(any(), any()))
+                .thenReturn(batch.stream().map(Notification::getId).toList());
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(batch);
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(pref));
+        doReturn(Duration.ZERO).doReturn(Duration.ofSeconds(1))
+                .when(domainRateLimiter).tryAcquire("user@example.com", 0);
+        doReturn(Duration.ofSeconds(2)).when(domainRateLimiter).tryAcquire("user@example.com", 1);
+
+        notificationService.processDueNotifications();
+
+        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+        verify(domainRateLimiter).tryAcquire("user@example.com", 1);
+        assertEquals(NotificationStatus.SUCCEEDED, batch.get(0).getStatus());
+        for (Notification deferred : batch.subList(1, 3)) {
+            assertEquals(NotificationStatus.PENDING, deferred.getStatus());
+            assertEquals(0, deferred.getAttempts());
+            assertTrue(deferred.getScheduledAt().isAfter(LocalDateTime.now()));
+        }
+        assertTrue(batch.get(2).getScheduledAt().isAfter(batch.get(1).getScheduledAt()));
+        verify(notificationRepository).recordResults(anyString(), eq(batch), eq(false));
+    }
+
+    @Test
+    void processDueNotifications_shouldKeepClaimingBatches_untilBacklogIsDrained() {
+        properties.getScheduler().setBatchSize(2);
+        UUID userId = UUID.randomUUID();
+
+        List<Notification> first = List.of(pendingNotification(userId), pendingNotification(userId));
+        List<Notification> second = List.of(pendingNotification(userId));
+
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId)
+                .enabled(true)
+                .contactInfo("user@example.com")
+                .build();
+
+        when(notificationRepository.findDueIds(any(), any()))
+                .thenReturn(first.stream().map(Notification::getId).toList(),
+                        second.stream().map(Notification::getId).toList());
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(first, second);
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(pref));
+
+        notificationService.processDueNotifications();
+
+        verify(notificationRepository, times(2)).claim(anyCollection(), anyString(), any(), any());
+        verify(notificationRepository).recordResults(anyString(), eq(first), eq(false));
+        verify(notificationRepository).recordResults(anyString(), eq(second), eq(false));
+        verify(mailSender, times(3)).send(any(SimpleMailMessage.class));
+    }
+
+    @Test
+    void processDueNotifications_shouldResolvePreferencesOnce_andFailMissingOrDisabledInBulk() {
+        UUID enabledUser = UUID.randomUUID();
+        UUID disabledUser = UUID.randomUUID();
+        UUID unknownUser = UUID.randomUUID();
+
+        Notification toEnabled1 = pendingNotification(enabledUser);
+        Notification toEnabled2 = pendingNotification(enabledUser);
+        Notification toDisabled = pendingNotification(disabledUser);
+        Notification toUnknown = pendingNotification(unknownUser);
+        List<Notification> batch = List.of(toEnabled1, toEnabled2, toDisabled, toUnknown);
+
+        when(notificationRepository.findDueIds(any(), any()))
+                .thenReturn(batch.stream().map(Notification::getId).toList());
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(batch);
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(enabledUser).enabled(true).contactInfo("a@example.com").build(),
+                NotificationPreference.builder().userId(disabledUser).enabled(false).contactInfo("b@example.com").build()));
+
+        notificationService.processDueNotifications();
+
+        verify(preferenceRepository).findAllByUserIdIn(argThat(ids ->
+                ids.size() == 3 && ids.containsAll(List.of(enabledUser, disabledUser, unknownUser))));
+        verify(preferenceRepository, never()).findByUserId(any());
+        verify(mailSender, times(2)).send(any(SimpleMailMessage.class));
+
+        assertEquals(NotificationStatus.SUCCEEDED, toEnabled1.getStatus());
+        assertEquals(NotificationStatus.SUCCEEDED, toEnabled2.getStatus());
+        assertEquals(NotificationStatus.FAILED, toDisabled.getStatus());
+        assertEquals("Notification preference is disabled!", toDisabled.getLastError());
+        assertEquals(NotificationStatus.FAILED, toUnknown.getStatus());
+        assertEquals("Notification preference not found!", toUnknown.getLastError());
+
+        // the next batch is served from the cache, unknown users included
+        notificationService.findPreferenceByUserId(unknownUser);
+        verify(preferenceRepository, never()).findByUserId(any());
+    }
+
+    private static Notification pendingNotification(UUID userId) {
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .status(NotificationStatus.IN_FLIGHT)
+                .scheduledAt(LocalDateTime.now().minusMinutes(1))
+                .attempts(0)
+                .build();
     }
 
     @Test
@@ -442,4 +972,755 @@ class NotificationServiceUTest {
         assertThrows(RuntimeException.class,
                 () -> notificationService.getById(id));
     }
+
+    @Test
+    void getPreferenceByUserId_shouldHitRepositoryOnce_forRepeatedLookups() {
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").type(NotificationType.EMAIL).build();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+
+        notificationService.getPreferenceByUserId(userId);
+        notificationService.getPreferenceByUserId(userId);
+        notificationService.findPreferenceByUserId(userId);
+
+        verify(preferenceRepository, times(1)).findByUserId(userId);
+        assertEquals(2, preferenceCache.stats().hitCount());
+        assertEquals(1, preferenceCache.stats().missCount());
+    }
+
+    @Test
+    void findPreferenceByUserId_shouldCacheMissingPreference() {
+        UUID userId = UUID.randomUUID();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.empty());
+
+        assertTrue(notificationService.findPreferenceByUserId(userId).isEmpty());
+        assertThrows(NotificationPreferenceNotFoundException.class,
+                () -> notificationService.getPreferenceByUserId(userId));
+
+        verify(preferenceRepository, times(1)).findByUserId(userId);
+    }
+
+    @Test
+    void upsertPreference_shouldReplaceCachedEntry() {
+        UUID userId = UUID.randomUUID();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.empty());
+        when(preferenceRepository.save(any(NotificationPreference.class)))
+                .thenAnswer(inv -> inv.getArgument(0));
+        assertTrue(notificationService.findPreferenceByUserId(userId).isEmpty());
+
+        UpsertNotificationPreference req = new UpsertNotificationPreference();
+        req.setUserId(userId);
+        req.setNotificationEnabled(true);
+        req.setContactInfo("new@example.com");
+        req.setType(com.example.notification_service.web.dto.NotificationTypeRequest.EMAIL);
+        notificationService.upsertPreference(req);
+
+        assertEquals("new@example.com", notificationService.getPreferenceByUserId(userId).getContactInfo());
+        // the negative entry was replaced, not re-read
+        verify(preferenceRepository, times(2)).findByUserId(userId);
+    }
+
+    @Test
+    void changeNotificationPreferenceStatus_shouldReplaceCachedEntry() {
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").type(NotificationType.EMAIL).build();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(preferenceRepository.save(any(NotificationPreference.class)))
+                .thenAnswer(inv -> inv.getArgument(0));
+        assertTrue(notificationService.getPreferenceByUserId(userId).isEnabled());
+
+        notificationService.changeNotificationPreferenceStatus(userId, false);
+
+        assertFalse(notificationService.getPreferenceByUserId(userId).isEnabled());
+    }
+
+    @Test
+    void acceptBatch_shouldSaveAndReportEachChunk_beforeReadingTheNext() {
+        properties.getBatch().setChunkSize(2);
+        UUID enabledUser = UUID.randomUUID();
+        UUID disabledUser = UUID.randomUUID();
+
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(enabledUser).enabled(true).contactInfo("a@example.com").build(),
+                NotificationPreference.builder().userId(disabledUser).enabled(false).contactInfo("b@example.com").build()));
+        when(notificationRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Notification> batch = inv.getArgument(0);
+            batch.forEach(n -> n.setId(UUID.randomUUID()));
+            return batch;
+        });
+
+        Iterator<NotificationRequest> requests = List.of(
+                new NotificationRequest(enabledUser, "s", "b"),
+                new NotificationRequest(disabledUser, "s", "b"),
+                new NotificationRequest(enabledUser, " ", "b"),
+                new NotificationRequest(UUID.randomUUID(), "s", "b"),
+                new NotificationRequest(enabledUser, "s", "b")).iterator();
+        List<List<BatchNotificationResult>> chunks = new ArrayList<>();
+
+        notificationService.acceptBatch(requests, chunks::add);
+
+        assertEquals(List.of(2, 2, 1), chunks.stream().map(List::size).toList());
+        List<BatchNotificationResult> results = chunks.stream().flatMap(List::stream).toList();
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchNotificationResult::getIndex).toList());
+
+        assertNotNull(results.get(0).getId());
+        assertEquals(NotificationStatus.PENDING, results.get(0).getStatus());
+        assertEquals("Notification preference is disabled!", results.get(1).getError());
+        assertEquals("subject must not be blank", results.get(2).getError());
+        assertEquals("Notification preference not found!", results.get(3).getError());
+        assertNotNull(results.get(4).getId());
+
+        verify(notificationRepository, times(3)).saveAll(anyList());
+        verify(dispatchExecutor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void acceptBatch_shouldNotAcceptAChunkTwice_whenReportingItFails() {
+        properties.getBatch().setChunkSize(2);
+        UUID userId = UUID.randomUUID();
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(userId).enabled(true).contactInfo("a@example.com").build()));
+        when(notificationRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Notification> batch = inv.getArgument(0);
+            batch.forEach(n -> n.setId(UUID.randomUUID()));
+            return batch;
+        });
+
+        Iterator<NotificationRequest> requests = List.of(
+                new NotificationRequest(userId, "s", "b"),
+                new NotificationRequest(userId, "s", "b"),
+                new NotificationRequest(userId, "s", "b")).iterator();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> notificationService.acceptBatch(requests, chunk -> {
+            throw new IllegalStateException("client went away");
+        }));
+
+        assertEquals("client went away", e.getMessage());
+        verify(notificationRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void acceptBatch_shouldReportItemsReadBeforeTheInputFailed() {
+        UUID userId = UUID.randomUUID();
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(userId).enabled(true).contactInfo("a@example.com").build()));
+        when(notificationRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Notification> batch = inv.getArgument(0);
+            batch.forEach(n -> n.setId(UUID.randomUUID()));
+            return batch;
+        });
+
+        Iterator<NotificationRequest> requests = new Iterator<>() {
+            private int read;
+
+            public boolean hasNext() {
+                if (read == 1) {
+                    throw new IllegalStateException("malformed");
+                }
+                return true;
+            }
+
+            public NotificationRequest next() {
+                read++;
+                return new NotificationRequest(userId, "s", "b");
+            }
+        };
+        List<BatchNotificationResult> results = new ArrayList<>();
+
+        assertThrows(IllegalStateException.class, () -> notificationService.acceptBatch(requests, results::addAll));
+
+        assertEquals(1, results.size());
+        assertEquals(NotificationStatus.PENDING, results.get(0).getStatus());
+    }
+
+    @Test
+    void sendNotification_shouldNotWriteStatusEvent_whenSendIsDeferred() {
+        properties.getOutbox().setEnabled(true);
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").type(NotificationType.EMAIL).build();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(inv -> {
+            Notification n = inv.getArgument(0);
+            n.setId(UUID.randomUUID());
+            return n;
+        });
+        doThrow(new MailRelayUnavailableException("Mail relay circuit is open"))
+                .when(circuitBreaker).send(any(Runnable.class));
+
+        Notification result = notificationService.sendNotification(new NotificationRequest(userId, "Subj", "Body"));
+
+        assertEquals(NotificationStatus.PENDING, result.getStatus());
+        verify(notificationRepository, never()).saveWithStatusEvent(any(Notification.class));
+    }
+
+    @Test
+    void sendNotification_shouldSaveWithStatusEvent_whenOutboxEnabled() {
+        properties.getOutbox().setEnabled(true);
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").type(NotificationType.EMAIL).build();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.saveWithStatusEvent(any(Notification.class)))
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        Notification result = notificationService.sendNotification(new NotificationRequest(userId, "Subj", "Body"));
+
+        assertEquals(NotificationStatus.SUCCEEDED, result.getStatus());
+        verify(notificationRepository, never()).save(any(Notification.class));
+    }
+
+    @Test
+    void processDueNotifications_shouldMergeUsersDueRows_intoOneDigest_whenDigestEnabled() {
+        properties.getDigest().setEnabled(true);
+        UUID userId = UUID.randomUUID();
+        UUID otherUserId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+
+        Notification due = pendingNotification(userId, "Reminder 1", now.minusMinutes(1));
+        Notification companion = pendingNotification(userId, "Reminder 2", now.plusMinutes(3));
+        Notification other = pendingNotification(otherUserId, "Solo", now.minusMinutes(1));
+
+        when(notificationRepository.findDueIds(any(), any())).thenReturn(List.of(due.getId(), other.getId()));
+        when(notificationRepository.findPendingEmailIdsByUserIds(anyCollection(), any(), any()))
+                .thenReturn(List.of(companion.getId()));
+        when(notificationRepository.claim(anyCollection(), anyString(), any(), any())).thenReturn(2);
+        when(notificationRepository.claim(anyCollection(), anyString(), any(), any(), any())).thenReturn(1);
+        when(notificationRepository.findAllByClaimedBy(anyString()))
+                .thenReturn(List.of(due, other))
+                .thenReturn(List.of(companion, due, other));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(userId).enabled(true).contactInfo("user@example.com").build(),
+                NotificationPreference.builder().userId(otherUserId).enabled(true).contactInfo("other@example.com").build()));
+
+        notificationService.processDueNotifications();
+
+        ArgumentCaptor<SimpleMailMessage> sent = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailSender, times(2)).send(sent.capture());
+        SimpleMailMessage digest = sent.getAllValues().get(0);
+        assertEquals("You have 2 new notifications", digest.getSubject());
+        assertTrue(digest.getText().indexOf("Reminder 1") < digest.getText().indexOf("Reminder 2"));
+        assertEquals("Solo", sent.getAllValues().get(1).getSubject());
+
+        List.of(due, companion, other).forEach(n -> assertEquals(NotificationStatus.SUCCEEDED, n.getStatus()));
+        verify(notificationRepository).claim(eq(List.of(companion.getId())), anyString(), any(), any(), any());
+        verify(notificationRepository).recordResults(anyString(), eq(List.of(companion, due, other)), eq(false));
+    }
+
+    @Test
+    void processDueNotifications_shouldCountFailedDigest_againstEveryRow() {
+        properties.getDigest().setEnabled(true);
+        UUID userId = UUID.randomUUID();
+        Notification first = pendingNotification(userId, "A", LocalDateTime.now().minusMinutes(2));
+        Notification second = pendingNotification(userId, "B", LocalDateTime.now().minusMinutes(1));
+
+        when(notificationRepository.findDueIds(any(), any())).thenReturn(List.of(first.getId(), second.getId()));
+        when(notificationRepository.findPendingEmailIdsByUserIds(anyCollection(), any(), any())).thenReturn(List.of());
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(first, second));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(userId).enabled(true).contactInfo("user@example.com").build()));
+        doThrow(new MailParseException("bad message")).when(mailSender).send(any(SimpleMailMessage.class));
+
+        notificationService.processDueNotifications();
+
+        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+        List.of(first, second).forEach(n -> {
+            assertEquals(NotificationStatus.FAILED, n.getStatus());
+            assertEquals(1, n.getAttempts());
+            assertEquals("bad message", n.getLastError());
+        });
+    }
+
+    @Test
+    void processDueNotifications_shouldFailOnlyUnrenderableRows_andSendTheRestOfTheDigest() {
+        properties.getDigest().setEnabled(true);
+        UUID userId = UUID.randomUUID();
+        when(templateRepository.findById("missing")).thenReturn(Optional.empty());
+        Notification plain = pendingNotification(userId, "Plain", LocalDateTime.now().minusMinutes(3));
+        Notification other = pendingNotification(userId, "Other", LocalDateTime.now().minusMinutes(2));
+        Notification templated = pendingNotification(userId, "Templated", LocalDateTime.now().minusMinutes(1));
+        templated.setBody(null);
+        templated.setTemplateId("missing");
+        templated.setTemplateParams(templates.encodeParams(Map.of()));
+
+        when(notificationRepository.findDueIds(any(), any()))
+                .thenReturn(List.of(plain.getId(), other.getId(), templated.getId()));
+        when(notificationRepository.findPendingEmailIdsByUserIds(anyCollection(), any(), any())).thenReturn(List.of());
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(plain, other, templated));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(userId).enabled(true).contactInfo("user@example.com").build()));
+
+        notificationService.processDueNotifications();
+
+        ArgumentCaptor<SimpleMailMessage> sent = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailSender).send(sent.capture());
+        assertEquals("You have 2 new notifications", sent.getValue().getSubject());
+        assertFalse(sent.getValue().getText().contains("Templated"));
+        assertEquals(NotificationStatus.SUCCEEDED, plain.getStatus());
+        assertEquals(NotificationStatus.SUCCEEDED, other.getStatus());
+        assertEquals(NotificationStatus.FAILED, templated.getStatus());
+        assertEquals("Notification template not found: missing", templated.getLastError());
+    }
+
+    private static Notification pendingNotification(UUID userId, String subject, LocalDateTime scheduledAt) {
+        return Notification.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .subject(subject)
+                .body(subject + " body")
+                .status(NotificationStatus.PENDING)
+                .scheduledAt(scheduledAt)
+                .attempts(0)
+                .build();
+    }
+
+    @Test
+    void processDueNotifications_shouldHandMobileRowsToTheirChannel_whichRecordsThem() {
+        UUID emailUser = UUID.randomUUID();
+        UUID mobileUser = UUID.randomUUID();
+        Notification email = pendingNotification(emailUser, "Email", LocalDateTime.now().minusMinutes(1));
+        Notification push = pendingNotification(mobileUser, "Push", LocalDateTime.now().minusMinutes(1));
+        Notification unregistered = pendingNotification(mobileUser, "Push 2", LocalDateTime.now().minusMinutes(1));
+        email.setType(NotificationType.EMAIL);
+        push.setType(NotificationType.MOBILE);
+        unregistered.setType(NotificationType.MOBILE);
+
+        NotificationChannel pushChannel = mock(NotificationChannel.class);
+        doReturn(Optional.of(pushChannel)).when(channels).find(NotificationType.MOBILE);
+        when(pushChannel.executor()).thenReturn(new SyncTaskExecutor());
+        when(pushChannel.send(anyList())).thenReturn(Map.of(
+                push.getId(), ChannelResult.delivered(),
+                unregistered.getId(), ChannelResult.rejected("Token is not registered")));
+
+        when(notificationRepository.findDueIds(any(), any()))
+                .thenReturn(List.of(email.getId(), push.getId(), unregistered.getId()));
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(email, push, unregistered));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(emailUser).enabled(true).type(NotificationType.EMAIL)
+                        .contactInfo("user@example.com").build(),
+                NotificationPreference.builder().userId(mobileUser).enabled(true).type(NotificationType.MOBILE)
+                        .contactInfo("device-token").build()));
+
+        notificationService.processDueNotifications();
+
+        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+        ArgumentCaptor<List<ChannelMessage>> sent = ArgumentCaptor.forClass(List.class);
+        verify(pushChannel).send(sent.capture());
+        assertEquals(List.of("device-token", "device-token"), sent.getValue().stream().map(ChannelMessage::recipient).toList());
+
+        assertEquals(NotificationStatus.SUCCEEDED, email.getStatus());
+        assertEquals(NotificationStatus.SUCCEEDED, push.getStatus());
+        assertEquals(NotificationStatus.FAILED, unregistered.getStatus());
+        assertEquals(1, unregistered.getAttempts());
+        assertEquals("Token is not registered", unregistered.getLastError());
+        verify(notificationRepository).recordResults(anyString(), eq(List.of(push, unregistered)), eq(false));
+        verify(notificationRepository).recordResults(anyString(), eq(List.of(email)), eq(false));
+    }
+
+    @Test
+    void processDueNotifications_shouldFailMobileRows_whenNoChannelIsConfigured() {
+        UUID userId = UUID.randomUUID();
+        Notification n = pendingNotification(userId, "Push", LocalDateTime.now().minusMinutes(1));
+        n.setType(NotificationType.MOBILE);
+
+        when(notificationRepository.findDueIds(any(), any())).thenReturn(List.of(n.getId()));
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(n));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(userId).enabled(true).type(NotificationType.MOBILE)
+                        .contactInfo("device-token").build()));
+
+        notificationService.processDueNotifications();
+
+        assertEquals(NotificationStatus.FAILED, n.getStatus());
+        assertEquals("No channel is configured for MOBILE notifications", n.getLastError());
+        verifyNoInteractions(mailSender);
+        verify(notificationRepository).recordResults(anyString(), eq(List.of(n)), eq(false));
+    }
+
+    @Test
+    void sendNotification_shouldGoThroughPushChannel_whenPreferenceIsMobile() {
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("device-token").type(NotificationType.MOBILE).build();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        NotificationChannel pushChannel = mock(NotificationChannel.class);
+        doReturn(Optional.of(pushChannel)).when(channels).find(NotificationType.MOBILE);
+        when(pushChannel.send(anyList())).thenAnswer(inv -> {
+            List<ChannelMessage> messages = inv.getArgument(0);
+            return Map.of(messages.get(0).id(), ChannelResult.delivered());
+        });
+
+        Notification result = notificationService.sendNotification(new NotificationRequest(userId, "Subj", "Body"));
+
+        assertEquals(NotificationType.MOBILE, result.getType());
+        assertEquals(NotificationStatus.SUCCEEDED, result.getStatus());
+        verifyNoInteractions(mailSender);
+        verify(pushChannel).send(anyList());
+    }
+
+    @Test
+    void sendNotification_shouldQueueForRetry_whenPushChannelAsksToRetry() {
+        UUID userId = UUID.randomUUID();
+        NotificationPreference pref = NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("device-token").type(NotificationType.MOBILE).build();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(pref));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(inv -> {
+            Notification n = inv.getArgument(0);
+            n.setId(UUID.randomUUID());
+            return n;
+        });
+
+        NotificationChannel pushChannel = mock(NotificationChannel.class);
+        doReturn(Optional.of(pushChannel)).when(channels).find(NotificationType.MOBILE);
+        when(pushChannel.send(anyList())).thenAnswer(inv -> {
+            List<ChannelMessage> messages = inv.getArgument(0);
+            return Map.of(messages.get(0).id(), ChannelResult.retry("Gateway returned 503"));
+        });
+
+        Notification result = notificationService.sendNotification(new NotificationRequest(userId, "Subj", "Body"));
+
+        assertEquals(NotificationStatus.PENDING, result.getStatus());
+        assertEquals(1, result.getAttempts());
+        assertEquals("Gateway returned 503", result.getLastError());
+        assertTrue(result.getScheduledAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void processDueNotifications_shouldPushRowsBack_whenChannelQueueIsFull() {
+        UUID userId = UUID.randomUUID();
+        Notification n = pendingNotification(userId, "Push", LocalDateTime.now().minusMinutes(1));
+        n.setType(NotificationType.MOBILE);
+
+        NotificationChannel pushChannel = mock(NotificationChannel.class);
+        TaskExecutor fullQueue = mock(TaskExecutor.class);
+        doThrow(new TaskRejectedException("queue full")).when(fullQueue).execute(any(Runnable.class));
+        doReturn(Optional.of(pushChannel)).when(channels).find(NotificationType.MOBILE);
+        when(pushChannel.executor()).thenReturn(fullQueue);
+
+        when(notificationRepository.findDueIds(any(), any())).thenReturn(List.of(n.getId()));
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(List.of(n));
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(userId).enabled(true).type(NotificationType.MOBILE)
+                        .contactInfo("device-token").build()));
+
+        LocalDateTime before = LocalDateTime.now();
+        notificationService.processDueNotifications();
+
+        assertEquals(NotificationStatus.PENDING, n.getStatus());
+        assertFalse(n.getScheduledAt().isBefore(before.plus(properties.getScheduler().getPollInterval())));
+        verify(pushChannel, never()).send(anyList());
+    }
+
+    @Test
+    void fanOut_shouldRenderOnce_andSendOneMessagePerRecipientGroup() throws Exception {
+        properties.getFanOut().setRecipientsPerMessage(2);
+        List<UUID> users = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        UUID disabledUser = UUID.randomUUID();
+        List<NotificationPreference> prefs = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            prefs.add(NotificationPreference.builder().userId(users.get(i)).enabled(true).contactInfo("user" + i + "@example.com").build());
+        }
+        prefs.add(NotificationPreference.builder().userId(disabledUser).enabled(false).contactInfo("off@example.com").build());
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(prefs);
+        List<Notification> saved = stubFanOutPersistence();
+
+        List<UUID> requested = new ArrayList<>(users);
+        requested.add(disabledUser);
+        requested.add(users.get(0));
+        List<BatchNotificationResult> results = notificationService.fanOut(
+                FanOutRequest.builder().userIds(requested).subject("News").body("Hello all").build());
+
+        assertEquals(7, results.size());
+        assertEquals(5, results.stream().filter(r -> r.getId() != null).count());
+        assertEquals("Notification preference is disabled!", results.get(5).getError());
+        assertEquals("Duplicate userId", results.get(6).getError());
+
+        runDispatchedTask();
+
+        ArgumentCaptor<MimeMessage> sent = ArgumentCaptor.forClass(MimeMessage.class);
+        verify(mailSender, times(3)).send(sent.capture());
+        verify(mailSender).createMimeMessage();
+        assertEquals(List.of(2, 2, 1), sent.getAllValues().stream().map(NotificationServiceUTest::bccCount).toList());
+        assertEquals("News", sent.getAllValues().get(2).getSubject());
+        saved.forEach(n -> assertEquals(NotificationStatus.SUCCEEDED, n.getStatus()));
+        verify(notificationRepository).recordResults(anyString(), eq(saved), eq(false));
+    }
+
+    @Test
+    void fanOut_shouldFailRefusedRecipients_andResendTheRestOfTheGroup() throws Exception {
+        UUID good = UUID.randomUUID();
+        UUID bad = UUID.randomUUID();
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(good).enabled(true).contactInfo("good@example.com").build(),
+                NotificationPreference.builder().userId(bad).enabled(true).contactInfo("bad@example.com").build()));
+        List<Notification> saved = stubFanOutPersistence();
+
+        SendFailedException refused = new SendFailedException("Invalid Addresses", null, new Address[0],
+                new Address[]{new InternetAddress("good@example.com")}, new Address[]{new InternetAddress("bad@example.com")});
+        doThrow(new MailSendException(Map.of(new Object(), refused))).doNothing()
+                .when(mailSender).send(any(MimeMessage.class));
+
+        notificationService.fanOut(FanOutRequest.builder().userIds(List.of(good, bad)).subject("s").body("b").build());
+        runDispatchedTask();
+
+        ArgumentCaptor<MimeMessage> sent = ArgumentCaptor.forClass(MimeMessage.class);
+        verify(mailSender, times(2)).send(sent.capture());
+        assertEquals(1, bccCount(sent.getAllValues().get(1)));
+        Map<UUID, Notification> byUser = new HashMap<>();
+        saved.forEach(n -> byUser.put(n.getUserId(), n));
+        assertEquals(NotificationStatus.SUCCEEDED, byUser.get(good).getStatus());
+        assertEquals(NotificationStatus.FAILED, byUser.get(bad).getStatus());
+        assertEquals(0, byUser.get(bad).getAttempts());
+    }
+
+    @Test
+    void fanOut_shouldLeaveGroupPending_whenRelayCircuitIsOpen() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(
+                NotificationPreference.builder().userId(userId).enabled(true).contactInfo("user@example.com").build()));
+        List<Notification> saved = stubFanOutPersistence();
+        doThrow(new MailRelayUnavailableException("open")).when(circuitBreaker).send(any(Runnable.class));
+
+        notificationService.fanOut(FanOutRequest.builder().userIds(List.of(userId)).subject("s").body("b").build());
+        runDispatchedTask();
+
+        assertEquals(NotificationStatus.PENDING, saved.get(0).getStatus());
+        assertEquals(0, saved.get(0).getAttempts());
+        verify(timer, never()).schedule(any(UUID.class), any(LocalDateTime.class));
+    }
+
+    /**
+     * Stubs MIME rendering with a real sender and lets the saved fan-out rows be claimed.
+     */
+    private List<Notification> stubFanOutPersistence() {
+        JavaMailSenderImpl realSender = new JavaMailSenderImpl();
+        when(mailSender.createMimeMessage()).thenAnswer(inv -> realSender.createMimeMessage());
+        when(mailSender.createMimeMessage(any(InputStream.class)))
+                .thenAnswer(inv -> realSender.createMimeMessage((InputStream) inv.getArgument(0)));
+
+        List<Notification> saved = new ArrayList<>();
+        when(notificationRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Notification> batch = inv.getArgument(0);
+            batch.forEach(n -> n.setId(UUID.randomUUID()));
+            saved.addAll(batch);
+            return batch;
+        });
+        when(notificationRepository.claim(anyCollection(), anyString(), any(), any())).thenAnswer(inv -> saved.size());
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(saved);
+        return saved;
+    }
+
+    @Test
+    void acceptTemplated_shouldStoreTemplateIdAndParams_andRenderOnlyTheSubject() {
+        UUID userId = UUID.randomUUID();
+        when(templateRepository.findById("welcome")).thenReturn(Optional.of(welcomeTemplate()));
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").build()));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(inv -> {
+            Notification n = inv.getArgument(0);
+            n.setId(UUID.randomUUID());
+            return n;
+        });
+
+        Notification saved = notificationService.acceptTemplated(
+                new TemplatedNotificationRequest(userId, "welcome", Map.of("name", "Ana", "code", "1234")));
+
+        assertEquals("Hi Ana", saved.getSubject());
+        assertNull(saved.getBody());
+        assertEquals("welcome", saved.getTemplateId());
+        assertEquals(Map.of("name", "Ana", "code", "1234"), templates.decodeParams(saved.getTemplateParams()));
+        assertEquals(NotificationStatus.PENDING, saved.getStatus());
+        verify(dispatchExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void acceptTemplated_shouldReject_whenParametersAreMissing() {
+        UUID userId = UUID.randomUUID();
+        when(templateRepository.findById("welcome")).thenReturn(Optional.of(welcomeTemplate()));
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").build()));
+
+        InvalidTemplateException e = assertThrows(InvalidTemplateException.class, () -> notificationService.acceptTemplated(
+                new TemplatedNotificationRequest(userId, "welcome", Map.of("name", "Ana"))));
+
+        assertEquals("Missing template parameters: code", e.getMessage());
+        verify(notificationRepository, never()).save(any());
+    }
+
+    @Test
+    void acceptTemplated_shouldReject_whenParametersDoNotFitTheirColumn() {
+        UUID userId = UUID.randomUUID();
+        when(templateRepository.findById("welcome")).thenReturn(Optional.of(welcomeTemplate()));
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").build()));
+
+        InvalidTemplateException e = assertThrows(InvalidTemplateException.class, () -> notificationService.acceptTemplated(
+                new TemplatedNotificationRequest(userId, "welcome", Map.of("name", "Ana", "code", "x".repeat(4_000)))));
+
+        assertEquals("Template parameters must not exceed 4000 characters as JSON", e.getMessage());
+        verify(notificationRepository, never()).save(any());
+    }
+
+    @Test
+    void acceptTemplated_shouldReject_whenTemplateIdIsTooLong() {
+        UUID userId = UUID.randomUUID();
+        when(preferenceRepository.findByUserId(userId)).thenReturn(Optional.of(NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").build()));
+
+        InvalidTemplateException e = assertThrows(InvalidTemplateException.class, () -> notificationService.acceptTemplated(
+                new TemplatedNotificationRequest(userId, "w".repeat(101), Map.of())));
+
+        assertEquals("Template id must not exceed 100 characters", e.getMessage());
+        verifyNoInteractions(templateRepository);
+        verify(notificationRepository, never()).save(any());
+    }
+
+    @Test
+    void getById_shouldRenderTheTemplateVersionTheNotificationWasCreatedFrom() {
+        UUID id = UUID.randomUUID();
+        String params = templates.encodeParams(Map.of("name", "Ana", "code", "1234"));
+        when(templateVersionRepository.findById(new NotificationTemplateVersion.Key("welcome", 1)))
+                .thenReturn(Optional.of(NotificationTemplateVersion.builder()
+                        .templateId("welcome").version(1).subject("Hi {{name}}").body("Your code is {{ code }}").build()));
+        when(notificationRepository.findById(id)).thenReturn(Optional.of(Notification.builder()
+                .id(id)
+                .subject("Hi Ana")
+                .templateId("welcome")
+                .templateVersion(1)
+                .templateParams(params)
+                .status(NotificationStatus.SUCCEEDED)
+                .build()));
+
+        assertEquals("Your code is 1234", notificationService.getById(id).getBody());
+        verifyNoInteractions(templateRepository);
+    }
+
+    @Test
+    void processDueNotifications_shouldRenderTemplatedBodies_fromOneCachedPlan() {
+        UUID userId = UUID.randomUUID();
+        when(templateRepository.findById("welcome")).thenReturn(Optional.of(welcomeTemplate()));
+        List<Notification> rows = new ArrayList<>();
+        for (String code : List.of("1234", "5678")) {
+            rows.add(Notification.builder()
+                    .id(UUID.randomUUID())
+                    .userId(userId)
+                    .subject("Hi Ana")
+                    .templateId("welcome")
+                    .templateParams(templates.encodeParams(Map.of("name", "Ana", "code", code)))
+                    .status(NotificationStatus.IN_FLIGHT)
+                    .attempts(0)
+                    .build());
+        }
+
+        when(notificationRepository.findDueIds(any(), any())).thenReturn(rows.stream().map(Notification::getId).toList());
+        when(notificationRepository.findAllByClaimedBy(anyString())).thenReturn(rows);
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").build()));
+
+        notificationService.processDueNotifications();
+
+        ArgumentCaptor<SimpleMailMessage> sent = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailSender, times(2)).send(sent.capture());
+        assertEquals(List.of("Your code is 1234", "Your code is 5678"),
+                sent.getAllValues().stream().map(SimpleMailMessage::getText).toList());
+        assertEquals("Hi Ana", sent.getValue().getSubject());
+        rows.forEach(n -> assertEquals(NotificationStatus.SUCCEEDED, n.getStatus()));
+        verify(templateRepository, times(1)).findById("welcome");
+    }
+
+    @Test
+    void acceptBatch_shouldReportItemsOverTheUserRateLimit() {
+        UUID userId = UUID.randomUUID();
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").build()));
+        when(notificationRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Notification> batch = inv.getArgument(0);
+            batch.forEach(n -> n.setId(UUID.randomUUID()));
+            return batch;
+        });
+        doNothing().doThrow(new RateLimitExceededException("Too many notifications for user " + userId, Duration.ofSeconds(1)))
+                .when(userRateLimiter).acquire(userId);
+
+        List<BatchNotificationResult> results = new ArrayList<>();
+        notificationService.acceptBatch(List.of(
+                new NotificationRequest(userId, "s", "b"),
+                new NotificationRequest(userId, "s", "b")).iterator(), results::addAll);
+
+        assertNotNull(results.get(0).getId());
+        assertEquals("Too many notifications for user " + userId, results.get(1).getError());
+        verify(notificationRepository).saveAll(argThat(batch -> ((List<?>) batch).size() == 1));
+    }
+
+    @Test
+    void acceptCommands_shouldNotChargeTheUserRateLimit() {
+        UUID userId = UUID.randomUUID();
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").build()));
+        when(notificationRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Notification> batch = inv.getArgument(0);
+            batch.forEach(n -> n.setId(UUID.randomUUID()));
+            return batch;
+        });
+
+        List<BatchNotificationResult> results = notificationService.acceptCommands(List.of(
+                NotificationCommand.builder().type(NotificationCommand.Type.NOTIFICATION).userId(userId)
+                        .subject("s").body("b").build(),
+                NotificationCommand.builder().type(NotificationCommand.Type.NOTIFICATION).userId(userId)
+                        .subject("s").body("b").build()));
+
+        results.forEach(result -> assertNotNull(result.getId()));
+        verify(userRateLimiter, never()).acquire(any());
+    }
+
+    @Test
+    void acceptCommands_shouldReportTemplateErrorsPerCommand_andSkipInlineContentChecks() {
+        UUID userId = UUID.randomUUID();
+        when(templateRepository.findById("welcome")).thenReturn(Optional.of(welcomeTemplate()));
+        when(templateRepository.findById("missing")).thenReturn(Optional.empty());
+        when(preferenceRepository.findAllByUserIdIn(anyCollection())).thenReturn(List.of(NotificationPreference.builder()
+                .userId(userId).enabled(true).contactInfo("user@example.com").build()));
+        when(notificationRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Notification> batch = inv.getArgument(0);
+            batch.forEach(n -> n.setId(UUID.randomUUID()));
+            return batch;
+        });
+
+        List<BatchNotificationResult> results = notificationService.acceptCommands(List.of(
+                NotificationCommand.builder().type(NotificationCommand.Type.NOTIFICATION).userId(userId)
+                        .templateId("welcome").params(Map.of("name", "Ana", "code", "1")).build(),
+                NotificationCommand.builder().type(NotificationCommand.Type.NOTIFICATION).userId(userId)
+                        .templateId("missing").build(),
+                NotificationCommand.builder().type(NotificationCommand.Type.NOTIFICATION).userId(userId)
+                        .templateId("welcome").params(Map.of("name", "Ana")).build()));
+
+        assertNotNull(results.get(0).getId());
+        assertEquals("Notification template not found: missing", results.get(1).getError());
+        assertEquals("Missing template parameters: code", results.get(2).getError());
+    }
+
+    private static NotificationTemplate welcomeTemplate() {
+        return NotificationTemplate.builder()
+                .id("welcome")
+                .subject("Hi {{name}}")
+                .body("Your code is {{ code }}")
+                .build();
+    }
+
+    private void runDispatchedTask() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(dispatchExecutor).execute(task.capture());
+        task.getValue().run();
+    }
+
+    private static int bccCount(MimeMessage message) {
+        try {
+            return message.getRecipients(Message.RecipientType.BCC).length;
+        } catch (MessagingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
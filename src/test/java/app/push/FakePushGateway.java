@@ -0,0 +1,113 @@
+package app.push;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for a push gateway's batch endpoint. It answers OK for every message
+ * except the tokens it has been told are unregistered, or fails whole requests with a
+ * given HTTP status, and records each request's size and the client port it came from.
+ */
+public class FakePushGateway implements AutoCloseable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+
+    private final Queue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final Queue<String> authorizations = new ConcurrentLinkedQueue<>();
+
+    private volatile Set<String> unregisteredTokens = Set.of();
+    private volatile int failWithStatus;
+
+    public FakePushGateway() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/batch", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public URI getEndpoint() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/v1/batch");
+    }
+
+    public void setUnregisteredTokens(Set<String> unregisteredTokens) {
+        this.unregisteredTokens = unregisteredTokens;
+    }
+
+    /**
+     * Answers every request with this status and no results; 0 turns it off.
+     */
+    public void setFailWithStatus(int failWithStatus) {
+        this.failWithStatus = failWithStatus;
+    }
+
+    public List<Integer> getBatchSizes() {
+        return List.copyOf(batchSizes);
+    }
+
+    /**
+     * Distinct client ports seen; one port for several requests means one reused connection.
+     */
+    public int getConnections() {
+        return clientPorts.size();
+    }
+
+    public List<String> getAuthorizations() {
+        return List.copyOf(authorizations);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization != null) {
+                authorizations.add(authorization);
+            }
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            batchSizes.add(request.get("messages").size());
+
+            if (failWithStatus != 0) {
+                exchange.sendResponseHeaders(failWithStatus, -1);
+                return;
+            }
+
+            ObjectNode response = objectMapper.createObjectNode();
+            ArrayNode results = response.putArray("results");
+            for (JsonNode message : request.get("messages")) {
+                ObjectNode result = results.addObject().put("id", message.get("id").asText());
+                if (unregisteredTokens.contains(message.get("token").asText())) {
+                    result.put("status", "UNREGISTERED").put("error", "Token is not registered");
+                } else {
+                    result.put("status", "OK");
+                }
+            }
+
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().putAll(Map.of("Content-Type", List.of("application/json")));
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
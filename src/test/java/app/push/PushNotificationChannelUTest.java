@@ -0,0 +1,102 @@
+package app.push;
+
+import com.example.notification_service.channel.ChannelMessage;
+import com.example.notification_service.channel.ChannelResult;
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.push.PushNotificationChannel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushNotificationChannelUTest {
+
+    private FakePushGateway gateway;
+    private NotificationProperties properties;
+    private PushNotificationChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gateway = new FakePushGateway();
+        properties = new NotificationProperties();
+        properties.getPush().setEndpoint(gateway.getEndpoint());
+        properties.getPush().setBatchSize(3);
+        properties.getPush().setApiKey("secret");
+        properties.getPush().setRequestTimeout(Duration.ofSeconds(5));
+        channel = new PushNotificationChannel(HttpClient.newHttpClient(), new ObjectMapper(),
+                new SyncTaskExecutor(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.close();
+    }
+
+    @Test
+    void send_shouldBatchMessagesPerRequest_overOneReusedConnection() {
+        List<ChannelMessage> messages = messages(8);
+
+        Map<UUID, ChannelResult> results = channel.send(messages);
+
+        assertEquals(List.of(3, 3, 2), gateway.getBatchSizes());
+        assertEquals(1, gateway.getConnections());
+        assertEquals(List.of("Bearer secret", "Bearer secret", "Bearer secret"), gateway.getAuthorizations());
+        assertEquals(8, results.size());
+        messages.forEach(m -> assertEquals(ChannelResult.Outcome.DELIVERED, results.get(m.id()).outcome()));
+    }
+
+    @Test
+    void send_shouldRejectUnregisteredTokens_andDeliverTheRest() {
+        List<ChannelMessage> messages = messages(2);
+        gateway.setUnregisteredTokens(Set.of("token-1"));
+
+        Map<UUID, ChannelResult> results = channel.send(messages);
+
+        assertEquals(ChannelResult.Outcome.DELIVERED, results.get(messages.get(0).id()).outcome());
+        assertEquals(ChannelResult.Outcome.REJECTED, results.get(messages.get(1).id()).outcome());
+        assertEquals("Token is not registered", results.get(messages.get(1).id()).error());
+    }
+
+    @Test
+    void send_shouldRetryWholeBatch_whenGatewayFails() {
+        List<ChannelMessage> messages = messages(2);
+        gateway.setFailWithStatus(503);
+
+        Map<UUID, ChannelResult> results = channel.send(messages);
+
+        messages.forEach(m -> {
+            assertEquals(ChannelResult.Outcome.RETRY, results.get(m.id()).outcome());
+            assertEquals("Push gateway returned HTTP 503", results.get(m.id()).error());
+        });
+    }
+
+    @Test
+    void send_shouldRetryWholeBatch_whenGatewayIsUnreachable() {
+        properties.getPush().setEndpoint(URI.create("http://localhost:1/v1/batch"));
+        List<ChannelMessage> messages = messages(1);
+
+        Map<UUID, ChannelResult> results = channel.send(messages);
+
+        assertEquals(ChannelResult.Outcome.RETRY, results.get(messages.get(0).id()).outcome());
+    }
+
+    private static List<ChannelMessage> messages(int count) {
+        List<ChannelMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(new ChannelMessage(UUID.randomUUID(), "token-" + i, "Title " + i, "Body " + i));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,106 @@
+package app.ratelimit;
+
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.exception.RateLimitExceededException;
+import com.example.notification_service.ratelimit.UserRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserRateLimiterUTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void acquire_shouldAllowBurst_thenRejectWithRetryAfter() {
+        UserRateLimiter limiter = newLimiter(2, 3, 1_000);
+        UUID userId = UUID.randomUUID();
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(userId);
+        }
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class, () -> limiter.acquire(userId));
+
+        assertEquals(Duration.ofMillis(500), e.getRetryAfter());
+        assertEquals(1.0, meterRegistry.get("notification.api.user.rejected").counter().count());
+    }
+
+    @Test
+    void acquire_shouldLimitEachUserSeparately() {
+        UserRateLimiter limiter = newLimiter(1, 1, 1_000);
+        UUID noisy = UUID.randomUUID();
+
+        limiter.acquire(noisy);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(noisy));
+
+        assertDoesNotThrow(() -> limiter.acquire(UUID.randomUUID()));
+    }
+
+    @Test
+    void acquire_shouldAcceptAgain_afterRetryAfterHasPassed() {
+        UserRateLimiter limiter = newLimiter(1, 1, 1_000);
+        UUID userId = UUID.randomUUID();
+        limiter.acquire(userId);
+
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class, () -> limiter.acquire(userId));
+        clock.addAndGet(e.getRetryAfter().toNanos());
+
+        assertDoesNotThrow(() -> limiter.acquire(userId));
+    }
+
+    @Test
+    void acquire_shouldKeepMemoryBounded_withManyDistinctUsers() {
+        UserRateLimiter limiter = newLimiter(1, 5, 1_000);
+
+        for (int i = 0; i < 50_000; i++) {
+            limiter.acquire(UUID.randomUUID());
+        }
+
+        assertTrue(limiter.size() <= 1_000, "tracked " + limiter.size() + " users");
+    }
+
+    @Test
+    void acquire_shouldTakeSeveralPermitsAtOnce_orNoneOfThem() {
+        UserRateLimiter limiter = newLimiter(1, 5, 1_000);
+        UUID userId = UUID.randomUUID();
+
+        limiter.acquire(userId, 3);
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class, () -> limiter.acquire(userId, 3));
+
+        assertEquals(Duration.ofSeconds(1), e.getRetryAfter());
+        limiter.acquire(userId, 2);
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(userId));
+    }
+
+    @Test
+    void acquire_shouldDoNothing_whenDisabled() {
+        NotificationProperties properties = properties(1, 1, 1_000);
+        properties.getUserRateLimit().setEnabled(false);
+        UserRateLimiter limiter = new UserRateLimiter(properties, meterRegistry, clock::get);
+        UUID userId = UUID.randomUUID();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(userId);
+        }
+
+        assertEquals(0, limiter.size());
+    }
+
+    private UserRateLimiter newLimiter(double permitsPerSecond, int burst, long maximumUsers) {
+        return new UserRateLimiter(properties(permitsPerSecond, burst, maximumUsers), meterRegistry, clock::get);
+    }
+
+    private static NotificationProperties properties(double permitsPerSecond, int burst, long maximumUsers) {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getUserRateLimit().setPermitsPerSecond(permitsPerSecond);
+        properties.getUserRateLimit().setBurst(burst);
+        properties.getUserRateLimit().setMaximumUsers(maximumUsers);
+        return properties;
+    }
+}
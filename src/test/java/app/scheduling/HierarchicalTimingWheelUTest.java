@@ -0,0 +1,86 @@
+package app.scheduling;
+
+import com.example.notification_service.scheduling.HierarchicalTimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelUTest {
+
+    private static final long START = 1_700_000_000L;
+
+    @Test
+    void advance_shouldFireEachEntryOnItsTick_acrossAllLevels() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(START);
+        long[] delays = {1, 2, 63, 64, 65, 4_095, 4_096, 4_097, 262_143, 262_144, 300_000, 10_000_000};
+
+        for (long delay : delays) {
+            assertTrue(wheel.add(START + delay, delay, 0));
+        }
+
+        List<long[]> fired = new ArrayList<>();
+        for (long tick = START + 1; tick <= START + 10_000_000; tick++) {
+            long now = tick;
+            wheel.advance(now, (msb, lsb) -> fired.add(new long[]{msb, now}));
+        }
+
+        assertEquals(delays.length, fired.size());
+        for (long[] entry : fired) {
+            assertEquals(START + entry[0], entry[1], "entry with delay " + entry[0] + " fired on the wrong tick");
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_shouldFireEverythingDue_whenJumpingSeveralTicksAtOnce() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(START);
+        wheel.add(START + 10, 1, 1);
+        wheel.add(START + 100, 2, 2);
+        wheel.add(START + 5_000, 3, 3);
+
+        List<Long> fired = new ArrayList<>();
+        assertEquals(2, wheel.advance(START + 4_999, (msb, lsb) -> fired.add(msb)));
+        assertEquals(List.of(1L, 2L), fired);
+        assertEquals(1, wheel.size());
+
+        assertEquals(1, wheel.advance(START + 5_000, (msb, lsb) -> fired.add(msb)));
+        assertEquals(List.of(1L, 2L, 3L), fired);
+    }
+
+    @Test
+    void add_shouldFireOnNextTick_whenDeadlineAlreadyPassed() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(START);
+        wheel.add(START - 30, 7, 7);
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(START, (msb, lsb) -> fired.add(msb));
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(START + 1, (msb, lsb) -> fired.add(msb));
+        assertEquals(List.of(7L), fired);
+    }
+
+    @Test
+    void add_shouldReject_whenDeadlineIsBeyondWheelRange() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(START);
+
+        assertFalse(wheel.add(START + HierarchicalTimingWheel.MAX_DELAY_TICKS, 1, 1));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void add_shouldKeepEveryEntry_whenManyShareOneSlot() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(START);
+        for (int i = 0; i < 1_000; i++) {
+            wheel.add(START + 30, i, i);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(START + 30, (msb, lsb) -> fired.add(msb));
+
+        assertEquals(1_000, fired.size());
+    }
+}
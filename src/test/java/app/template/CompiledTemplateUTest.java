@@ -0,0 +1,52 @@
+package app.template;
+
+import com.example.notification_service.exception.InvalidTemplateException;
+import com.example.notification_service.template.CompiledTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledTemplateUTest {
+
+    @Test
+    void render_shouldFillEveryPlaceholder_includingRepeatedOnes() {
+        CompiledTemplate template = CompiledTemplate.compile("Hi {{name}}, {{ item }} ships today. Thanks, {{name}}!");
+
+        assertEquals(List.of("name", "item"), List.copyOf(template.parameters()));
+        assertEquals("Hi Ana, order 42 ships today. Thanks, Ana!",
+                template.render(Map.of("name", "Ana", "item", "order 42")));
+    }
+
+    @Test
+    void render_shouldReturnTextAsIs_whenThereAreNoPlaceholders() {
+        CompiledTemplate template = CompiledTemplate.compile("No placeholders { here }");
+
+        assertTrue(template.parameters().isEmpty());
+        assertEquals("No placeholders { here }", template.render(Map.of()));
+    }
+
+    @Test
+    void render_shouldNotExpandPlaceholdersInsideParameterValues() {
+        CompiledTemplate template = CompiledTemplate.compile("{{a}}-{{b}}");
+
+        assertEquals("{{b}}-x", template.render(Map.of("a", "{{b}}", "b", "x")));
+    }
+
+    @Test
+    void render_shouldThrow_whenParameterIsMissing() {
+        CompiledTemplate template = CompiledTemplate.compile("Hi {{name}}");
+
+        InvalidTemplateException e = assertThrows(InvalidTemplateException.class, () -> template.render(Map.of()));
+        assertEquals("Missing template parameter: name", e.getMessage());
+    }
+
+    @Test
+    void compile_shouldReject_unclosedOrInvalidPlaceholders() {
+        assertThrows(InvalidTemplateException.class, () -> CompiledTemplate.compile("Hi {{name"));
+        assertThrows(InvalidTemplateException.class, () -> CompiledTemplate.compile("Hi {{first name}}"));
+        assertThrows(InvalidTemplateException.class, () -> CompiledTemplate.compile("Hi {{}}"));
+    }
+}
@@ -0,0 +1,37 @@
+package app.web;
+
+import com.example.notification_service.exception.RateLimitExceededException;
+import com.example.notification_service.web.ExceptionAdvice;
+import com.example.notification_service.web.dto.ResponseError;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExceptionAdviceUTest {
+
+    private final ExceptionAdvice advice = new ExceptionAdvice();
+
+    @Test
+    void handleRateLimitExceeded_shouldReturn429_withRetryAfterRoundedUpToSeconds() {
+        ResponseEntity<ResponseError> response = advice.handleRateLimitExceeded(
+                new RateLimitExceededException("Too many notifications", Duration.ofMillis(1_200)));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(429, response.getBody().getStatus());
+        assertEquals("Too many notifications", response.getBody().getMessage());
+    }
+
+    @Test
+    void handleRateLimitExceeded_shouldAskForAtLeastOneSecond() {
+        ResponseEntity<ResponseError> response = advice.handleRateLimitExceeded(
+                new RateLimitExceededException("Too many notifications", Duration.ofMillis(10)));
+
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+}
@@ -3,25 +3,42 @@ package app.web;
 import com.example.notification_service.model.Notification;
 import com.example.notification_service.model.NotificationPreference;
 import com.example.notification_service.model.NotificationStatus;
+import com.example.notification_service.model.NotificationSummary;
+import com.example.notification_service.model.NotificationTemplate;
 import com.example.notification_service.model.NotificationType;
+import com.example.notification_service.service.IdempotencyService;
+import com.example.notification_service.service.NotificationHistoryPage;
 import com.example.notification_service.service.NotificationService;
 import com.example.notification_service.web.NotificationController;
 import com.example.notification_service.web.dto.EventReminderRequest;
+import com.example.notification_service.web.dto.FanOutRequest;
 import com.example.notification_service.web.dto.NotificationPreferenceResponse;
 import com.example.notification_service.web.dto.NotificationRequest;
 import com.example.notification_service.web.dto.NotificationResponse;
 import com.example.notification_service.web.dto.NotificationScheduleRequest;
+import com.example.notification_service.web.dto.NotificationTemplateRequest;
+import com.example.notification_service.web.dto.NotificationTemplateResponse;
 import com.example.notification_service.web.dto.UpsertNotificationPreference;
+import com.example.notification_service.web.dto.BatchNotificationResult;
+import com.example.notification_service.web.dto.ClearNotificationsResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,6 +49,12 @@ class NotificationControllerApiTest {
     @Mock
     private NotificationService notificationService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
     @InjectMocks
     private NotificationController notificationController;
 
@@ -120,7 +143,7 @@ class NotificationControllerApiTest {
         when(notificationService.sendNotification(req)).thenReturn(notification);
 
         ResponseEntity<NotificationResponse> response =
-                notificationController.sendNotification(req);
+                notificationController.sendNotification(req, null);
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         NotificationResponse body = response.getBody();
@@ -134,34 +157,72 @@ class NotificationControllerApiTest {
     }
 
     @Test
-    void getNotifications_shouldReturnOkAndMappedList() {
+    void sendNotification_shouldGoThroughIdempotencyService_whenKeyIsGiven() {
         UUID userId = UUID.randomUUID();
-        LocalDateTime t1 = LocalDateTime.now().minusMinutes(5);
-        LocalDateTime t2 = LocalDateTime.now().minusMinutes(1);
+        NotificationRequest req = new NotificationRequest(userId, "Subj", "Body");
 
-        Notification n1 = Notification.builder()
+        Notification original = Notification.builder()
                 .id(UUID.randomUUID())
                 .userId(userId)
-                .subject("Subj1")
-                .created(t1)
+                .subject("Subj")
+                .body("Body")
+                .created(LocalDateTime.now())
                 .status(NotificationStatus.SUCCEEDED)
                 .type(NotificationType.EMAIL)
                 .build();
 
-        Notification n2 = Notification.builder()
+        when(idempotencyService.execute(eq("retry-1"), eq(req), any())).thenReturn(original);
+
+        ResponseEntity<NotificationResponse> response = notificationController.sendNotification(req, "retry-1");
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(original.getId(), response.getBody().getId());
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void acceptNotification_shouldReturnAcceptedWithNotificationId() {
+        UUID userId = UUID.randomUUID();
+        NotificationRequest req = new NotificationRequest(userId, "Subj", "Body");
+
+        Notification notification = Notification.builder()
                 .id(UUID.randomUUID())
                 .userId(userId)
-                .subject("Subj2")
-                .created(t2)
-                .status(NotificationStatus.FAILED)
+                .subject("Subj")
+                .body("Body")
+                .created(LocalDateTime.now())
+                .status(NotificationStatus.PENDING)
                 .type(NotificationType.EMAIL)
                 .build();
 
-        when(notificationService.getNotifications(userId))
-                .thenReturn(List.of(n1, n2));
+        when(notificationService.acceptNotification(req)).thenReturn(notification);
+
+        ResponseEntity<NotificationResponse> response =
+                notificationController.acceptNotification(req, null);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        NotificationResponse body = response.getBody();
+        assertNotNull(body);
+        assertEquals(notification.getId(), body.getId());
+        assertEquals(NotificationStatus.PENDING, body.getStatus());
+
+        verify(notificationService).acceptNotification(req);
+    }
+
+    @Test
+    void getNotifications_shouldReturnOkAndMappedList() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime t1 = LocalDateTime.now().minusMinutes(1);
+        LocalDateTime t2 = LocalDateTime.now().minusMinutes(5);
+
+        NotificationSummary n1 = summary(UUID.randomUUID(), "Subj1", t1, NotificationStatus.SUCCEEDED);
+        NotificationSummary n2 = summary(UUID.randomUUID(), "Subj2", t2, NotificationStatus.FAILED);
+
+        when(notificationService.getNotificationHistory(userId, null, null, false))
+                .thenReturn(new NotificationHistoryPage(List.of(n1, n2), Map.of(), null));
 
         ResponseEntity<List<NotificationResponse>> response =
-                notificationController.getNotifications(userId);
+                notificationController.getNotifications(userId, null, null, false);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         List<NotificationResponse> body = response.getBody();
@@ -169,8 +230,51 @@ class NotificationControllerApiTest {
         assertEquals(2, body.size());
         assertEquals("Subj1", body.get(0).getSubject());
         assertEquals("Subj2", body.get(1).getSubject());
+        assertNull(body.get(0).getBody());
+        assertFalse(response.getHeaders().containsKey(NotificationController.NEXT_CURSOR_HEADER));
 
-        verify(notificationService).getNotifications(userId);
+        verify(notificationService).getNotificationHistory(userId, null, null, false);
+    }
+
+    @Test
+    void getNotifications_shouldReturnNextCursorHeaderAndBodies_whenRequested() {
+        UUID userId = UUID.randomUUID();
+        UUID id = UUID.randomUUID();
+        NotificationSummary n1 = summary(id, "Subj1", LocalDateTime.now(), NotificationStatus.SUCCEEDED);
+
+        when(notificationService.getNotificationHistory(userId, "abc", 1, true))
+                .thenReturn(new NotificationHistoryPage(List.of(n1), Map.of(id, "Body1"), "next"));
+
+        ResponseEntity<List<NotificationResponse>> response =
+                notificationController.getNotifications(userId, "abc", 1, true);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("next", response.getHeaders().getFirst(NotificationController.NEXT_CURSOR_HEADER));
+        assertEquals("Body1", response.getBody().get(0).getBody());
+    }
+
+    private static NotificationSummary summary(UUID id, String subject, LocalDateTime created, NotificationStatus status) {
+        return new NotificationSummary() {
+            public UUID getId() {
+                return id;
+            }
+
+            public String getSubject() {
+                return subject;
+            }
+
+            public LocalDateTime getCreated() {
+                return created;
+            }
+
+            public NotificationStatus getStatus() {
+                return status;
+            }
+
+            public NotificationType getType() {
+                return NotificationType.EMAIL;
+            }
+        };
     }
 
     @Test
@@ -207,11 +311,14 @@ class NotificationControllerApiTest {
     void clearPreviousNotifications_shouldCallServiceAndReturnOk() {
         UUID userId = UUID.randomUUID();
 
-        ResponseEntity<Void> response =
+        when(notificationService.clearNotifications(userId)).thenReturn(3);
+
+        ResponseEntity<ClearNotificationsResponse> response =
                 notificationController.clearPreviousNotifications(userId);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertNull(response.getBody());
+        assertNotNull(response.getBody());
+        assertEquals(3, response.getBody().getCleared());
         verify(notificationService).clearNotifications(userId);
     }
 
@@ -242,7 +349,7 @@ class NotificationControllerApiTest {
         ).thenReturn(n);
 
         ResponseEntity<NotificationResponse> response =
-                notificationController.schedule(req);
+                notificationController.schedule(req, null);
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         NotificationResponse body = response.getBody();
@@ -331,4 +438,98 @@ class NotificationControllerApiTest {
 
         verify(notificationService).getById(id);
     }
+
+    @Test
+    void fanOut_shouldReturnAcceptedWithOneResultPerUser() {
+        UUID accepted = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        FanOutRequest req = FanOutRequest.builder()
+                .userIds(List.of(accepted, missing))
+                .subject("News")
+                .body("Hello all")
+                .build();
+        List<BatchNotificationResult> results = List.of(
+                BatchNotificationResult.builder().index(0).id(UUID.randomUUID()).status(NotificationStatus.PENDING).build(),
+                BatchNotificationResult.builder().index(1).error("Notification preference not found!").build());
+        when(notificationService.fanOut(req)).thenReturn(results);
+
+        ResponseEntity<List<BatchNotificationResult>> response = notificationController.fanOut(req);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(results, response.getBody());
+    }
+
+    @Test
+    void registerTemplate_shouldReturnTemplateWithItsParameters() {
+        NotificationTemplateRequest req = new NotificationTemplateRequest("Hi {{name}}", "Your code is {{code}}, {{name}}");
+        LocalDateTime updatedOn = LocalDateTime.now();
+        when(notificationService.registerTemplate("welcome", req)).thenReturn(NotificationTemplate.builder()
+                .id("welcome")
+                .subject(req.getSubject())
+                .body(req.getBody())
+                .createdOn(updatedOn)
+                .updatedOn(updatedOn)
+                .build());
+
+        ResponseEntity<NotificationTemplateResponse> response = notificationController.registerTemplate("welcome", req);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        NotificationTemplateResponse body = response.getBody();
+        assertNotNull(body);
+        assertEquals("welcome", body.getId());
+        assertEquals(List.of("name", "code"), List.copyOf(body.getParameters()));
+        assertEquals(updatedOn, body.getUpdatedOn());
+    }
+
+    @Test
+    void sendBatch_shouldStreamOneNdjsonLinePerItem() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID id = UUID.randomUUID();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/notifications/batch");
+        request.setContent(("[{\"userId\":\"" + userId + "\",\"subject\":\"s\",\"body\":\"b\"},"
+                + "{\"userId\":\"" + userId + "\",\"subject\":\"\",\"body\":\"b\"}]").getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        List<NotificationRequest> received = new ArrayList<>();
+        doAnswer(inv -> {
+            Iterator<NotificationRequest> items = inv.getArgument(0);
+            items.forEachRemaining(received::add);
+            Consumer<List<BatchNotificationResult>> results = inv.getArgument(1);
+            results.accept(List.of(
+                    BatchNotificationResult.builder().index(0).id(id).status(NotificationStatus.PENDING).build(),
+                    BatchNotificationResult.builder().index(1).error("subject must not be blank").build()));
+            return null;
+        }).when(notificationService).acceptBatch(any(), any());
+
+        notificationController.sendBatch(request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(NotificationController.APPLICATION_NDJSON_VALUE, response.getContentType());
+        assertEquals(2, received.size());
+        assertEquals(userId, received.get(0).getUserId());
+
+        String[] lines = response.getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"index\":0,\"id\":\"" + id + "\",\"status\":\"PENDING\"}", lines[0]);
+        assertEquals("{\"index\":1,\"error\":\"subject must not be blank\"}", lines[1]);
+    }
+
+    @Test
+    void sendBatch_shouldEndWithErrorLine_whenBodyIsMalformed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/notifications/batch");
+        request.setContent("[{\"subject\":\"s\"}, {oops".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        doAnswer(inv -> {
+            Iterator<NotificationRequest> items = inv.getArgument(0);
+            items.forEachRemaining(item -> { });
+            return null;
+        }).when(notificationService).acceptBatch(any(), any());
+
+        notificationController.sendBatch(request, response);
+
+        assertEquals(200, response.getStatus());
+        assertTrue(response.getContentAsString().startsWith("{\"error\":\"Malformed request body: "));
+    }
 }
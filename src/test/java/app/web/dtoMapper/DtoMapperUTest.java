@@ -25,6 +25,14 @@ class DtoMapperUTest {
         assertEquals(NotificationType.EMAIL, result);
     }
 
+    @Test
+    void fromNotificationTypeRequest_shouldMapMobileCorrectly() {
+        NotificationType result =
+                DtoMapper.fromNotificationTypeRequest(NotificationTypeRequest.MOBILE);
+
+        assertEquals(NotificationType.MOBILE, result);
+    }
+
     @Test
     void fromNotificationPreference_shouldMapAllFieldsCorrectly() {
         UUID id = UUID.randomUUID();
@@ -0,0 +1,106 @@
+package app.webhook;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for webhook consumers. Every path answers with the configured status after
+ * an optional delay; the server records the requests it got and the most requests it had
+ * in progress at once.
+ */
+public class FakeWebhookServer implements AutoCloseable {
+
+    public record Received(String path, String id, String timestamp, String signature, byte[] body) {
+    }
+
+    private final HttpServer server;
+
+    private final Queue<Received> received = new ConcurrentLinkedQueue<>();
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final AtomicInteger maxInProgress = new AtomicInteger();
+
+    private volatile int status = 200;
+    private volatile long delayMillis;
+
+    public FakeWebhookServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    /**
+     * Statuses for the next requests, in order, before falling back to {@link #setStatus}.
+     */
+    public void enqueueStatuses(Integer... next) {
+        statuses.addAll(List.of(next));
+    }
+
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    public List<Received> getReceived() {
+        return List.copyOf(received);
+    }
+
+    public int getMaxInProgress() {
+        return maxInProgress.get();
+    }
+
+    public void reset() {
+        received.clear();
+        statuses.clear();
+        maxInProgress.set(0);
+        status = 200;
+        delayMillis = 0;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int current = inProgress.incrementAndGet();
+            maxInProgress.accumulateAndGet(current, Math::max);
+            try {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                received.add(new Received(exchange.getRequestURI().getPath(),
+                        exchange.getRequestHeaders().getFirst("X-Webhook-Id"),
+                        exchange.getRequestHeaders().getFirst("X-Webhook-Timestamp"),
+                        exchange.getRequestHeaders().getFirst("X-Webhook-Signature"),
+                        body));
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // Counted down before responding so the client's next request never overlaps it.
+                inProgress.decrementAndGet();
+            }
+            Integer next = statuses.poll();
+            exchange.sendResponseHeaders(next != null ? next : status, -1);
+        }
+    }
+}
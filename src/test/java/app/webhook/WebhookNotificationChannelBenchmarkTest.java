@@ -0,0 +1,88 @@
+package app.webhook;
+
+import com.example.notification_service.channel.ChannelMessage;
+import com.example.notification_service.channel.ChannelResult;
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.webhook.WebhookNotificationChannel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class WebhookNotificationChannelBenchmarkTest {
+
+    private static final int CALLBACKS = 200;
+    private static final long CONSUMER_LATENCY_MILLIS = 20;
+
+    private FakeWebhookServer server;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new FakeWebhookServer();
+        server.setDelayMillis(CONSUMER_LATENCY_MILLIS);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void asyncSends_shouldStayWithinTheEndpointCap() {
+        run(1);
+        int sequentialPeak = server.getMaxInProgress();
+        server.reset();
+        server.setDelayMillis(CONSUMER_LATENCY_MILLIS);
+        run(16);
+
+        assertEquals(1, sequentialPeak);
+        assertTrue(server.getMaxInProgress() <= 16);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmark_asyncVersusOneAtATime() {
+        long oneAtATime = run(1);
+        server.reset();
+        server.setDelayMillis(CONSUMER_LATENCY_MILLIS);
+        long async = run(16);
+
+        log.info("Webhook channel ({} callbacks, {} ms consumer latency): one at a time {} ms, "
+                        + "async with 16 per endpoint {} ms, peak in flight {}",
+                CALLBACKS, CONSUMER_LATENCY_MILLIS, oneAtATime, async, server.getMaxInProgress());
+    }
+
+    private long run(int maxConcurrentPerEndpoint) {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getWebhook().setSigningSecret("secret");
+        properties.getWebhook().setMaxConcurrentPerEndpoint(maxConcurrentPerEndpoint);
+        WebhookNotificationChannel channel = new WebhookNotificationChannel(
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build(),
+                new ObjectMapper(), new SyncTaskExecutor(), properties);
+
+        List<ChannelMessage> messages = new ArrayList<>();
+        for (int i = 0; i < CALLBACKS; i++) {
+            messages.add(new ChannelMessage(UUID.randomUUID(), server.url("/hooks"), "Subject " + i, "Body " + i));
+        }
+
+        long start = System.nanoTime();
+        Map<UUID, ChannelResult> results = channel.send(messages);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        messages.forEach(m -> assertEquals(ChannelResult.Outcome.DELIVERED, results.get(m.id()).outcome()));
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,108 @@
+package app.webhook;
+
+import com.example.notification_service.channel.ChannelMessage;
+import com.example.notification_service.channel.ChannelResult;
+import com.example.notification_service.config.NotificationProperties;
+import com.example.notification_service.webhook.WebhookNotificationChannel;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookNotificationChannelUTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private FakeWebhookServer server;
+    private NotificationProperties properties;
+    private WebhookNotificationChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeWebhookServer();
+        properties = new NotificationProperties();
+        properties.getWebhook().setSigningSecret("secret");
+        properties.getWebhook().setRequestTimeout(Duration.ofSeconds(5));
+        properties.getWebhook().setMaxConcurrentPerEndpoint(3);
+        channel = new WebhookNotificationChannel(
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build(),
+                objectMapper, new SyncTaskExecutor(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void send_shouldPostSignedPayload_toCallbackUrl() throws Exception {
+        ChannelMessage message = new ChannelMessage(UUID.randomUUID(), server.url("/hooks/orders"), "Subject", "Body");
+
+        Map<UUID, ChannelResult> results = channel.send(List.of(message));
+
+        assertEquals(ChannelResult.Outcome.DELIVERED, results.get(message.id()).outcome());
+        FakeWebhookServer.Received received = server.getReceived().get(0);
+        assertEquals("/hooks/orders", received.path());
+        assertEquals(message.id().toString(), received.id());
+        assertEquals("v1=" + WebhookNotificationChannel.sign("secret", received.timestamp(), received.body()),
+                received.signature());
+
+        JsonNode payload = objectMapper.readTree(received.body());
+        assertEquals(message.id().toString(), payload.get("id").asText());
+        assertEquals("Subject", payload.get("subject").asText());
+        assertEquals("Body", payload.get("body").asText());
+    }
+
+    @Test
+    void send_shouldRetryServerErrorsAndThrottling_andRejectOtherClientErrors() {
+        ChannelMessage unavailable = new ChannelMessage(UUID.randomUUID(), server.url("/a"), "s", "b");
+        ChannelMessage throttled = new ChannelMessage(UUID.randomUUID(), server.url("/b"), "s", "b");
+        ChannelMessage gone = new ChannelMessage(UUID.randomUUID(), server.url("/c"), "s", "b");
+        server.enqueueStatuses(503);
+
+        assertEquals(ChannelResult.Outcome.RETRY, channel.send(List.of(unavailable)).get(unavailable.id()).outcome());
+        server.enqueueStatuses(429);
+        assertEquals(ChannelResult.Outcome.RETRY, channel.send(List.of(throttled)).get(throttled.id()).outcome());
+        server.enqueueStatuses(410);
+        ChannelResult result = channel.send(List.of(gone)).get(gone.id());
+        assertEquals(ChannelResult.Outcome.REJECTED, result.outcome());
+        assertEquals("Webhook endpoint returned HTTP 410", result.error());
+    }
+
+    @Test
+    void send_shouldRejectCallbackUrlsThatAreNotHttp() {
+        ChannelMessage message = new ChannelMessage(UUID.randomUUID(), "user@example.com", "s", "b");
+
+        ChannelResult result = channel.send(List.of(message)).get(message.id());
+
+        assertEquals(ChannelResult.Outcome.REJECTED, result.outcome());
+        assertTrue(server.getReceived().isEmpty());
+    }
+
+    @Test
+    void send_shouldKeepRequestsPerEndpointWithinTheCap() {
+        server.setDelayMillis(50);
+        List<ChannelMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            messages.add(new ChannelMessage(UUID.randomUUID(), server.url("/hooks/" + i), "s", "b"));
+        }
+
+        Map<UUID, ChannelResult> results = channel.send(messages);
+
+        messages.forEach(m -> assertEquals(ChannelResult.Outcome.DELIVERED, results.get(m.id()).outcome()));
+        assertEquals(12, server.getReceived().size());
+        assertTrue(server.getMaxInProgress() <= 3, "max in progress " + server.getMaxInProgress());
+        assertTrue(server.getMaxInProgress() > 1);
+    }
+}